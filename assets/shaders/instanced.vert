@@ -0,0 +1,28 @@
+#version 440 core
+
+// The shared unit quad, corners go from -1 to 1.
+layout(location=0) in vec2 a_Corner;
+
+// Per instance: xy = center, zw = half size.
+layout(location=1) in vec4 a_Transform;
+// Per instance: u0, v0 (bottom-left) and u1, v1 (top-right).
+layout(location=2) in vec4 a_UVRect;
+// Per instance: rgb = tint, a = layer (depth).
+layout(location=3) in vec4 a_TintLayer;
+
+layout(std140) uniform Camera {
+    mat4 u_ViewProjection;
+    mat4 u_View;
+    mat4 u_Projection;
+};
+
+out vec3 v_Color;
+out vec2 v_TexCoords;
+
+void main() {
+    vec2 position = a_Transform.xy + a_Corner * a_Transform.zw;
+    gl_Position = u_ViewProjection * vec4(position, a_TintLayer.a, 1.0);
+
+    v_Color = a_TintLayer.rgb;
+    v_TexCoords = mix(a_UVRect.xy, a_UVRect.zw, a_Corner * 0.5 + 0.5);
+}
\ No newline at end of file
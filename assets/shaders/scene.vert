@@ -4,13 +4,22 @@ layout(location=0) in vec3 a_Position;
 layout(location=1) in vec3 a_Color;
 layout(location=2) in vec2 a_TexCoords;
 
-uniform mat4 u_MVPmatrix;
+// Per draw, set as constant attributes: xyz = offset, xy = scale. Batches keep them at 0 and 1.
+layout(location=4) in vec3 a_Offset;
+layout(location=5) in vec2 a_Scale;
+
+layout(std140) uniform Camera {
+    mat4 u_ViewProjection;
+    mat4 u_View;
+    mat4 u_Projection;
+};
 
 out vec3 v_Color;
 out vec2 v_TexCoords;
 
 void main() {
-    gl_Position = u_MVPmatrix * vec4(a_Position.xyz, 1.0);
+    vec3 position = vec3(a_Position.xy * a_Scale, a_Position.z) + a_Offset;
+    gl_Position = u_ViewProjection * vec4(position, 1.0);
 
     v_Color = a_Color;
     v_TexCoords = a_TexCoords;
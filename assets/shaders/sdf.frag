@@ -0,0 +1,24 @@
+#version 440 core
+
+in vec3 v_Color;
+in vec2 v_TexCoords;
+
+uniform int u_Textured;
+uniform sampler2D u_Sampler;
+
+out vec4 o_Color;
+
+void main() {
+    if(u_Textured == 0) {
+        o_Color = vec4(v_Color.rgb, 1.0);
+        return;
+    }
+
+    // The red channel holds the distance to the glyph's edge, 0.5 right on it. Smoothing over
+    // one screen pixel's worth of distance keeps edges sharp no matter how large the glyph is drawn.
+    float distance = texture(u_Sampler, v_TexCoords).r;
+    float width = max(fwidth(distance) * 0.75, 0.0001);
+    float alpha = smoothstep(0.5 - width, 0.5 + width, distance);
+
+    o_Color = vec4(v_Color.rgb, alpha);
+}
@@ -0,0 +1,146 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.entities.EntityStore;
+import git.arcane.core.entities.MovementSystem;
+import git.arcane.core.graphics.rendering.InstancedBatch;
+import git.arcane.core.graphics.rendering.Sprite;
+import git.arcane.core.jobs.JobSystem;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures updating and rendering 200k game objects kept in an {@link EntityStore} against the same objects
+ * kept as {@link Sprite}s. Rendering writes every object's instance data like {@link InstancedBatch} does,
+ * which is the CPU side of drawing them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EntityBenchmark {
+
+    private static final int ENTITIES = 200_000;
+    private static final float WORLD = 1000.0f, STEP = 1.0f / 30.0f;
+
+    private EntityStore m_Store;
+    private MovementSystem m_Movement;
+    private JobSystem m_Jobs;
+
+    private Sprite[] m_Sprites;
+    private float[] m_Velocities;
+
+    private FloatBuffer m_Instances;
+    private int m_Next;
+
+    @Setup
+    public void setup() {
+        m_Store = new EntityStore(ENTITIES);
+        m_Movement = new MovementSystem(0.0f, 0.0f, WORLD, WORLD);
+        m_Jobs = new JobSystem(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+        m_Sprites = new Sprite[ENTITIES];
+        m_Velocities = new float[ENTITIES * 2];
+
+        final Random random = new Random(1337L);
+        for(int i = 0; i < ENTITIES; i++) {
+            float x = random.nextFloat() * WORLD, y = random.nextFloat() * WORLD;
+            float vx = random.nextFloat() * 20.0f - 10.0f, vy = random.nextFloat() * 20.0f - 10.0f;
+            float u = (i & 3) * 0.25f;
+
+            int entity = m_Store.create();
+            m_Store.setPosition(entity, x, y);
+            m_Store.setVelocity(entity, vx, vy);
+            m_Store.setRegion(entity, null, u, 0.25f, u + 0.25f, 0.0f);
+
+            Sprite sprite = new Sprite(null, new Vector3f(1.0f), u, 0.25f, u + 0.25f, 0.0f);
+            sprite.setPosition(x, y);
+            m_Sprites[i] = sprite;
+            m_Velocities[i * 2] = vx;
+            m_Velocities[i * 2 + 1] = vy;
+        }
+
+        m_Instances = MemoryUtil.memAllocFloat(ENTITIES * InstancedBatch.INSTANCE_FLOATS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MemoryUtil.memFree(m_Instances);
+        m_Jobs.dispose();
+    }
+
+    @Benchmark
+    public void updateEntities() {
+        m_Store.run(m_Movement, STEP);
+    }
+
+    @Benchmark
+    public void updateEntitiesParallel() {
+        m_Store.run(m_Movement, STEP, m_Jobs, 0);
+    }
+
+    @Benchmark
+    public void updateSprites() {
+        for(int i = 0; i < ENTITIES; i++) {
+            final Sprite sprite = m_Sprites[i];
+            final Vector3f position = sprite.getPosition();
+
+            float x = position.x + m_Velocities[i * 2] * STEP;
+            float y = position.y + m_Velocities[i * 2 + 1] * STEP;
+            if(x < 0.0f || x > WORLD) m_Velocities[i * 2] = -m_Velocities[i * 2];
+            if(y < 0.0f || y > WORLD) m_Velocities[i * 2 + 1] = -m_Velocities[i * 2 + 1];
+
+            sprite.setPosition(x, y);
+        }
+    }
+
+    @Benchmark
+    public FloatBuffer renderEntities() {
+        final FloatBuffer instances = m_Instances;
+        instances.clear();
+
+        final EntityStore.Components c = m_Store.getComponents();
+        for(int i = 0, size = m_Store.getSize(); i < size; i++) {
+            InstancedBatch.putInstance(instances, c.PositionX[i], c.PositionY[i], c.Layer[i], c.HalfWidth[i], c.HalfHeight[i],
+                    c.U0[i], c.V0[i], c.U1[i], c.V1[i], c.TintR[i], c.TintG[i], c.TintB[i]);
+        }
+
+        return instances;
+    }
+
+    @Benchmark
+    public FloatBuffer renderSprites() {
+        final FloatBuffer instances = m_Instances;
+        instances.clear();
+
+        for(int i = 0; i < ENTITIES; i++) {
+            final Sprite sprite = m_Sprites[i];
+            final Vector3f position = sprite.getPosition(), tint = sprite.getTint();
+            final Vector2f size = sprite.getSize();
+
+            InstancedBatch.putInstance(instances, position.x, position.y, position.z, size.x, size.y,
+                    sprite.getU0(), sprite.getV0(), sprite.getU1(), sprite.getV1(), tint.x, tint.y, tint.z);
+        }
+
+        return instances;
+    }
+
+    /**
+     * Destroying and creating an entity, which recycles the slot and moves the last row into the hole.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int recycle() {
+        m_Store.destroy(m_Store.getEntity(m_Next++ % m_Store.getSize()));
+        return m_Store.create();
+    }
+
+}
@@ -0,0 +1,62 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Measures loading a {@link RenderFont} cold, rasterizing every glyph through AWT, against loading it warm,
+ * mapping the glyphs a previous load cached.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FontCacheBenchmark {
+
+    private static final String FONT = "/fonts/vcr.ttf";
+
+    private Path m_Directory;
+
+    @Setup
+    public void setup() throws IOException {
+        m_Directory = Files.createTempDirectory("font-cache");
+
+        // Fills the cache for the warm loads.
+        RenderFont.setCacheDirectory(m_Directory);
+        RenderFont.rasterize(FONT, 16, true).dispose();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        RenderFont.setCacheDirectory(null);
+        try(Stream<Path> files = Files.walk(m_Directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public RenderFont coldLoad() throws IOException {
+        RenderFont.setCacheDirectory(null);
+        final RenderFont font = RenderFont.rasterize(FONT, 16, true);
+        font.dispose();
+        return font;
+    }
+
+    @Benchmark
+    public RenderFont warmLoad() throws IOException {
+        RenderFont.setCacheDirectory(m_Directory);
+        final RenderFont font = RenderFont.rasterize(FONT, 16, true);
+        font.dispose();
+        return font;
+    }
+
+}
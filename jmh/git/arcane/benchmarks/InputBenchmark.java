@@ -0,0 +1,70 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.util.Input;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.lwjgl.glfw.GLFW.*;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Measures polling keys the way a game's update does every tick.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputBenchmark {
+
+    private static final int[] KEYS = {
+            GLFW_KEY_W, GLFW_KEY_A, GLFW_KEY_S, GLFW_KEY_D,
+            GLFW_KEY_SPACE, GLFW_KEY_LEFT_SHIFT, GLFW_KEY_E, GLFW_KEY_ESCAPE
+    };
+
+    private Input m_Input;
+
+    @Setup
+    public void setup() {
+        // The key state exists without a window, we just never register the GLFW callbacks.
+        m_Input = new Input(NULL);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int isKeyDown() {
+        int down = 0;
+        for(int key : KEYS) {
+            if(Input.isKeyDown(key))
+                down++;
+        }
+        return down;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(8)
+    public int isKeyPressed() {
+        int pressed = 0;
+        for(int key : KEYS) {
+            if(Input.isKeyPressed(key))
+                pressed++;
+        }
+        return pressed;
+    }
+
+    /**
+     * Starting a new input frame, which every game update does once.
+     */
+    @Benchmark
+    public void update() {
+        m_Input.update();
+    }
+
+    @Benchmark
+    public boolean isMouseButtonDown() {
+        return Input.isMouseButtonDown(GLFW_MOUSE_BUTTON_LEFT);
+    }
+
+}
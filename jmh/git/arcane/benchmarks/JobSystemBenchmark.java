@@ -0,0 +1,84 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.jobs.JobCounter;
+import git.arcane.core.jobs.JobSystem;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures integrating 200k moving objects on one thread against spreading them over the {@link JobSystem},
+ * plus the overhead of a tiny job that does next to nothing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JobSystemBenchmark {
+
+    private static final int OBJECTS = 200_000;
+    private static final float STEP = 1.0f / 30.0f, WORLD = 1000.0f;
+
+    private JobSystem m_Jobs;
+    private float[] m_Positions, m_Velocities;
+    private JobSystem.RangeJob m_Integrate;
+
+    @Setup
+    public void setup() {
+        m_Jobs = new JobSystem(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+        m_Positions = new float[OBJECTS * 2];
+        m_Velocities = new float[OBJECTS * 2];
+        final Random random = new Random(1337L);
+        for(int i = 0; i < OBJECTS * 2; i++) {
+            m_Positions[i] = random.nextFloat() * WORLD;
+            m_Velocities[i] = random.nextFloat() * 20.0f - 10.0f;
+        }
+
+        m_Integrate = this::integrate;
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_Jobs.logStats();
+        m_Jobs.dispose();
+    }
+
+    @Benchmark
+    public void integrateSerial() {
+        integrate(0, OBJECTS);
+    }
+
+    @Benchmark
+    public void integrateParallel() {
+        m_Jobs.waitFor(m_Jobs.parallelFor(0, OBJECTS, 0, m_Integrate));
+    }
+
+    /**
+     * Two dependent passes, the second only starts once the first is done.
+     */
+    @Benchmark
+    public void integrateChained() {
+        final JobCounter first = m_Jobs.parallelFor(0, OBJECTS, 0, m_Integrate);
+        m_Jobs.waitFor(m_Jobs.parallelFor(0, OBJECTS, 0, m_Integrate, first));
+    }
+
+    @Benchmark
+    public void emptyJob() {
+        m_Jobs.waitFor(m_Jobs.run(() -> {}));
+    }
+
+    private void integrate(int start, int end) {
+        final float[] positions = m_Positions, velocities = m_Velocities;
+        for(int i = start * 2; i < end * 2; i++) {
+            float position = positions[i] + velocities[i] * STEP;
+            if(position < 0.0f || position > WORLD)
+                velocities[i] = -velocities[i];
+            positions[i] = position;
+        }
+    }
+
+}
@@ -0,0 +1,39 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.graphics.cameras.OrthoCamera;
+import org.joml.Matrix4f;
+import org.joml.Vector2f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the matrix work of {@link OrthoCamera#update()}, including the visible bounds used for culling.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrthoCameraBenchmark {
+
+    private OrthoCamera m_Camera;
+    private final Vector2f m_Position = new Vector2f();
+
+    @Setup
+    public void setup() {
+        m_Camera = new OrthoCamera(16, 9);
+        m_Camera.setZoom(0.2f);
+    }
+
+    @Benchmark
+    public Matrix4f update() {
+        // Move a little every time so nothing can be cached between calls.
+        m_Position.add(0.01f, 0.005f);
+        m_Camera.setPosition(m_Position);
+        m_Camera.update();
+        return m_Camera.getCombinedMatrix();
+    }
+
+}
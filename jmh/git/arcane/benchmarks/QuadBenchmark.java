@@ -0,0 +1,67 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.graphics.rendering.InstancedBatch;
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.FloatBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing quads the way {@link SpriteBatch} and {@link InstancedBatch} fill their buffers,
+ * reported as quads per millisecond. The GPU side of the comparison is the render benchmark's <i>path</i> option.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadBenchmark {
+
+    private static final int QUADS = 4096;
+
+    private FloatBuffer m_Vertices, m_Instances;
+
+    @Setup
+    public void setup() {
+        m_Vertices = MemoryUtil.memAllocFloat(QUADS * SpriteBatch.QUAD_FLOATS);
+        m_Instances = MemoryUtil.memAllocFloat(QUADS * InstancedBatch.INSTANCE_FLOATS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        MemoryUtil.memFree(m_Vertices);
+        MemoryUtil.memFree(m_Instances);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public FloatBuffer putQuads() {
+        FloatBuffer vertices = m_Vertices;
+        vertices.clear();
+
+        for(int i = 0; i < QUADS; i++) {
+            float x = (i & 63) * 2.0f, y = (i >> 6) * 2.0f;
+            SpriteBatch.putQuad(vertices, x, y, 0.0f, 1.0f, 1.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f);
+        }
+
+        return vertices;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUADS)
+    public FloatBuffer putInstances() {
+        FloatBuffer instances = m_Instances;
+        instances.clear();
+
+        for(int i = 0; i < QUADS; i++) {
+            float x = (i & 63) * 2.0f, y = (i >> 6) * 2.0f;
+            InstancedBatch.putInstance(instances, x, y, 0.0f, 1.0f, 1.0f, 0.0f, 0.0f, 1.0f, 1.0f, 1.0f, 1.0f, 1.0f);
+        }
+
+        return instances;
+    }
+
+}
@@ -0,0 +1,141 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import git.arcane.core.graphics.rendering.font.Glyph;
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures text measuring and the per glyph work of {@link RenderFont#drawText}.<br>
+ * Glyph layout reports glyphs per millisecond, next to the per glyph Sprite path drawText used to take.
+ * Run with <i>-prof gc</i> to check the new one allocates nothing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderFontBenchmark {
+
+    // 100 characters, about one line of HUD text.
+    private static final String TEXT = "Score: 0012345  Health: 87/100  Mana: 42/60  Gold: 1337  Level 7  Zone: Whispering Woods (2, -13)..";
+    private static final String MULTILINE = "Line one\nLine two is longer\n\tLine three";
+
+    private RenderFont m_Font;
+    private FloatBuffer m_Vertices;
+
+    // What the old path looked glyphs up in, and the size of the sheet it computed UVs against.
+    private Map<Character, Glyph> m_GlyphMap;
+    private float m_SheetWidth, m_SheetHeight;
+
+    @Setup
+    public void setup() throws IOException {
+        // Rasterizing never touches OpenGL, so we can measure the font without a window.
+        m_Font = RenderFont.rasterize("/fonts/vcr.ttf", 16, true);
+        m_Vertices = MemoryUtil.memAllocFloat(TEXT.length() * SpriteBatch.QUAD_FLOATS);
+
+        m_GlyphMap = new HashMap<>();
+        for(int i = 0; i < TEXT.length(); i++) {
+            final Glyph glyph = m_Font.getGlyph(TEXT.charAt(i));
+            m_GlyphMap.put(TEXT.charAt(i), glyph);
+
+            if(glyph.width > 0 && glyph.u1 != glyph.u0) {
+                m_SheetWidth = glyph.width / Math.abs(glyph.u1 - glyph.u0);
+                m_SheetHeight = glyph.height / Math.abs(glyph.v1 - glyph.v0);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        m_Font.dispose();
+        MemoryUtil.memFree(m_Vertices);
+    }
+
+    @Benchmark
+    public int getWidth() {
+        return m_Font.getWidth(TEXT);
+    }
+
+    @Benchmark
+    public int getHeight() {
+        return m_Font.getHeight(MULTILINE);
+    }
+
+    /**
+     * The same glyph lookup and quad writing {@link RenderFont#drawText} does for every character.
+     */
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public FloatBuffer layoutGlyphs() {
+        FloatBuffer vertices = m_Vertices;
+        vertices.clear();
+
+        float x = 0.0f;
+        for(int i = 0; i < TEXT.length(); i++) {
+            Glyph glyph = m_Font.getGlyph(TEXT.charAt(i));
+            SpriteBatch.putQuad(vertices, x, 0.0f, 0.0f, 1.0f, 1.0f, glyph.u0, glyph.v0, glyph.u1, glyph.v1, 1.0f, 1.0f, 1.0f);
+            x += glyph.width * 0.25f;
+        }
+
+        return vertices;
+    }
+
+    /**
+     * The baseline: what drawText did per character before glyphs were streamed into the batch.<br>
+     * A boxed Map lookup, a new Sprite with its tint, position and size, UVs worked out from the glyph's pixels, and a
+     * vertex and index array for the Sprite's Mesh. The old path also created and deleted that Mesh's buffers on the GPU
+     * for every glyph, which needs a context and is left out, so the real gap was larger still.
+     */
+    @Benchmark
+    @OperationsPerInvocation(100)
+    public FloatBuffer layoutGlyphsPerSprite(Blackhole blackhole) {
+        FloatBuffer vertices = m_Vertices;
+        vertices.clear();
+
+        float x = 0.0f;
+        for(int i = 0; i < TEXT.length(); i++) {
+            Glyph glyph = m_GlyphMap.get(TEXT.charAt(i));
+
+            final Vector3f color = new Vector3f(1.0f);
+            final Vector3f position = new Vector3f(x, 0.0f, 0.0f);
+            final Vector2f size = new Vector2f(1.0f);
+
+            Vector2f topLeft = new Vector2f(), topRight = new Vector2f();
+            Vector2f botLeft = new Vector2f(), botRight = new Vector2f();
+            topLeft.set(glyph.x / m_SheetWidth, (glyph.y + glyph.height) / m_SheetHeight);
+            topRight.set((glyph.x + glyph.width) / m_SheetWidth, (glyph.y + glyph.height) / m_SheetHeight);
+            botLeft.set(glyph.x / m_SheetWidth, glyph.y / m_SheetHeight);
+            botRight.set((glyph.x + glyph.width) / m_SheetWidth, glyph.y / m_SheetHeight);
+
+            float[] quad = { // x, y, z, r, g, b, u, v
+                    position.x - size.x, position.y - size.y, position.z, color.x, color.y, color.z, botLeft.x,  botLeft.y,
+                    position.x - size.x, position.y + size.y, position.z, color.x, color.y, color.z, topLeft.x,  topLeft.y,
+                    position.x + size.x, position.y + size.y, position.z, color.x, color.y, color.z, topRight.x, topRight.y,
+                    position.x + size.x, position.y - size.y, position.z, color.x, color.y, color.z, botRight.x, botRight.y,
+            };
+            int[] indices = { 0, 1, 2, 2, 3, 0 };
+
+            // The Mesh kept both arrays, so they must not be optimized away.
+            blackhole.consume(quad);
+            blackhole.consume(indices);
+
+            vertices.put(quad);
+            x += glyph.width * 0.25f;
+        }
+
+        return vertices;
+    }
+
+}
@@ -0,0 +1,61 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.screen.Screen;
+import git.arcane.core.screen.ScreenManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link ScreenManager} adds to every update and render, and switching Screens.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ScreenManagerBenchmark {
+
+    private static class CountingScreen implements Screen {
+        public long updates, renders;
+
+        @Override public void show() {}
+        @Override public void hide() {}
+        @Override public void dispose() {}
+
+        @Override
+        public void update(double dt) {
+            updates++;
+        }
+
+        @Override
+        public void render(double alpha) {
+            renders++;
+        }
+    }
+
+    private ScreenManager m_Screens;
+    private boolean m_First;
+
+    @Setup
+    public void setup() {
+        m_Screens = new ScreenManager();
+        m_Screens.addScreen("first", new CountingScreen());
+        m_Screens.addScreen("second", new CountingScreen());
+    }
+
+    @Benchmark
+    public void updateAndRender() {
+        m_Screens.update(1.0 / 30.0);
+        m_Screens.render(0.5);
+    }
+
+    @Benchmark
+    public Screen setActive() {
+        m_First = !m_First;
+        m_Screens.setActive(m_First ? "first" : "second");
+        return m_Screens.getActive();
+    }
+
+}
@@ -0,0 +1,69 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.spatial.SpatialGrid;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures culling 100k objects against a view that sees about 1% of them, and moving them around.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpatialGridBenchmark {
+
+    private static final int OBJECTS = 100_000;
+    private static final float WORLD = 2000.0f, VIEW = WORLD * 0.1f, HALF_SIZE = 1.0f;
+
+    private SpatialGrid<Integer> m_Grid;
+    private float[] m_Positions;
+    private int[] m_Ids;
+    private int m_Next;
+
+    private Blackhole m_Blackhole;
+    private SpatialGrid.Visitor<Integer> m_Visitor;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        m_Grid = new SpatialGrid<>();
+        m_Positions = new float[OBJECTS * 2];
+        m_Ids = new int[OBJECTS];
+
+        final Random random = new Random(1337L);
+        for(int i = 0; i < OBJECTS; i++) {
+            float x = random.nextFloat() * WORLD, y = random.nextFloat() * WORLD;
+            m_Positions[i * 2] = x;
+            m_Positions[i * 2 + 1] = y;
+            m_Ids[i] = m_Grid.add(i, x - HALF_SIZE, y - HALF_SIZE, x + HALF_SIZE, y + HALF_SIZE);
+        }
+
+        m_Blackhole = blackhole;
+        m_Visitor = object -> m_Blackhole.consume(object);
+    }
+
+    /**
+     * A view covering 1% of the world, so about 1000 of the objects.
+     */
+    @Benchmark
+    public int queryVisible() {
+        float x = (m_Next++ & 7) * VIEW;
+        return m_Grid.query(x, x, x + VIEW, x + VIEW, m_Visitor);
+    }
+
+    /**
+     * A small move, which mostly stays within the same cells.
+     */
+    @Benchmark
+    public void update() {
+        int i = m_Next++ % OBJECTS;
+        float x = m_Positions[i * 2] += 0.1f, y = m_Positions[i * 2 + 1];
+        m_Grid.update(m_Ids[i], x - HALF_SIZE, y - HALF_SIZE, x + HALF_SIZE, y + HALF_SIZE);
+    }
+
+}
@@ -0,0 +1,63 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.graphics.rendering.RegionCache;
+import git.arcane.core.graphics.rendering.SpriteRegion;
+import git.arcane.core.graphics.rendering.SpriteSheet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how fast a {@link SpriteSheet} turns pixel areas into UVs, with and without the {@link RegionCache}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteSheetBenchmark {
+
+    private static final int TILE = 16, TILES_PER_ROW = 16;
+
+    private SpriteSheet m_Sheet;
+    private SpriteRegion m_Held;
+    private final float[] m_UVs = new float[4];
+    private int m_Index;
+
+    @Setup
+    public void setup() {
+        // Same layout as an atlas region: a 256x256 sheet somewhere inside a 1024x1024 page.
+        m_Sheet = new SpriteSheet(null, 128, 64, TILE * TILES_PER_ROW, TILE * TILES_PER_ROW, 1024, 1024);
+
+        // Keep one region alive so the cache lookups below are hits.
+        m_Held = m_Sheet.getRegion(TILE, TILE, TILE, TILE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        RegionCache.release(m_Held);
+    }
+
+    @Benchmark
+    public float[] computeUVs() {
+        int index = m_Index++ & (TILES_PER_ROW * TILES_PER_ROW - 1);
+        m_Sheet.computeUVs((index % TILES_PER_ROW) * TILE, (index / TILES_PER_ROW) * TILE, TILE, TILE, m_UVs);
+        return m_UVs;
+    }
+
+    @Benchmark
+    public float[] computeUVsWholeSheet() {
+        m_Sheet.computeUVs(0, 0, TILE * TILES_PER_ROW, TILE * TILES_PER_ROW, m_UVs);
+        return m_UVs;
+    }
+
+    @Benchmark
+    public void cachedRegion(Blackhole blackhole) {
+        SpriteRegion region = m_Sheet.getRegion(TILE, TILE, TILE, TILE);
+        blackhole.consume(region);
+        RegionCache.release(region);
+    }
+
+}
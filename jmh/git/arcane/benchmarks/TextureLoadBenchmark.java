@@ -0,0 +1,129 @@
+package git.arcane.benchmarks;
+
+import git.arcane.core.assets.TextureBaker;
+import git.arcane.core.graphics.BakedTexture;
+import git.arcane.core.graphics.Pixmap;
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryUtil;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.lwjgl.stb.STBImageWrite.stbi_write_png;
+
+/**
+ * Measures the CPU side of loading a texture from a PNG against loading it from a {@link BakedTexture}.<br>
+ * The PNG path decodes the image. The baked path maps the file and reads every level. Both then copy their pixels
+ * once, which stands in for the copy glTexImage2D makes. Throughput is reported as <i>megabytes</i>, MB of the
+ * full size image loaded per second, so both paths are measured against the same amount of texture.
+ * The PNG path still leaves glGenerateMipmap to the driver on top of this.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TextureLoadBenchmark {
+
+    /**
+     * Counts the megabytes loaded, JMH reports them per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Loaded {
+        public double megabytes;
+    }
+
+    // tiles.png from our assets, and a larger generated texture.
+    @Param({ "tiles", "generated" })
+    public String texture;
+
+    private static final int GENERATED_SIZE = 1024;
+
+    private Path m_Directory, m_Baked;
+    private ByteBuffer m_Png, m_Upload;
+    private double m_Megabytes;
+
+    @Setup
+    public void setup() throws IOException {
+        m_Directory = Files.createTempDirectory("baked-textures");
+
+        Path png = Path.of("textures/tiles.png");
+        if(texture.equals("generated"))
+            png = writeGeneratedPng(m_Directory.resolve("generated.png"));
+
+        final byte[] data = Files.readAllBytes(png);
+        m_Png = BufferUtils.createByteBuffer(data.length);
+        m_Png.put(0, data);
+
+        m_Baked = m_Directory.resolve(texture + BakedTexture.EXTENSION);
+        final long bytes = TextureBaker.bake(png, m_Baked);
+        m_Upload = MemoryUtil.memAlloc((int) bytes);
+
+        final Pixmap pixmap = Pixmap.decode(m_Png, 4, texture);
+        m_Megabytes = (double) pixmap.getWidth() * pixmap.getHeight() * 4 / (1024.0 * 1024.0);
+        pixmap.free();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        MemoryUtil.memFree(m_Upload);
+        try(Stream<Path> files = Files.walk(m_Directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void png(Loaded loaded) throws IOException {
+        final Pixmap pixmap = Pixmap.decode(m_Png, 4, texture);
+        MemoryUtil.memCopy(pixmap.getPixels(), m_Upload);
+        pixmap.free();
+
+        loaded.megabytes += m_Megabytes;
+    }
+
+    @Benchmark
+    public void baked(Loaded loaded) throws IOException {
+        final BakedTexture baked = BakedTexture.map(m_Baked);
+
+        long offset = 0L;
+        for(int i = 0; i < baked.getLevelCount(); i++) {
+            final ByteBuffer level = baked.getPixels(i);
+            MemoryUtil.memCopy(MemoryUtil.memAddress(level), MemoryUtil.memAddress(m_Upload) + offset, level.remaining());
+            offset += level.remaining();
+        }
+        baked.release();
+
+        loaded.megabytes += m_Megabytes;
+    }
+
+    /**
+     * Writes a smooth gradient with some noise, which compresses about as well as real art.
+     */
+    private static Path writeGeneratedPng(Path path) throws IOException {
+        final ByteBuffer pixels = MemoryUtil.memAlloc(GENERATED_SIZE * GENERATED_SIZE * 4);
+        int seed = 1337;
+        for(int y = 0; y < GENERATED_SIZE; y++) {
+            for(int x = 0; x < GENERATED_SIZE; x++) {
+                seed = seed * 1103515245 + 12345;
+                final int noise = (seed >>> 16) & 0x0F;
+                pixels.put((byte) (x / 4 + noise)).put((byte) (y / 4 + noise)).put((byte) ((x + y) / 8)).put((byte) 0xFF);
+            }
+        }
+        pixels.flip();
+
+        final boolean written = stbi_write_png(path.toString(), GENERATED_SIZE, GENERATED_SIZE, 4, pixels, GENERATED_SIZE * 4);
+        MemoryUtil.memFree(pixels);
+        if(!written)
+            throw new IOException("Failed to write " + path);
+        return path;
+    }
+
+}
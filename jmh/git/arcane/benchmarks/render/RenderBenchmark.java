@@ -0,0 +1,279 @@
+package git.arcane.benchmarks.render;
+
+import git.arcane.core.GameSettings;
+import git.arcane.core.LWJGLProject;
+import git.arcane.core.graphics.StreamBuffer;
+import git.arcane.core.graphics.rendering.RenderThread;
+import git.arcane.core.util.Log;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders a {@link StressScene} in a headless window and reports frame time percentiles.<br>
+ * Arguments are <i>key=value</i> pairs, see {@link Options}. The process exits with 1 when a frame time limit
+ * (maxP50, maxP95, ...) is exceeded, or when a percentile is worse than the baseline by more than the tolerance.
+ * Without a GPU, run it with Mesa's llvmpipe, e.g. <i>LIBGL_ALWAYS_SOFTWARE=1</i>.
+ */
+public class RenderBenchmark {
+
+    private static final String[] PERCENTILES = { "p50", "p90", "p95", "p99" };
+
+    /**
+     * Everything the runner can be configured with.
+     */
+    public static class Options {
+        public int frames = 600, warmup = 120;
+        public int sprites = 10_000, text = 40, tiles = 256;
+        public int width = 1280, height = 720;
+
+        public boolean finish = true, threaded = false;
+        public int buffers = 2;
+        public StressScene.SpritePath path = StressScene.SpritePath.BATCH;
+        public GameSettings.HeadlessBackend backend = GameSettings.HeadlessBackend.OSMESA;
+
+        // How the batches stream their data, null picks the best the context supports.
+        public StreamBuffer.Mode stream = null;
+
+        // Limits in milliseconds, 0 means unchecked.
+        public double maxMean, maxP50, maxP95, maxP99;
+
+        public String baseline = null, out = "render-results.json";
+        public double tolerance = 0.10;
+    }
+
+    private static LWJGLProject ms_Project;
+
+    private final Options m_Options;
+    private final long[] m_Samples;
+    private StressScene m_Scene;
+    private long m_LastFrame;
+    private int m_Frame;
+
+    public RenderBenchmark(Options options) {
+        m_Options = options;
+        m_Samples = new long[options.frames];
+        m_Frame = -1;
+    }
+
+    public static void main(String[] args) {
+        final Options options = parseOptions(args);
+        final RenderBenchmark benchmark = new RenderBenchmark(options);
+
+        final GameSettings settings = new GameSettings();
+        settings.GameName = "Render Benchmark";
+        settings.WinWidth = options.width;
+        settings.WinHeight = options.height;
+
+        settings.Headless = true;
+        settings.HeadlessMode = options.backend;
+        settings.EnableVSync = false;
+        settings.TargetFPS = 0.0;
+        settings.EnableProfiler = false;
+        settings.ThreadedRendering = options.threaded;
+        settings.RenderBuffers = options.buffers;
+
+        Log.CORE.info("Rendering {} frames ({} warmup) of {} sprites ({} path), {} text lines and {}x{} tiles",
+                options.frames, options.warmup, options.sprites, options.path, options.text, options.tiles, options.tiles);
+
+        benchmark.m_Scene = new StressScene(options, benchmark::onFrame);
+        ms_Project = new LWJGLProject(benchmark.m_Scene, settings);
+        ms_Project.start();
+    }
+
+    private void onFrame(long now) {
+        // Every sample is the time from the start of one frame to the start of the next.
+        if(m_Frame >= m_Options.warmup)
+            m_Samples[m_Frame - m_Options.warmup] = now - m_LastFrame;
+
+        m_LastFrame = now;
+        m_Frame++;
+
+        if(m_Frame - m_Options.warmup == m_Options.frames)
+            ms_Project.requestStop(report() ? 0 : 1);
+    }
+
+    /**
+     * Prints and writes the results, then checks them against our limits and baseline.
+     * @return true if nothing regressed.
+     */
+    private boolean report() {
+        final long[] sorted = m_Samples.clone();
+        Arrays.sort(sorted);
+
+        final double[] results = new double[PERCENTILES.length];
+        results[0] = percentile(sorted, 0.50);
+        results[1] = percentile(sorted, 0.90);
+        results[2] = percentile(sorted, 0.95);
+        results[3] = percentile(sorted, 0.99);
+
+        double mean = 0.0;
+        for(long sample : sorted)
+            mean += sample / 1_000_000.0;
+        mean /= sorted.length;
+        final double max = sorted[sorted.length - 1] / 1_000_000.0;
+
+        final StreamBuffer stream = m_Scene.getStream();
+        if(stream != null)
+            Log.CORE.info("Streamed {}KB per frame using {}, waited on {} fences for {}ms", stream.getBytesStreamed() / 1024 / Math.max(1, m_Frame),
+                    stream.getMode(), stream.getFenceWaits(), ms(stream.getFenceWaitNanos() / 1_000_000.0));
+
+        final RenderThread renderThread = RenderThread.get();
+        if(renderThread != null)
+            renderThread.logStats();
+
+        Log.CORE.info("Frame times over {} frames: mean {}ms, p50 {}ms, p90 {}ms, p95 {}ms, p99 {}ms, max {}ms",
+                sorted.length, ms(mean), ms(results[0]), ms(results[1]), ms(results[2]), ms(results[3]), ms(max));
+
+        writeResults(mean, results, max);
+
+        boolean passed = check("mean", mean, m_Options.maxMean);
+        passed &= check("p50", results[0], m_Options.maxP50);
+        passed &= check("p95", results[2], m_Options.maxP95);
+        passed &= check("p99", results[3], m_Options.maxP99);
+
+        if(m_Options.baseline != null)
+            passed &= checkBaseline(results);
+
+        if(!passed)
+            Log.CORE.error("The render benchmark regressed!");
+        return passed;
+    }
+
+    private boolean check(String name, double value, double limit) {
+        if(limit <= 0.0 || value <= limit)
+            return true;
+
+        Log.CORE.error("{} frame time is {}ms, the limit is {}ms", name, ms(value), ms(limit));
+        return false;
+    }
+
+    private boolean checkBaseline(double[] results) {
+        final String baseline;
+        try {
+            baseline = Files.readString(Path.of(m_Options.baseline));
+        } catch (IOException e) {
+            Log.CORE.error("Failed to read the baseline [{}]:\n{}", m_Options.baseline, e.getMessage());
+            return false;
+        }
+
+        boolean passed = true;
+        for(int i = 0; i < PERCENTILES.length; i++) {
+            final Matcher matcher = Pattern.compile("\"" + PERCENTILES[i] + "\"\\s*:\\s*([0-9.eE+-]+)").matcher(baseline);
+            if(!matcher.find())
+                continue;
+
+            final double limit = Double.parseDouble(matcher.group(1)) * (1.0 + m_Options.tolerance);
+            if(results[i] > limit) {
+                Log.CORE.error("{} frame time is {}ms, more than {}% over the baseline's {}ms", PERCENTILES[i],
+                        ms(results[i]), Math.round(m_Options.tolerance * 100.0), matcher.group(1));
+                passed = false;
+            }
+        }
+
+        return passed;
+    }
+
+    private void writeResults(double mean, double[] results, double max) {
+        final StringBuilder json = new StringBuilder("{\n");
+        json.append("  \"frames\": ").append(m_Samples.length).append(",\n");
+        json.append("  \"path\": \"").append(m_Options.path.name().toLowerCase(Locale.ROOT)).append("\",\n");
+        json.append("  \"sprites\": ").append(m_Options.sprites).append(",\n");
+        json.append("  \"text\": ").append(m_Options.text).append(",\n");
+        json.append("  \"tiles\": ").append(m_Options.tiles).append(",\n");
+
+        final StreamBuffer stream = m_Scene.getStream();
+        if(stream != null) {
+            json.append("  \"stream\": \"").append(stream.getMode().name().toLowerCase(Locale.ROOT)).append("\",\n");
+            json.append("  \"streamedBytesPerFrame\": ").append(stream.getBytesStreamed() / Math.max(1, m_Frame)).append(",\n");
+            json.append("  \"fenceWaits\": ").append(stream.getFenceWaits()).append(",\n");
+        }
+
+        final RenderThread renderThread = RenderThread.get();
+        if(renderThread != null) {
+            json.append("  \"buffers\": ").append(renderThread.getBufferCount()).append(",\n");
+            json.append("  \"latency\": ").append(ms(renderThread.getLatencyMs())).append(",\n");
+            json.append("  \"queueDepth\": ").append(ms(renderThread.getQueueDepth())).append(",\n");
+            json.append("  \"overlap\": ").append(ms(renderThread.getOverlap())).append(",\n");
+        }
+
+        json.append("  \"mean\": ").append(ms(mean)).append(",\n");
+        for(int i = 0; i < PERCENTILES.length; i++)
+            json.append("  \"").append(PERCENTILES[i]).append("\": ").append(ms(results[i])).append(",\n");
+        json.append("  \"max\": ").append(ms(max)).append("\n}\n");
+
+        try {
+            final Path path = Path.of(m_Options.out);
+            if(path.getParent() != null)
+                Files.createDirectories(path.getParent());
+            Files.writeString(path, json);
+            Log.CORE.info("Wrote the results to [{}]", path.toAbsolutePath().normalize());
+        } catch (IOException e) {
+            Log.CORE.error("Failed to write the results to [{}]:\n{}", m_Options.out, e.getMessage());
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1_000_000.0;
+    }
+
+    private static String ms(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static Options parseOptions(String[] args) {
+        final Options options = new Options();
+
+        for(String arg : args) {
+            final int split = arg.indexOf('=');
+            if(split < 0) {
+                Log.CORE.warn("Ignoring argument [{}], expected key=value", arg);
+                continue;
+            }
+
+            final String key = arg.substring(0, split), value = arg.substring(split + 1);
+            try {
+                switch(key) {
+                    case "frames" -> options.frames = Integer.parseInt(value);
+                    case "warmup" -> options.warmup = Integer.parseInt(value);
+                    case "sprites" -> options.sprites = Integer.parseInt(value);
+                    case "text" -> options.text = Integer.parseInt(value);
+                    case "tiles" -> options.tiles = Integer.parseInt(value);
+                    case "width" -> options.width = Integer.parseInt(value);
+                    case "height" -> options.height = Integer.parseInt(value);
+                    case "finish" -> options.finish = Boolean.parseBoolean(value);
+                    case "threaded" -> options.threaded = Boolean.parseBoolean(value);
+                    case "buffers" -> options.buffers = Integer.parseInt(value);
+                    case "path" -> options.path = StressScene.SpritePath.valueOf(value.toUpperCase(Locale.ROOT));
+                    case "backend" -> options.backend = GameSettings.HeadlessBackend.valueOf(value.toUpperCase(Locale.ROOT));
+                    case "stream" -> options.stream = StreamBuffer.Mode.valueOf(value.toUpperCase(Locale.ROOT));
+                    case "maxMean" -> options.maxMean = Double.parseDouble(value);
+                    case "maxP50" -> options.maxP50 = Double.parseDouble(value);
+                    case "maxP95" -> options.maxP95 = Double.parseDouble(value);
+                    case "maxP99" -> options.maxP99 = Double.parseDouble(value);
+                    case "baseline" -> options.baseline = value;
+                    case "tolerance" -> options.tolerance = Double.parseDouble(value);
+                    case "out" -> options.out = value;
+                    default -> Log.CORE.warn("Ignoring unknown argument [{}]", key);
+                }
+            } catch (IllegalArgumentException e) {
+                Log.CORE.error("Invalid value [{}] for [{}]", value, key);
+                System.exit(-1);
+            }
+        }
+
+        if(options.frames <= 0) {
+            Log.CORE.error("The benchmark needs at least one frame!");
+            System.exit(-1);
+        }
+
+        return options;
+    }
+
+}
@@ -0,0 +1,223 @@
+package git.arcane.benchmarks.render;
+
+import git.arcane.core.IGame;
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.Mesh;
+import git.arcane.core.graphics.Shaders;
+import git.arcane.core.graphics.StreamBuffer;
+import git.arcane.core.graphics.TextureAtlas;
+import git.arcane.core.graphics.cameras.OrthoCamera;
+import git.arcane.core.graphics.rendering.InstancedBatch;
+import git.arcane.core.graphics.rendering.RegionCache;
+import git.arcane.core.graphics.rendering.RenderCommands;
+import git.arcane.core.graphics.rendering.Renderer;
+import git.arcane.core.graphics.rendering.Sprite;
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import git.arcane.core.graphics.rendering.SpriteSheet;
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import git.arcane.core.spatial.SpatialGrid;
+import git.arcane.core.util.Log;
+import git.arcane.game.levels.Level;
+import git.arcane.game.levels.tiles.Tile;
+import org.joml.Vector3f;
+
+import java.io.IOException;
+import java.util.Random;
+
+import static org.lwjgl.opengl.GL11.glFinish;
+
+/**
+ * A scene made to stress the renderer: a tile Level, thousands of moving Sprites and lines of text.<br>
+ * The Sprites can be drawn through any of our paths (see {@link SpritePath}) so they can be compared.
+ * Every rendered frame is reported to a {@link FrameListener}.
+ */
+public class StressScene implements IGame {
+
+    private static final int TILE_TYPES = 4;
+
+    /**
+     * How the Sprites are drawn.<br>
+     * MESH draws every Sprite with its own {@link Renderer#renderMesh} call (sampling the whole page, it only
+     * measures the per-draw cost), BATCH streams them through a {@link SpriteBatch} and INSTANCED draws them
+     * with one instanced call through an {@link InstancedBatch}.
+     */
+    public enum SpritePath {
+        MESH, BATCH, INSTANCED
+    }
+
+    /**
+     * Called at the start of every frame the scene renders.
+     */
+    @FunctionalInterface
+    public interface FrameListener {
+        void onFrame(long now);
+    }
+
+    private final RenderBenchmark.Options m_Options;
+    private final FrameListener m_Listener;
+
+    private TextureAtlas m_Atlas;
+    private Renderer m_Renderer;
+    private SpriteBatch m_Batch;
+    private InstancedBatch m_Instanced;
+    private Mesh m_Quad;
+    private OrthoCamera m_Camera;
+    private RenderFont m_Font;
+    private Level m_Level;
+
+    private Sprite[] m_Sprites;
+    private float[] m_Velocities;
+    private SpatialGrid<Sprite> m_Grid;
+    private String[] m_Lines;
+
+    private final SpatialGrid.Visitor<Sprite> m_MeshVisitor =
+            sprite -> m_Renderer.renderMesh(sprite.getPosition(), sprite.getSize(), m_Quad, sprite.getTexture());
+    private final Runnable m_Finish = () -> glFinish();
+
+    public StressScene(RenderBenchmark.Options options, FrameListener listener) {
+        m_Options = options;
+        m_Listener = listener;
+    }
+
+    @Override
+    public void initialize() {
+        GLState.setDepthTest(true);
+
+        final Shaders shaders = new Shaders("/shaders/scene.vert", "/shaders/scene.frag");
+        m_Camera = new OrthoCamera(16, 9);
+        m_Camera.setZoom(0.2f);
+
+        m_Renderer = new Renderer(shaders, m_Camera);
+        final StreamBuffer.Mode stream = m_Options.stream != null ? m_Options.stream : StreamBuffer.getBestMode();
+        m_Batch = new SpriteBatch(shaders, m_Camera, SpriteBatch.DEFAULT_MAX_QUADS, stream);
+
+        if(m_Options.path == SpritePath.INSTANCED)
+            m_Instanced = new InstancedBatch(new Shaders("/shaders/instanced.vert", "/shaders/scene.frag"), m_Camera,
+                    InstancedBatch.DEFAULT_MAX_INSTANCES, stream);
+        else if(m_Options.path == SpritePath.MESH)
+            m_Quad = Mesh.CreateMesh();
+
+        m_Atlas = new TextureAtlas();
+        final TextureAtlas.Region tiles = m_Atlas.add("tiles", "/textures/tiles.png");
+        try {
+            m_Font = RenderFont.rasterize("/fonts/vcr.ttf", 16, true);
+        } catch (IOException e) {
+            Log.CORE.error("Failed to load the benchmark font:\n{}", e.getMessage());
+            System.exit(-1);
+        }
+        m_Font.addToAtlas(m_Atlas);
+        m_Atlas.pack();
+
+        final SpriteSheet sheet = new SpriteSheet(tiles);
+        final Random random = new Random(1337L);
+
+        m_Level = new Level(m_Options.tiles, m_Options.tiles, 2.0f, Level.DEFAULT_DEPTH);
+        for(int i = 0; i < TILE_TYPES; i++)
+            m_Level.registerTile(new Tile(i + 1, sheet.getRegion(i * 16, 16, 16, 16)));
+        for(int y = 0; y < m_Level.getHeight(); y++) {
+            for(int x = 0; x < m_Level.getWidth(); x++)
+                m_Level.setTile(x, y, 1 + random.nextInt(TILE_TYPES));
+        }
+
+        // Sprites are spread over what the camera sees, so all of them get drawn every frame.
+        m_Camera.update();
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+
+        m_Grid = new SpatialGrid<>();
+        m_Sprites = new Sprite[m_Options.sprites];
+        m_Velocities = new float[m_Options.sprites * 2];
+        for(int i = 0; i < m_Sprites.length; i++) {
+            final Sprite sprite = sheet.getSprite(new Vector3f(1.0f), (i % TILE_TYPES) * 16, 0, 16, 16);
+            sprite.setPosition(min.x + random.nextFloat() * (max.x - min.x), min.y + random.nextFloat() * (max.y - min.y));
+            sprite.setSpatialGrid(m_Grid);
+
+            m_Sprites[i] = sprite;
+            m_Velocities[i * 2] = random.nextFloat() * 2.0f - 1.0f;
+            m_Velocities[i * 2 + 1] = random.nextFloat() * 2.0f - 1.0f;
+        }
+
+        m_Lines = new String[m_Options.text];
+        for(int i = 0; i < m_Lines.length; i++)
+            m_Lines[i] = "Line " + i + ": The quick brown fox jumps over the lazy dog 0123456789";
+    }
+
+    /**
+     * @return the stream the sprites go through, or null for the MESH path.
+     */
+    public StreamBuffer getStream() {
+        if(m_Instanced != null)
+            return m_Instanced.getStream();
+        return m_Batch != null && m_Options.path == SpritePath.BATCH ? m_Batch.getStream() : null;
+    }
+
+    @Override
+    public void dispose() {
+        for(Sprite sprite : m_Sprites)
+            sprite.dispose();
+        m_Level.dispose();
+        RegionCache.logStats();
+
+        m_Font.dispose();
+        m_Atlas.dispose();
+        m_Batch.dispose();
+        m_Renderer.dispose();
+
+        if(m_Instanced != null)
+            m_Instanced.dispose();
+        if(m_Quad != null)
+            m_Quad.dispose();
+        m_Camera.dispose();
+    }
+
+    @Override
+    public void update(double dt) {
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+        final float step = (float) dt * 10.0f;
+
+        for(int i = 0; i < m_Sprites.length; i++) {
+            final Sprite sprite = m_Sprites[i];
+            final Vector3f position = sprite.getPosition();
+
+            float x = position.x + m_Velocities[i * 2] * step;
+            float y = position.y + m_Velocities[i * 2 + 1] * step;
+            if(x < min.x || x > max.x) m_Velocities[i * 2] = -m_Velocities[i * 2];
+            if(y < min.y || y > max.y) m_Velocities[i * 2 + 1] = -m_Velocities[i * 2 + 1];
+
+            sprite.setPosition(x, y);
+        }
+    }
+
+    @Override
+    public void render(double alpha) {
+        m_Listener.onFrame(System.nanoTime());
+
+        m_Level.render(m_Renderer, m_Camera);
+
+        switch(m_Options.path) {
+            case MESH -> m_Grid.query(m_Camera.getVisibleMin().x, m_Camera.getVisibleMin().y,
+                    m_Camera.getVisibleMax().x, m_Camera.getVisibleMax().y, m_MeshVisitor);
+            case INSTANCED -> {
+                m_Instanced.begin();
+                m_Instanced.drawVisible(m_Grid);
+                m_Instanced.end();
+            }
+        }
+
+        m_Batch.begin();
+        if(m_Options.path == SpritePath.BATCH)
+            m_Batch.drawVisible(m_Grid);
+
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+        for(int i = 0; i < m_Lines.length; i++)
+            m_Font.drawText(m_Batch, m_Lines[i], min.x + 2.0f, max.y - 2.0f - (i % 20) * 2.5f, 0.25f);
+        m_Batch.end();
+
+        // Wait for the GPU so the frame times include the work we queued, not just the CPU side.
+        if(m_Options.finish) {
+            final RenderCommands commands = RenderCommands.getRecording();
+            if(commands != null) commands.task(m_Finish);
+            else glFinish();
+        }
+    }
+
+}
@@ -0,0 +1,232 @@
+package git.arcane.core;
+
+import git.arcane.core.util.Log;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Decides when our Game updates and renders.<br>
+ * Updates always advance the Game by the same fixed step. If a frame took too long we run several of them to
+ * catch up, but never more than a set amount, so one slow frame can't snowball into every frame being slow.
+ * Frames are limited to the target rate by sleeping for most of the wait and spinning for the rest.
+ */
+public class FrameScheduler {
+    private static FrameScheduler ms_Instance = null;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    // Sleeping is only accurate to a millisecond or two, so we spin for the last part of the wait.
+    private static final long SPIN_THRESHOLD = 2_000_000L;
+
+    private static class SchedulerData {
+        public long StepNanos, FrameNanos;
+        public int MaxUpdatesPerFrame;
+
+        public long LastTime, NextFrame;
+        public long Accumulator;
+        public int UpdatesThisFrame;
+    }
+
+    private static class SchedulerStats {
+        public double UPS, FPS;
+        public double FrameTimeMs, JitterMs;
+        public long DroppedUpdates;
+
+        // Running totals for the current one second window.
+        public long WindowStart;
+        public int WindowUpdates, WindowFrames;
+        public double FrameTimeSum, FrameTimeSquaredSum;
+    }
+
+    private final SchedulerData m_Data;
+    private final SchedulerStats m_Stats;
+
+    public FrameScheduler(GameSettings settings) {
+        this(settings.TargetUPS, settings.TargetFPS, settings.MaxUpdatesPerFrame);
+    }
+
+    /**
+     * Creates a scheduler.
+     * @param updatesPerSecond how often we update the Game.
+     * @param framesPerSecond how often we render at most, or 0 to not limit rendering.
+     * @param maxUpdatesPerFrame the most updates we run in a single frame to catch up.
+     */
+    public FrameScheduler(double updatesPerSecond, double framesPerSecond, int maxUpdatesPerFrame) {
+        if(updatesPerSecond <= 0.0) {
+            Log.CORE.error("The update rate must be positive, got {}!", updatesPerSecond);
+            throw new IllegalArgumentException("Invalid update rate: " + updatesPerSecond);
+        }
+
+        m_Data = new SchedulerData();
+        m_Data.StepNanos = (long) (NANOS_PER_SECOND / updatesPerSecond);
+        m_Data.FrameNanos = framesPerSecond > 0.0 ? (long) (NANOS_PER_SECOND / framesPerSecond) : 0L;
+        m_Data.MaxUpdatesPerFrame = Math.max(1, maxUpdatesPerFrame);
+
+        m_Stats = new SchedulerStats();
+        reset();
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Starts timing from now, forgetting any time we still owed to updates.
+     */
+    public void reset() {
+        long now = System.nanoTime();
+        m_Data.LastTime = now;
+        m_Data.NextFrame = now;
+        m_Data.Accumulator = 0L;
+        m_Data.UpdatesThisFrame = 0;
+
+        m_Stats.WindowStart = now;
+        m_Stats.WindowUpdates = 0;
+        m_Stats.WindowFrames = 0;
+        m_Stats.FrameTimeSum = 0.0;
+        m_Stats.FrameTimeSquaredSum = 0.0;
+    }
+
+    /**
+     * Adds the time since the last frame to what we owe our updates. Call this once at the start of every frame.
+     */
+    public void beginFrame() {
+        long now = System.nanoTime();
+        long elapsed = now - m_Data.LastTime;
+        m_Data.LastTime = now;
+
+        m_Data.Accumulator += elapsed;
+        m_Data.UpdatesThisFrame = 0;
+
+        double frameMs = elapsed / 1_000_000.0;
+        m_Stats.WindowFrames++;
+        m_Stats.FrameTimeSum += frameMs;
+        m_Stats.FrameTimeSquaredSum += frameMs * frameMs;
+
+        if(now - m_Stats.WindowStart >= NANOS_PER_SECOND)
+            publishStats(now);
+    }
+
+    /**
+     * Consumes one step of the time we owe. Loop on this to run all the updates the frame needs.
+     * @return true if the Game should update once more.
+     */
+    public boolean shouldUpdate() {
+        if(m_Data.Accumulator < m_Data.StepNanos)
+            return false;
+
+        if(m_Data.UpdatesThisFrame >= m_Data.MaxUpdatesPerFrame) {
+            // We've fallen too far behind to ever catch up, so let go of the whole steps we owe.
+            long dropped = m_Data.Accumulator / m_Data.StepNanos;
+            m_Data.Accumulator -= dropped * m_Data.StepNanos;
+            m_Stats.DroppedUpdates += dropped;
+            return false;
+        }
+
+        m_Data.Accumulator -= m_Data.StepNanos;
+        m_Data.UpdatesThisFrame++;
+        m_Stats.WindowUpdates++;
+        return true;
+    }
+
+    /**
+     * Waits until it is time for the next frame. Does nothing if rendering isn't limited.
+     */
+    public void endFrame() {
+        if(m_Data.FrameNanos <= 0L)
+            return;
+
+        m_Data.NextFrame += m_Data.FrameNanos;
+
+        long now = System.nanoTime();
+        if(now - m_Data.NextFrame > m_Data.FrameNanos) {
+            // We're more than a frame late, start counting from now instead of rushing frames out to catch up.
+            m_Data.NextFrame = now;
+            return;
+        }
+
+        long remaining;
+        while((remaining = m_Data.NextFrame - System.nanoTime()) > SPIN_THRESHOLD)
+            LockSupport.parkNanos(remaining - SPIN_THRESHOLD);
+
+        while(m_Data.NextFrame - System.nanoTime() > 0L)
+            Thread.onSpinWait();
+    }
+
+    /**
+     * @return the fixed time step of every update, in seconds.
+     */
+    public double getStep() {
+        return m_Data.StepNanos / (double) NANOS_PER_SECOND;
+    }
+
+    /**
+     * @return how far we are between the last update and the next one, from 0 to 1.
+     */
+    public double getAlpha() {
+        return Math.min(1.0, m_Data.Accumulator / (double) m_Data.StepNanos);
+    }
+
+    public void logStats() {
+        Log.CORE.info("FrameScheduler: {} UPS, {} FPS, {}ms per frame (jitter {}ms), {} updates dropped",
+                String.format("%.1f", m_Stats.UPS), String.format("%.1f", m_Stats.FPS),
+                String.format("%.2f", m_Stats.FrameTimeMs), String.format("%.2f", m_Stats.JitterMs), m_Stats.DroppedUpdates);
+    }
+
+    /**
+     * @return the updates we ran over the last second.
+     */
+    public double getUPS() {
+        return m_Stats.UPS;
+    }
+
+    /**
+     * @return the frames we rendered over the last second.
+     */
+    public double getFPS() {
+        return m_Stats.FPS;
+    }
+
+    /**
+     * @return the average time between frames over the last second, in milliseconds.
+     */
+    public double getFrameTimeMs() {
+        return m_Stats.FrameTimeMs;
+    }
+
+    /**
+     * @return the standard deviation of the time between frames over the last second, in milliseconds.
+     */
+    public double getJitterMs() {
+        return m_Stats.JitterMs;
+    }
+
+    /**
+     * @return the updates we skipped because we had fallen too far behind.
+     */
+    public long getDroppedUpdates() {
+        return m_Stats.DroppedUpdates;
+    }
+
+    private void publishStats(long now) {
+        double seconds = (now - m_Stats.WindowStart) / (double) NANOS_PER_SECOND;
+        int frames = m_Stats.WindowFrames;
+
+        m_Stats.UPS = m_Stats.WindowUpdates / seconds;
+        m_Stats.FPS = frames / seconds;
+
+        double mean = m_Stats.FrameTimeSum / frames;
+        m_Stats.FrameTimeMs = mean;
+        m_Stats.JitterMs = Math.sqrt(Math.max(0.0, m_Stats.FrameTimeSquaredSum / frames - mean * mean));
+
+        m_Stats.WindowStart = now;
+        m_Stats.WindowUpdates = 0;
+        m_Stats.WindowFrames = 0;
+        m_Stats.FrameTimeSum = 0.0;
+        m_Stats.FrameTimeSquaredSum = 0.0;
+    }
+
+    public static FrameScheduler get() {
+        return ms_Instance;
+    }
+
+}
@@ -5,9 +5,52 @@ package git.arcane.core;
  */
 public class GameSettings {
 
+    /**
+     * How a headless context is created.<br>
+     * INVISIBLE keeps the normal platform but never shows the window, so it still needs a display (an Xvfb will do).
+     * OSMESA needs no display at all and renders in software through Mesa's OSMesa (llvmpipe).
+     */
+    public enum HeadlessBackend {
+        INVISIBLE, OSMESA
+    }
+
     public String GameName = "niL";
     public int WinWidth = 100, WinHeight = 100;
 
     public boolean EnableVSync = true, EnableResize = false;
 
+    // Renders without ever showing a window, e.g. for benchmarks on machines without a display or GPU.
+    public boolean Headless = false;
+    public HeadlessBackend HeadlessMode = HeadlessBackend.OSMESA;
+
+    // Updates run at a fixed rate, rendering is limited to TargetFPS (0 means unlimited).
+    // If we fall behind we run at most MaxUpdatesPerFrame updates in one frame to catch up.
+    public double TargetUPS = 30.0, TargetFPS = 75.0;
+    public int MaxUpdatesPerFrame = 5;
+
+    // Records rendering into command lists that a separate thread replays, so a swap waiting on VSync doesn't hold up updates.
+    // RenderBuffers is how many lists we cycle through, 2 for double buffering or 3 for triple buffering.
+    public boolean ThreadedRendering = false;
+    public int RenderBuffers = 2;
+
+    // Times every frame with the Profiler, see ProfilerOverlay for showing the results.
+    public boolean EnableProfiler = true;
+
+    // Background asset loading. Uploads to OpenGL are limited to this many milliseconds per frame.
+    public int AssetWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    public double AssetUploadBudgetMs = 2.0;
+
+    // Fonts loaded from a path keep their rasterized glyphs here and map them on later runs. Null always rasterizes.
+    public String FontCacheDir = "cache/fonts";
+
+    // Linked shader programs are kept here as driver binaries, so later runs skip compiling them. Null always compiles.
+    public String ShaderCacheDir = "cache/shaders";
+
+    // Textures loaded through the TextureManager or AssetManager are evicted, least recently bound first, once every
+    // texture together takes up more video memory than this. They're loaded again when they're next bound. 0 never evicts.
+    public int TextureBudgetMB = 256;
+
+    // Workers the JobSystem spreads per-frame work over. The main thread keeps the last core.
+    public int JobWorkers = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
 }
@@ -17,12 +17,14 @@ public interface IGame {
 
     /**
      * Updates the logical processes of our Game.
-     * @param dt The time in nanoseconds since the last update.
+     * @param dt The fixed time step of every update, in seconds.
      */
     void update(double dt);
 
     /**
-     * Renders our Game to the screen so we can see.
+     * Renders our Game to the screen so we can see.<br>
+     * With {@link GameSettings#ThreadedRendering} this is recorded into a
+     * {@link git.arcane.core.graphics.rendering.RenderCommands} list and drawn later on the render thread.
      * @param alpha The interpolation factor for smooth rendering.
      */
     void render(double alpha);
@@ -1,5 +1,13 @@
 package git.arcane.core;
 
+import git.arcane.core.assets.AssetManager;
+import git.arcane.core.jobs.JobSystem;
+import git.arcane.core.graphics.ShaderRegistry;
+import git.arcane.core.graphics.TextureManager;
+import git.arcane.core.graphics.rendering.RenderCommands;
+import git.arcane.core.graphics.rendering.RenderThread;
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import git.arcane.core.profiler.Profiler;
 import git.arcane.core.util.Input;
 import git.arcane.core.util.Log;
 import git.arcane.core.graphics.Window;
@@ -7,6 +15,8 @@ import org.lwjgl.BufferUtils;
 import org.lwjgl.PointerBuffer;
 import org.lwjgl.glfw.GLFWErrorCallback;
 
+import java.nio.file.Path;
+
 import static org.lwjgl.glfw.GLFW.*;
 import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.opengl.GLDebugMessageCallback.getMessage;
@@ -19,8 +29,17 @@ public class LWJGLProject implements Runnable {
 
     private Thread m_Thread;
     private Window m_Window;
+    private Input m_Input;
+    private AssetManager m_Assets;
+    private TextureManager m_Textures;
+    private ShaderRegistry m_Shaders;
+    private JobSystem m_Jobs;
+    private FrameScheduler m_Scheduler;
+    private RenderThread m_RenderThread;
+    private Runnable m_UploadTask;
 
     private volatile boolean m_Running;
+    private volatile int m_ExitCode;
 
     public LWJGLProject(IGame game, GameSettings settings) {
         m_Game = game;
@@ -42,7 +61,22 @@ public class LWJGLProject implements Runnable {
     }
 
     public synchronized void stop() {
+        if(m_RenderThread != null) {
+            // Takes the context back, everything below disposes GL resources.
+            m_RenderThread.logStats();
+            m_RenderThread.stop();
+        }
+
+        m_Scheduler.logStats();
         m_Game.dispose();
+        m_Assets.dispose();
+        m_Textures.logStats();
+        m_Textures.dispose();
+        m_Shaders.logStats();
+        m_Shaders.dispose();
+        m_Jobs.logStats();
+        m_Jobs.dispose();
+        Profiler.dispose();
 
         Log.CORE.info("Shutting Down!");
         try {
@@ -50,58 +84,134 @@ public class LWJGLProject implements Runnable {
             m_Thread.join(1L);
 
             glfwTerminate();
-            System.exit(0);
+            System.exit(m_ExitCode);
         } catch (Exception e) {
             Log.CORE.error(e.getMessage());
             System.exit(-1);
         }
     }
 
+    /**
+     * Asks the game loop to finish its current frame and shut down.
+     * @param exitCode the code the process exits with once everything is disposed.
+     */
+    public void requestStop(int exitCode) {
+        m_ExitCode = exitCode;
+        m_Running = false;
+    }
+
+    public Window getWindow() {
+        return m_Window;
+    }
+
     private void gameLoop() {
         m_Window = new Window(m_Settings);
-        final Input input = new Input(m_Window);
+        m_Input = new Input(m_Window);
+
+        m_Input.initialize();
+        RenderFont.setCacheDirectory(m_Settings.FontCacheDir != null ? Path.of(m_Settings.FontCacheDir) : null);
+        m_Assets = new AssetManager(m_Settings.AssetWorkers);
+        m_Textures = new TextureManager(m_Settings.TextureBudgetMB * 1024L * 1024L);
+        m_Shaders = new ShaderRegistry(m_Settings.ShaderCacheDir != null ? Path.of(m_Settings.ShaderCacheDir) : null);
+        final long uploadBudget = (long) (m_Settings.AssetUploadBudgetMs * 1_000_000.0);
+        m_Jobs = new JobSystem(m_Settings.JobWorkers);
 
-        input.initialize();
         m_Game.initialize();
         m_Window.show();
 
-        double delta, accumulator = 0.0;
-        double lastTime = glfwGetTime();
-        boolean shouldRender = false;
+        m_Scheduler = new FrameScheduler(m_Settings);
+        final double step = m_Scheduler.getStep();
+        Profiler.setEnabled(m_Settings.EnableProfiler);
+
+        if(m_Settings.ThreadedRendering) {
+            m_RenderThread = new RenderThread(m_Window, m_Settings.RenderBuffers);
+            m_UploadTask = () -> m_Assets.update(uploadBudget);
+            Profiler.setGpuTiming(false);
+            m_RenderThread.start();
+        }
 
-        final double TARGET_UPS = 1.0 / 30.0, TARGET_FPS = 1.0 / 75.0;
         while(m_Running) {
             if(m_Window.shouldClose()) {
                 m_Running = false;
                 continue;
             }
-            double now = glfwGetTime();
-            delta = now - lastTime;
-            lastTime = now;
-
-            accumulator += delta;
-            while(accumulator >= TARGET_UPS) {
-                m_Game.update(accumulator);
-                accumulator -= delta;
-                shouldRender = true;
-            }
 
-            if(shouldRender) {
-                glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-                
-                double alpha = accumulator / TARGET_FPS;
-                m_Game.render(alpha);
-                shouldRender = false;
-            }
+            m_Scheduler.beginFrame();
+            Profiler.beginFrame();
+
+            if(m_RenderThread != null) threadedFrame(step);
+            else frame(step, uploadBudget);
+
+            Profiler.begin("Wait");
+            m_Scheduler.endFrame();
+            Profiler.end();
 
-            m_Window.update();
+            Profiler.endFrame();
         }
     }
 
+    private void frame(double step, long uploadBudget) {
+        Profiler.begin("Update");
+        while(m_Scheduler.shouldUpdate()) {
+            m_Input.update();
+            m_Game.update(step);
+        }
+        Profiler.end();
+
+        Profiler.begin("Assets");
+        m_Assets.update(uploadBudget);
+        Profiler.end();
+
+        Profiler.begin("Render");
+        glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        m_Game.render(m_Scheduler.getAlpha());
+        Profiler.end();
+
+        Profiler.begin("Swap");
+        m_Window.update();
+        Profiler.end();
+    }
+
+    /**
+     * Updates and records the frame into a command list, the {@link RenderThread} draws and swaps it while we move on.
+     */
+    private void threadedFrame(double step) {
+        m_RenderThread.beginFrame();
+
+        Profiler.begin("Update");
+        while(m_Scheduler.shouldUpdate()) {
+            m_Input.update();
+            m_Game.update(step);
+        }
+        Profiler.end();
+
+        Profiler.begin("Acquire");
+        final RenderCommands commands = m_RenderThread.record();
+        Profiler.end();
+
+        if(commands == null) {
+            requestStop(-1);
+            return;
+        }
+
+        Profiler.begin("Record");
+        // Uploads need the context, so they run first thing on the render thread.
+        commands.task(m_UploadTask);
+        commands.clear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
+        m_Game.render(m_Scheduler.getAlpha());
+        m_RenderThread.submit();
+        Profiler.end();
+
+        Profiler.begin("Events");
+        m_Window.pollEvents();
+        Profiler.end();
+    }
+
     @Override
     public void run() {
         GLFWErrorCallback.create((error, description) -> Log.RENDER.error("OpenGL Error Occurred[{}]:\n{}", error, GLFWErrorCallback.getDescription(description))).set();
 
+        Window.configurePlatform(m_Settings);
         if(!glfwInit()) {
             Log.CORE.error("Failed to initialize GLFW! Are you drivers up to date?");
             System.exit(-1);
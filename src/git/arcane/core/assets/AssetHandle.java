@@ -0,0 +1,73 @@
+package git.arcane.core.assets;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A handle to an asset that is being loaded by the {@link AssetManager}.<br>
+ * Poll {@link #isLoaded()} every frame, or chain work onto {@link #getFuture()}.
+ * @param <T> the type of the asset.
+ */
+public class AssetHandle<T> {
+
+    public enum State {
+        QUEUED, DECODING, UPLOADING, LOADED, FAILED
+    }
+
+    private final String m_Name;
+    private final CompletableFuture<T> m_Future;
+    private volatile State m_State;
+
+    AssetHandle(String name) {
+        m_Name = name;
+        m_Future = new CompletableFuture<>();
+        m_State = State.QUEUED;
+    }
+
+    void setState(State state) {
+        m_State = state;
+    }
+
+    void complete(T asset) {
+        // The asset has to be in place before the state says so, get() reads them in that order.
+        m_Future.complete(asset);
+        m_State = State.LOADED;
+    }
+
+    void fail(Throwable error) {
+        m_Future.completeExceptionally(error);
+        m_State = State.FAILED;
+    }
+
+    /**
+     * Receives the asset if it's done loading.
+     * @return the asset, or null if it's still loading or failed to load.
+     */
+    public T get() {
+        return m_State == State.LOADED ? m_Future.getNow(null) : null;
+    }
+
+    public String getName() {
+        return m_Name;
+    }
+
+    public State getState() {
+        return m_State;
+    }
+
+    public boolean isLoaded() {
+        return m_State == State.LOADED;
+    }
+
+    public boolean isFailed() {
+        return m_State == State.FAILED;
+    }
+
+    public boolean isDone() {
+        return m_State == State.LOADED || m_State == State.FAILED;
+    }
+
+    public CompletableFuture<T> getFuture() {
+        return m_Future;
+    }
+
+}
@@ -0,0 +1,262 @@
+package git.arcane.core.assets;
+
+import git.arcane.core.graphics.BakedTexture;
+import git.arcane.core.graphics.Pixmap;
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.TextureManager;
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import git.arcane.core.graphics.rendering.font.SDFFont;
+import git.arcane.core.util.Log;
+
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Loads assets in the background so showing a {@link git.arcane.core.screen.Screen} doesn't hitch the game.<br>
+ * Files are read and decoded on a pool of worker threads. Anything that needs OpenGL is queued and uploaded
+ * on the main thread by {@link #update(long)}, which stops once it has used up its time budget for the frame.
+ */
+public class AssetManager {
+    private static AssetManager ms_Instance = null;
+
+    private final ExecutorService m_Workers;
+    private final Queue<Runnable> m_Uploads;
+
+    private final AtomicInteger m_Requested, m_Completed, m_Failed;
+    private long m_LastUploadNanos;
+
+    public AssetManager(int workerThreads) {
+        m_Workers = Executors.newFixedThreadPool(Math.max(1, workerThreads), new ThreadFactory() {
+            private final AtomicInteger m_Count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "Asset_Worker_" + m_Count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        m_Uploads = new ConcurrentLinkedQueue<>();
+
+        m_Requested = new AtomicInteger();
+        m_Completed = new AtomicInteger();
+        m_Failed = new AtomicInteger();
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Reads and decodes an image. Pixmaps don't need OpenGL, so these finish entirely on a worker thread.
+     * @param path the path of the image in our resources.
+     * @param desiredChannels the amount of channels we want, or 0 to keep the image's own.
+     * @return the handle of the Pixmap.
+     */
+    public AssetHandle<Pixmap> loadPixmap(String path, int desiredChannels) {
+        return load(path, () -> Pixmap.load(path, desiredChannels), null);
+    }
+
+    /**
+     * Reads and decodes an image in the background, then uploads it as a {@link Texture}.<br>
+     * If there is a {@link TextureManager} it takes care of the Texture from then on.
+     * @param path the path of the image in our resources.
+     * @return the handle of the Texture.
+     */
+    public AssetHandle<Texture> loadTexture(String path) {
+        return load(path, () -> Pixmap.load(path), pixmap -> manage(Texture.createTexture(path, pixmap)));
+    }
+
+    /**
+     * Maps a texture baked by {@link TextureBaker} in the background, then uploads every level straight from the file.
+     * @param path the baked file, relative to the working directory.
+     * @return the handle of the Texture.
+     */
+    public AssetHandle<Texture> loadBakedTexture(Path path) {
+        return load(path.toString(), () -> BakedTexture.map(path).prefetch(), baked -> manage(baked.upload()));
+    }
+
+    /**
+     * Maps a texture baked by {@link TextureBaker} in the background and hands back its largest level as a Pixmap,
+     * e.g. for a TextureAtlas. Nothing is decoded, the pixels are read straight from the file.
+     * @param path the baked file, relative to the working directory.
+     * @return the handle of the Pixmap.
+     */
+    public AssetHandle<Pixmap> loadBakedPixmap(Path path) {
+        return load(path.toString(), () -> BakedTexture.map(path).prefetch().toPixmap(), null);
+    }
+
+    /**
+     * Rasterizes a font in the background, then uploads it into its own {@link Texture}.
+     * @param path the path of the TrueType font in our resources.
+     * @param size the size of the font in points.
+     * @param antiAlias whether the glyphs should be anti-aliased.
+     * @return the handle of the RenderFont.
+     */
+    public AssetHandle<RenderFont> loadFont(String path, int size, boolean antiAlias) {
+        return load(path + ":" + size, () -> RenderFont.rasterize(path, size, antiAlias), font -> {
+            font.upload();
+            return font;
+        });
+    }
+
+    /**
+     * Rasterizes a font in the background without uploading it, so it can be added to a TextureAtlas.
+     * @param path the path of the TrueType font in our resources.
+     * @param size the size of the font in points.
+     * @param antiAlias whether the glyphs should be anti-aliased.
+     * @return the handle of the RenderFont.
+     */
+    public AssetHandle<RenderFont> rasterizeFont(String path, int size, boolean antiAlias) {
+        return load(path + ":" + size, () -> RenderFont.rasterize(path, size, antiAlias), null);
+    }
+
+    /**
+     * Loads a font in the background whose glyphs are generated as signed distance fields when they're first drawn.
+     * @param path the path of the TrueType font in our resources.
+     * @return the handle of the SDFFont.
+     */
+    public AssetHandle<SDFFont> loadSDFFont(String path) {
+        return load(path + ":sdf", () -> SDFFont.load(path), null);
+    }
+
+    /**
+     * Loads any kind of asset.
+     * @param name the name we'll use when logging.
+     * @param decode the work done on a worker thread. Must not touch OpenGL.
+     * @param upload the work done on the main thread afterwards, or null if there is none.
+     * @return the handle of the asset.
+     */
+    public <D, T> AssetHandle<T> load(String name, Callable<D> decode, Function<D, T> upload) {
+        final AssetHandle<T> handle = new AssetHandle<>(name);
+        m_Requested.incrementAndGet();
+
+        m_Workers.submit(() -> {
+            handle.setState(AssetHandle.State.DECODING);
+
+            final D decoded;
+            try {
+                decoded = decode.call();
+            } catch (Throwable e) {
+                fail(handle, e);
+                return;
+            }
+
+            if(upload == null) {
+                complete(handle, cast(decoded));
+                return;
+            }
+
+            handle.setState(AssetHandle.State.UPLOADING);
+            m_Uploads.add(() -> {
+                try {
+                    complete(handle, upload.apply(decoded));
+                } catch (Throwable e) {
+                    fail(handle, e);
+                }
+            });
+        });
+
+        return handle;
+    }
+
+    /**
+     * Uploads queued assets until the budget runs out. Must be called on the thread that owns OpenGL.<br>
+     * At least one upload happens per call, so a single large asset can't stall loading forever.
+     * @param budgetNanos how long we may spend uploading this frame, in nanoseconds.
+     */
+    public void update(long budgetNanos) {
+        long start = System.nanoTime();
+
+        Runnable upload;
+        while((upload = m_Uploads.poll()) != null) {
+            upload.run();
+
+            if(System.nanoTime() - start >= budgetNanos)
+                break;
+        }
+
+        m_LastUploadNanos = System.nanoTime() - start;
+    }
+
+    public void dispose() {
+        m_Workers.shutdownNow();
+
+        if(!m_Uploads.isEmpty())
+            Log.CORE.warn("AssetManager disposed with {} uploads still queued!", m_Uploads.size());
+        m_Uploads.clear();
+
+        if(ms_Instance == this)
+            ms_Instance = null;
+    }
+
+    /**
+     * @return how much of everything requested so far is done, from 0 to 1.
+     */
+    public float getProgress() {
+        int requested = m_Requested.get();
+        return requested == 0 ? 1.0f : (float) (m_Completed.get() + m_Failed.get()) / requested;
+    }
+
+    public boolean isFinished() {
+        return m_Completed.get() + m_Failed.get() >= m_Requested.get();
+    }
+
+    public int getRequestedCount() {
+        return m_Requested.get();
+    }
+
+    public int getCompletedCount() {
+        return m_Completed.get();
+    }
+
+    public int getFailedCount() {
+        return m_Failed.get();
+    }
+
+    public int getPendingUploads() {
+        return m_Uploads.size();
+    }
+
+    /**
+     * @return the time spent uploading during the last {@link #update(long)}, in nanoseconds.
+     */
+    public long getLastUploadNanos() {
+        return m_LastUploadNanos;
+    }
+
+    public static AssetManager get() {
+        return ms_Instance;
+    }
+
+    // The handle is settled before it's counted, so anyone who sees isFinished() can rely on every handle's state.
+    private <T> void complete(AssetHandle<T> handle, T asset) {
+        handle.complete(asset);
+        m_Completed.incrementAndGet();
+    }
+
+    private void fail(AssetHandle<?> handle, Throwable error) {
+        Log.CORE.error("Failed to load asset [{}]:\n{}", handle.getName(), error.getMessage());
+        handle.fail(error);
+        m_Failed.incrementAndGet();
+    }
+
+    private static Texture manage(Texture texture) {
+        final TextureManager textures = TextureManager.get();
+        if(textures != null && texture != null)
+            textures.manage(texture);
+        return texture;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <D, T> T cast(D decoded) {
+        return (T) decoded;
+    }
+
+}
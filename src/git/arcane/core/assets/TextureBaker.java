@@ -0,0 +1,83 @@
+package git.arcane.core.assets;
+
+import git.arcane.core.graphics.BakedTexture;
+import git.arcane.core.graphics.Pixmap;
+import git.arcane.core.util.Log;
+import org.lwjgl.BufferUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Bakes every PNG of a directory into a {@link BakedTexture} ahead of time, run by the <i>bakeTextures</i> Gradle task.<br>
+ * Arguments are the directory to read and the directory to write into. Textures whose baked file is newer than
+ * their PNG are skipped.
+ */
+public class TextureBaker {
+
+    public static void main(String[] args) {
+        if(args.length != 2) {
+            Log.CORE.error("Usage: TextureBaker <input directory> <output directory>");
+            System.exit(-1);
+        }
+
+        try {
+            final int baked = bakeAll(Path.of(args[0]), Path.of(args[1]));
+            Log.CORE.info("Baked {} textures into [{}]", baked, args[1]);
+        } catch (IOException e) {
+            Log.CORE.error("Failed to bake textures:\n{}", e.getMessage());
+            System.exit(-1);
+        }
+    }
+
+    /**
+     * @return the number of textures that were baked, not counting the ones already up to date.
+     */
+    public static int bakeAll(Path input, Path output) throws IOException {
+        final List<Path> images;
+        try(Stream<Path> files = Files.list(input)) {
+            images = files.filter(file -> file.getFileName().toString().endsWith(".png")).sorted().toList();
+        }
+
+        int baked = 0;
+        for(Path image : images) {
+            final String name = image.getFileName().toString();
+            final Path target = output.resolve(name.substring(0, name.length() - ".png".length()) + BakedTexture.EXTENSION);
+
+            if(Files.exists(target) && Files.getLastModifiedTime(target).compareTo(Files.getLastModifiedTime(image)) >= 0)
+                continue;
+
+            bake(image, target);
+            baked++;
+        }
+
+        return baked;
+    }
+
+    /**
+     * Decodes a PNG as RGBA and writes it with every mip level.
+     * @return the bytes of every level together.
+     */
+    public static long bake(Path image, Path target) throws IOException {
+        final long start = System.nanoTime();
+
+        final byte[] data = Files.readAllBytes(image);
+        final ByteBuffer encoded = BufferUtils.createByteBuffer(data.length);
+        encoded.put(0, data);
+
+        final Pixmap pixmap = Pixmap.decode(encoded, 4, image.toString());
+        try {
+            final long bytes = BakedTexture.bake(pixmap, target);
+            Log.CORE.info("Baked [{}] {}x{} into {}KB in {}ms", image.getFileName(), pixmap.getWidth(), pixmap.getHeight(),
+                    bytes / 1024, String.format("%.2f", (System.nanoTime() - start) / 1_000_000.0));
+            return bytes;
+        } finally {
+            pixmap.free();
+        }
+    }
+
+}
@@ -0,0 +1,327 @@
+package git.arcane.core.entities;
+
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.rendering.SpriteRegion;
+import git.arcane.core.jobs.JobSystem;
+import git.arcane.core.util.Log;
+
+import java.util.Arrays;
+
+/**
+ * Keeps game objects as rows of primitive arrays instead of one object each.<br>
+ * Every component lives in its own array and the rows of living entities are packed at the front, so an
+ * {@link EntitySystem} walks straight through memory instead of chasing a {@link git.arcane.core.graphics.rendering.Sprite}'s
+ * vectors around the heap. Destroying an entity moves the last row into its place, so rows change order but never leave holes.
+ * <br>Entities are referred to by handles that carry a generation, so a handle to a destroyed entity never
+ * silently points at whatever reused its slot.
+ */
+public class EntityStore {
+
+    public static final int INVALID = -1;
+
+    private static final int INDEX_BITS = 24;
+    private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+    private static final int GENERATION_MASK = 0x7F;
+
+    /**
+     * The components of every entity, indexed by row. Rows from 0 to {@link #getSize()} are alive.
+     */
+    public static class Components {
+        public final float[] PositionX, PositionY;
+        public final float[] VelocityX, VelocityY;
+
+        // Half extents, like the width and height a SpriteBatch takes.
+        public final float[] HalfWidth, HalfHeight;
+
+        // The sprite region: the texture and the UVs of its bottom-left (u0, v0) and top-right (u1, v1) corners.
+        public final Texture[] Texture;
+        public final float[] U0, V0, U1, V1;
+
+        public final float[] TintR, TintG, TintB;
+        public final float[] Layer;
+
+        private Components(int capacity) {
+            PositionX = new float[capacity];
+            PositionY = new float[capacity];
+            VelocityX = new float[capacity];
+            VelocityY = new float[capacity];
+            HalfWidth = new float[capacity];
+            HalfHeight = new float[capacity];
+            Texture = new Texture[capacity];
+            U0 = new float[capacity];
+            V0 = new float[capacity];
+            U1 = new float[capacity];
+            V1 = new float[capacity];
+            TintR = new float[capacity];
+            TintG = new float[capacity];
+            TintB = new float[capacity];
+            Layer = new float[capacity];
+        }
+
+        private void move(int from, int to) {
+            PositionX[to] = PositionX[from];
+            PositionY[to] = PositionY[from];
+            VelocityX[to] = VelocityX[from];
+            VelocityY[to] = VelocityY[from];
+            HalfWidth[to] = HalfWidth[from];
+            HalfHeight[to] = HalfHeight[from];
+            Texture[to] = Texture[from];
+            U0[to] = U0[from];
+            V0[to] = V0[from];
+            U1[to] = U1[from];
+            V1[to] = V1[from];
+            TintR[to] = TintR[from];
+            TintG[to] = TintG[from];
+            TintB[to] = TintB[from];
+            Layer[to] = Layer[from];
+        }
+
+        private void reset(int row) {
+            PositionX[row] = 0.0f;
+            PositionY[row] = 0.0f;
+            VelocityX[row] = 0.0f;
+            VelocityY[row] = 0.0f;
+            HalfWidth[row] = 1.0f;
+            HalfHeight[row] = 1.0f;
+            Texture[row] = null;
+            U0[row] = 0.0f;
+            V0[row] = 1.0f;
+            U1[row] = 1.0f;
+            V1[row] = 0.0f;
+            TintR[row] = 1.0f;
+            TintG[row] = 1.0f;
+            TintB[row] = 1.0f;
+            Layer[row] = 0.0f;
+        }
+    }
+
+    private static class StoreData {
+        // Slot -> row of a living entity, and row -> slot.
+        public int[] rows, slots;
+        public byte[] generations;
+
+        // Slots of destroyed entities, reused before any new ones.
+        public int[] free;
+        public int freeCount;
+
+        public int size, slotCount, capacity;
+    }
+
+    private final Components m_Components;
+    private final StoreData m_Data;
+
+    public EntityStore(int capacity) {
+        if(capacity <= 0 || capacity > INDEX_MASK + 1) {
+            Log.CORE.error("An EntityStore holds 1 to {} entities, got {}!", INDEX_MASK + 1, capacity);
+            throw new IllegalArgumentException("Invalid capacity: " + capacity);
+        }
+
+        m_Components = new Components(capacity);
+
+        m_Data = new StoreData();
+        m_Data.rows = new int[capacity];
+        m_Data.slots = new int[capacity];
+        m_Data.generations = new byte[capacity];
+        m_Data.free = new int[capacity];
+        m_Data.capacity = capacity;
+
+        Arrays.fill(m_Data.rows, -1);
+    }
+
+    /**
+     * Creates an entity with default components: at the origin, not moving, 1x1, untextured and untinted.
+     * @return the entity's handle, or {@link #INVALID} if the store is full.
+     */
+    public int create() {
+        final int slot;
+        if(m_Data.freeCount > 0) {
+            slot = m_Data.free[--m_Data.freeCount];
+        } else if(m_Data.slotCount < m_Data.capacity) {
+            slot = m_Data.slotCount++;
+        } else {
+            Log.CORE.warn("The EntityStore is full ({} entities)!", m_Data.capacity);
+            return INVALID;
+        }
+
+        final int row = m_Data.size++;
+        m_Data.rows[slot] = row;
+        m_Data.slots[row] = slot;
+        m_Components.reset(row);
+
+        return (m_Data.generations[slot] << INDEX_BITS) | slot;
+    }
+
+    /**
+     * Destroys an entity. The last row moves into its place, so row order changes.
+     * @return false if the handle didn't refer to a living entity.
+     */
+    public boolean destroy(int entity) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return false;
+
+        final int slot = entity & INDEX_MASK;
+        final int last = --m_Data.size;
+        if(row != last) {
+            m_Components.move(last, row);
+
+            final int movedSlot = m_Data.slots[last];
+            m_Data.slots[row] = movedSlot;
+            m_Data.rows[movedSlot] = row;
+        }
+        m_Components.Texture[last] = null;
+
+        m_Data.rows[slot] = -1;
+        m_Data.generations[slot] = (byte) ((m_Data.generations[slot] + 1) & GENERATION_MASK);
+        m_Data.free[m_Data.freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * Destroys every entity at once.
+     */
+    public void clear() {
+        for(int row = 0; row < m_Data.size; row++) {
+            final int slot = m_Data.slots[row];
+            m_Data.rows[slot] = -1;
+            m_Data.generations[slot] = (byte) ((m_Data.generations[slot] + 1) & GENERATION_MASK);
+            m_Data.free[m_Data.freeCount++] = slot;
+        }
+
+        Arrays.fill(m_Components.Texture, 0, m_Data.size, null);
+        m_Data.size = 0;
+    }
+
+    public boolean isAlive(int entity) {
+        return getRow(entity) >= 0;
+    }
+
+    /**
+     * @return the row of a living entity's components, or -1 if the handle is stale.
+     */
+    public int getRow(int entity) {
+        if(entity < 0)
+            return -1;
+
+        final int slot = entity & INDEX_MASK;
+        if(slot >= m_Data.slotCount || m_Data.generations[slot] != (entity >>> INDEX_BITS))
+            return -1;
+
+        return m_Data.rows[slot];
+    }
+
+    /**
+     * @return the handle of the entity in a row.
+     */
+    public int getEntity(int row) {
+        final int slot = m_Data.slots[row];
+        return (m_Data.generations[slot] << INDEX_BITS) | slot;
+    }
+
+    /**
+     * Runs a system over every living entity on the calling thread.
+     */
+    public void run(EntitySystem system, float dt) {
+        if(m_Data.size > 0)
+            system.update(this, 0, m_Data.size, dt);
+    }
+
+    /**
+     * Splits a system's work over the {@link JobSystem} and waits for it. Systems that only touch their own rows
+     * (like {@link MovementSystem}) can run this way.
+     * @param grain the most rows a single job works on, or 0 to let the JobSystem pick.
+     */
+    public void run(EntitySystem system, float dt, JobSystem jobs, int grain) {
+        if(jobs == null) {
+            run(system, dt);
+            return;
+        }
+
+        if(m_Data.size > 0)
+            jobs.waitFor(jobs.parallelFor(0, m_Data.size, grain, (start, end) -> system.update(this, start, end, dt)));
+    }
+
+    public void setPosition(int entity, float x, float y) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.PositionX[row] = x;
+        m_Components.PositionY[row] = y;
+    }
+
+    public void setVelocity(int entity, float x, float y) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.VelocityX[row] = x;
+        m_Components.VelocityY[row] = y;
+    }
+
+    /**
+     * Sets the half extents of an entity, the same way {@link git.arcane.core.graphics.rendering.Sprite#setSize} does.
+     */
+    public void setSize(int entity, float halfWidth, float halfHeight) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.HalfWidth[row] = halfWidth;
+        m_Components.HalfHeight[row] = halfHeight;
+    }
+
+    /**
+     * Makes an entity display a {@link SpriteRegion}. Only the texture and UVs are copied, the store doesn't hold on
+     * to the region, so whoever acquired it from the {@link git.arcane.core.graphics.rendering.RegionCache} still releases it.
+     */
+    public void setRegion(int entity, SpriteRegion region) {
+        setRegion(entity, region.getTexture(), region.getU0(), region.getV0(), region.getU1(), region.getV1());
+    }
+
+    public void setRegion(int entity, Texture texture, float u0, float v0, float u1, float v1) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.Texture[row] = texture;
+        m_Components.U0[row] = u0;
+        m_Components.V0[row] = v0;
+        m_Components.U1[row] = u1;
+        m_Components.V1[row] = v1;
+    }
+
+    public void setTint(int entity, float r, float g, float b) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.TintR[row] = r;
+        m_Components.TintG[row] = g;
+        m_Components.TintB[row] = b;
+    }
+
+    public void setLayer(int entity, float layer) {
+        final int row = getRow(entity);
+        if(row < 0)
+            return;
+
+        m_Components.Layer[row] = layer;
+    }
+
+    public Components getComponents() {
+        return m_Components;
+    }
+
+    /**
+     * @return the number of living entities, which are the rows from 0 to this.
+     */
+    public int getSize() {
+        return m_Data.size;
+    }
+
+    public int getCapacity() {
+        return m_Data.capacity;
+    }
+
+}
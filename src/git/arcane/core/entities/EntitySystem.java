@@ -0,0 +1,18 @@
+package git.arcane.core.entities;
+
+/**
+ * Logic that runs over the rows of an {@link EntityStore}.<br>
+ * A system is handed a range of rows rather than single entities, so it can pull the component arrays it needs
+ * out once and loop over them tightly. The range may be a piece of the store when it runs on the JobSystem.
+ */
+public interface EntitySystem {
+
+    /**
+     * @param store the store whose rows we update.
+     * @param start the first row (inclusive).
+     * @param end the last row (exclusive).
+     * @param dt the fixed time step of the update, in seconds.
+     */
+    void update(EntityStore store, int start, int end, float dt);
+
+}
@@ -0,0 +1,51 @@
+package git.arcane.core.entities;
+
+/**
+ * Moves every entity by its velocity. Optionally keeps them inside an area by bouncing them off its edges.
+ */
+public class MovementSystem implements EntitySystem {
+
+    private final boolean m_Bounded;
+    private final float m_MinX, m_MinY, m_MaxX, m_MaxY;
+
+    public MovementSystem() {
+        m_Bounded = false;
+        m_MinX = m_MinY = m_MaxX = m_MaxY = 0.0f;
+    }
+
+    /**
+     * Creates a system that bounces entities off the edges of an area.
+     */
+    public MovementSystem(float minX, float minY, float maxX, float maxY) {
+        m_Bounded = true;
+        m_MinX = minX;
+        m_MinY = minY;
+        m_MaxX = maxX;
+        m_MaxY = maxY;
+    }
+
+    @Override
+    public void update(EntityStore store, int start, int end, float dt) {
+        final EntityStore.Components components = store.getComponents();
+        final float[] x = components.PositionX, y = components.PositionY;
+        final float[] vx = components.VelocityX, vy = components.VelocityY;
+
+        if(!m_Bounded) {
+            for(int i = start; i < end; i++) {
+                x[i] += vx[i] * dt;
+                y[i] += vy[i] * dt;
+            }
+            return;
+        }
+
+        for(int i = start; i < end; i++) {
+            float nx = x[i] + vx[i] * dt, ny = y[i] + vy[i] * dt;
+            if(nx < m_MinX || nx > m_MaxX) vx[i] = -vx[i];
+            if(ny < m_MinY || ny > m_MaxY) vy[i] = -vy[i];
+
+            x[i] = nx;
+            y[i] = ny;
+        }
+    }
+
+}
@@ -0,0 +1,80 @@
+package git.arcane.core.entities;
+
+import git.arcane.core.graphics.cameras.Camera;
+import git.arcane.core.graphics.rendering.InstancedBatch;
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import org.joml.Vector3f;
+
+/**
+ * Draws the entities of an {@link EntityStore} that overlap what a camera can see.<br>
+ * Culling is a straight pass over the position and size arrays, which for entities that move every frame
+ * is cheaper than keeping a {@link git.arcane.core.spatial.SpatialGrid} up to date.
+ */
+public class SpriteRenderSystem {
+
+    private int m_LastDrawn;
+
+    /**
+     * @return the number of entities drawn.
+     */
+    public int draw(EntityStore store, SpriteBatch batch) {
+        final Camera camera = batch.getCamera();
+        if(camera == null)
+            return 0;
+
+        final Vector3f min = camera.getVisibleMin(), max = camera.getVisibleMax();
+        final EntityStore.Components c = store.getComponents();
+
+        int drawn = 0;
+        for(int i = 0, size = store.getSize(); i < size; i++) {
+            if(!isVisible(c, i, min, max))
+                continue;
+
+            batch.draw(c.Texture[i], c.PositionX[i], c.PositionY[i], c.Layer[i], c.HalfWidth[i], c.HalfHeight[i],
+                    c.U0[i], c.V0[i], c.U1[i], c.V1[i], c.TintR[i], c.TintG[i], c.TintB[i]);
+            drawn++;
+        }
+
+        m_LastDrawn = drawn;
+        return drawn;
+    }
+
+    /**
+     * @return the number of entities drawn.
+     */
+    public int draw(EntityStore store, InstancedBatch batch) {
+        final Camera camera = batch.getCamera();
+        if(camera == null)
+            return 0;
+
+        final Vector3f min = camera.getVisibleMin(), max = camera.getVisibleMax();
+        final EntityStore.Components c = store.getComponents();
+
+        int drawn = 0;
+        for(int i = 0, size = store.getSize(); i < size; i++) {
+            if(!isVisible(c, i, min, max))
+                continue;
+
+            batch.draw(c.Texture[i], c.PositionX[i], c.PositionY[i], c.Layer[i], c.HalfWidth[i], c.HalfHeight[i],
+                    c.U0[i], c.V0[i], c.U1[i], c.V1[i], c.TintR[i], c.TintG[i], c.TintB[i]);
+            drawn++;
+        }
+
+        m_LastDrawn = drawn;
+        return drawn;
+    }
+
+    /**
+     * @return the number of entities drawn by the last call to draw.
+     */
+    public int getLastDrawn() {
+        return m_LastDrawn;
+    }
+
+    private static boolean isVisible(EntityStore.Components c, int i, Vector3f min, Vector3f max) {
+        final float x = c.PositionX[i], y = c.PositionY[i];
+        final float w = c.HalfWidth[i], h = c.HalfHeight[i];
+        return x + w >= min.x && x - w <= max.x && y + h >= min.y && y - h <= max.y;
+    }
+
+}
@@ -0,0 +1,302 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.util.Log;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_TEXTURE_MAX_LEVEL;
+import static org.lwjgl.opengl.GL13.GL_CLAMP_TO_BORDER;
+
+/**
+ * A texture baked ahead of time into a file holding every mip level as tightly packed RGBA8.<br>
+ * Loading one maps the file and hands each level straight to OpenGL, so there is no image decoding, no copy on our
+ * side and no glGenerateMipmap. {@link git.arcane.core.assets.TextureBaker} bakes the textures of our assets.
+ * <br>The file is a little endian header (magic, version, width, height, level count), then a table of
+ * (width, height, offset, size) per level, then the levels themselves, largest first.
+ */
+public class BakedTexture {
+
+    public static final String EXTENSION = ".tex";
+
+    private static final int MAGIC = 0x58455441; // "ATEX"
+    private static final int VERSION = 1;
+    private static final int CHANNELS = 4;
+
+    private static final int HEADER_BYTES = 5 * Integer.BYTES;
+    private static final int LEVEL_BYTES = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    private static class LevelData {
+        public int width, height;
+        public ByteBuffer pixels;
+    }
+
+    private final String m_Name;
+    private final LevelData[] m_Levels;
+    private final long m_Bytes;
+
+    // Keeps the mapping alive for as long as the levels point into it.
+    private MappedByteBuffer m_File;
+
+    private BakedTexture(String name, MappedByteBuffer file, LevelData[] levels, long bytes) {
+        m_Name = name;
+        m_File = file;
+        m_Levels = levels;
+        m_Bytes = bytes;
+    }
+
+    /**
+     * Maps a baked texture without touching OpenGL, so it's safe to call from any thread.
+     * @param path the baked file.
+     * @return the mapped texture, call {@link #upload()} on the OpenGL thread to create its {@link Texture}.
+     * @throws IOException if the file can't be read or isn't a baked texture.
+     */
+    public static BakedTexture map(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            file.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(file.remaining() < HEADER_BYTES || file.getInt() != MAGIC || file.getInt() != VERSION)
+                throw new IOException("Not a baked texture: " + path);
+
+            file.getInt();
+            file.getInt();
+            final int levelCount = file.getInt();
+            if(levelCount <= 0 || file.remaining() < levelCount * LEVEL_BYTES)
+                throw new IOException("Baked texture is truncated: " + path);
+
+            final LevelData[] levels = new LevelData[levelCount];
+            long bytes = 0L;
+            for(int i = 0; i < levelCount; i++) {
+                final LevelData level = new LevelData();
+                level.width = file.getInt();
+                level.height = file.getInt();
+
+                final long offset = file.getLong(), size = file.getLong();
+                if(size != (long) level.width * level.height * CHANNELS || offset < 0 || offset + size > file.capacity())
+                    throw new IOException("Baked texture level " + i + " is out of bounds: " + path);
+
+                level.pixels = file.slice((int) offset, (int) size);
+                levels[i] = level;
+                bytes += size;
+            }
+
+            return new BakedTexture(path.toString(), file, levels, bytes);
+        }
+    }
+
+    /**
+     * Creates the {@link Texture} and uploads every level straight from the mapped file. Has to be called on the thread that owns OpenGL.
+     */
+    public Texture upload() {
+        if(m_File == null) {
+            Log.RENDER.warn("BakedTexture [{}] has already been uploaded!", m_Name);
+            return null;
+        }
+
+        final Texture texture = new Texture();
+        upload(texture);
+        return texture;
+    }
+
+    /**
+     * Uploads every level into an existing Texture, which is how the {@link TextureManager} brings back one it evicted.
+     */
+    void upload(Texture texture) {
+        texture.generate();
+        texture.setPath(m_Name);
+        texture.setWidth(m_Levels[0].width);
+        texture.setHeight(m_Levels[0].height);
+        texture.setChannels(CHANNELS);
+        texture.bind();
+
+        texture.setParameter(GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
+        texture.setParameter(GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
+        texture.setParameter(GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_NEAREST);
+        texture.setParameter(GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        texture.setParameter(GL_TEXTURE_MAX_LEVEL, m_Levels.length - 1);
+
+        for(int i = 0; i < m_Levels.length; i++) {
+            final LevelData level = m_Levels[i];
+            texture.uploadData(i, GL_RGBA8, level.width, level.height, GL_RGBA, level.pixels);
+        }
+
+        // The driver has its own copy now.
+        release();
+    }
+
+    /**
+     * Wraps the largest level as an RGBA {@link Pixmap}, e.g. to add it to a {@link TextureAtlas}. The pixels stay in
+     * the mapped file, which is kept alive for as long as the Pixmap references them.
+     */
+    public Pixmap toPixmap() {
+        if(m_File == null) {
+            Log.RENDER.warn("BakedTexture [{}] has already been released!", m_Name);
+            return null;
+        }
+
+        final LevelData level = m_Levels[0];
+        final Pixmap pixmap = Pixmap.wrap(level.width, level.height, CHANNELS, level.pixels);
+
+        // The Pixmap's slice of the file is all that needs to stay mapped now.
+        release();
+        return pixmap;
+    }
+
+    /**
+     * Reads the whole file into memory now, so {@link #upload()} doesn't wait on the disk. Call it from a worker thread.
+     */
+    public BakedTexture prefetch() {
+        if(m_File != null)
+            m_File.load();
+        return this;
+    }
+
+    /**
+     * Lets go of the mapping. Done by {@link #upload()}, only call it for textures that never get uploaded.
+     */
+    public void release() {
+        for(LevelData level : m_Levels)
+            level.pixels = null;
+        m_File = null;
+    }
+
+    public String getName() {
+        return m_Name;
+    }
+
+    public int getLevelCount() {
+        return m_Levels.length;
+    }
+
+    public int getWidth(int level) {
+        return m_Levels[level].width;
+    }
+
+    public int getHeight(int level) {
+        return m_Levels[level].height;
+    }
+
+    /**
+     * @return the pixels of a level, pointing into the mapped file.
+     */
+    public ByteBuffer getPixels(int level) {
+        return m_Levels[level].pixels;
+    }
+
+    /**
+     * @return the bytes of every level together.
+     */
+    public long getByteSize() {
+        return m_Bytes;
+    }
+
+    /**
+     * Loads a baked texture from its file in one go. Has to be called on the thread that owns OpenGL.
+     */
+    public static Texture load(Path path) throws IOException {
+        return map(path).upload();
+    }
+
+    /**
+     * Generates every mip level of an RGBA {@link Pixmap} and writes them to a baked file.
+     * @param pixmap the image, its rows in the order they are uploaded in.
+     * @param path the file to write, it's written next to its destination first and moved into place.
+     * @return the bytes of every level together.
+     */
+    public static long bake(Pixmap pixmap, Path path) throws IOException {
+        if(pixmap.getChannels() != CHANNELS)
+            throw new IOException("Only RGBA images can be baked, got " + pixmap.getChannels() + " channels");
+
+        int levelCount = 1;
+        for(int w = pixmap.getWidth(), h = pixmap.getHeight(); w > 1 || h > 1; w = Math.max(1, w / 2), h = Math.max(1, h / 2))
+            levelCount++;
+
+        final ByteBuffer[] levels = new ByteBuffer[levelCount];
+        final int[] widths = new int[levelCount], heights = new int[levelCount];
+        levels[0] = pixmap.getPixels().duplicate();
+        widths[0] = pixmap.getWidth();
+        heights[0] = pixmap.getHeight();
+
+        try {
+            for(int i = 1; i < levelCount; i++) {
+                widths[i] = Math.max(1, widths[i - 1] / 2);
+                heights[i] = Math.max(1, heights[i - 1] / 2);
+                levels[i] = MemoryUtil.memAlloc(widths[i] * heights[i] * CHANNELS);
+                downsample(levels[i - 1], widths[i - 1], heights[i - 1], levels[i], widths[i], heights[i]);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES + levelCount * LEVEL_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(widths[0]).putInt(heights[0]).putInt(levelCount);
+
+            long offset = header.capacity(), bytes = 0L;
+            for(int i = 0; i < levelCount; i++) {
+                final long size = (long) widths[i] * heights[i] * CHANNELS;
+                header.putInt(widths[i]).putInt(heights[i]).putLong(offset).putLong(size);
+                offset += size;
+                bytes += size;
+            }
+            header.flip();
+
+            final Path directory = path.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            final Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+            try {
+                try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                    final ByteBuffer[] buffers = new ByteBuffer[levelCount + 1];
+                    buffers[0] = header;
+                    for(int i = 0; i < levelCount; i++)
+                        buffers[i + 1] = levels[i].duplicate().position(0);
+
+                    long remaining = offset;
+                    while(remaining > 0)
+                        remaining -= channel.write(buffers);
+                }
+
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+
+            return bytes;
+        } finally {
+            for(int i = 1; i < levelCount; i++) {
+                if(levels[i] != null)
+                    MemoryUtil.memFree(levels[i]);
+            }
+        }
+    }
+
+    /**
+     * Averages every 2x2 block of texels into one. An odd last row or column is folded into the block next to it.
+     */
+    private static void downsample(ByteBuffer src, int srcWidth, int srcHeight, ByteBuffer dst, int dstWidth, int dstHeight) {
+        for(int y = 0; y < dstHeight; y++) {
+            final int y0 = y * 2, y1 = y == dstHeight - 1 ? srcHeight : Math.min(y0 + 2, srcHeight);
+
+            for(int x = 0; x < dstWidth; x++) {
+                final int x0 = x * 2, x1 = x == dstWidth - 1 ? srcWidth : Math.min(x0 + 2, srcWidth);
+                final int count = (y1 - y0) * (x1 - x0);
+
+                for(int c = 0; c < CHANNELS; c++) {
+                    int sum = 0;
+                    for(int sy = y0; sy < y1; sy++) {
+                        for(int sx = x0; sx < x1; sx++)
+                            sum += src.get((sy * srcWidth + sx) * CHANNELS + c) & 0xFF;
+                    }
+                    dst.put((y * dstWidth + x) * CHANNELS + c, (byte) ((sum + count / 2) / count));
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,279 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.util.Log;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL20.glUseProgram;
+import static org.lwjgl.opengl.GL20.glVertexAttrib4f;
+import static org.lwjgl.opengl.GL30.glBindBufferBase;
+import static org.lwjgl.opengl.GL30.glBindVertexArray;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
+
+/**
+ * Remembers the OpenGL state we've set so binding something that's already bound never reaches the driver.<br>
+ * Every program, texture, VAO, uniform buffer, constant attribute, blend and depth change should go through here,
+ * otherwise the cached state goes stale.
+ * If something outside of our code touches the state, call {@link #invalidate()}.
+ */
+public class GLState {
+
+    public static final int MAX_TEXTURE_UNITS = 32;
+    public static final int MAX_UNIFORM_BINDINGS = 16;
+    public static final int MAX_VERTEX_ATTRIBS = 16;
+
+    private static final int UNKNOWN = -1;
+
+    private static class StateData {
+        public int program = UNKNOWN, vao = UNKNOWN;
+        public int activeUnit = UNKNOWN;
+        public final int[] textures = new int[MAX_TEXTURE_UNITS];
+        public final int[] uniformBuffers = new int[MAX_UNIFORM_BINDINGS];
+
+        // The value an attribute has while no VAO feeds it an array, 4 floats per attribute.
+        public final float[] attribs = new float[MAX_VERTEX_ATTRIBS * 4];
+        public final boolean[] attribsKnown = new boolean[MAX_VERTEX_ATTRIBS];
+
+        // 1 = enabled, 0 = disabled, UNKNOWN = we don't know yet.
+        public int blend = UNKNOWN, depthTest = UNKNOWN;
+        public int blendSrc = UNKNOWN, blendDst = UNKNOWN;
+    }
+
+    private static class StateStats {
+        public long Issued, Skipped;
+        public long ProgramBinds, TextureBinds, VertexArrayBinds;
+    }
+
+    private static final StateData ms_Data = new StateData();
+    private static final StateStats ms_Stats = new StateStats();
+
+    static {
+        invalidate();
+    }
+
+    private GLState() {}
+
+    /**
+     * Forgets everything we know about the current state. The next change of every kind will be issued.
+     */
+    public static void invalidate() {
+        ms_Data.program = UNKNOWN;
+        ms_Data.vao = UNKNOWN;
+        ms_Data.activeUnit = UNKNOWN;
+        for(int i = 0; i < MAX_TEXTURE_UNITS; i++)
+            ms_Data.textures[i] = UNKNOWN;
+        for(int i = 0; i < MAX_UNIFORM_BINDINGS; i++)
+            ms_Data.uniformBuffers[i] = UNKNOWN;
+        for(int i = 0; i < MAX_VERTEX_ATTRIBS; i++)
+            ms_Data.attribsKnown[i] = false;
+
+        ms_Data.blend = UNKNOWN;
+        ms_Data.depthTest = UNKNOWN;
+        ms_Data.blendSrc = UNKNOWN;
+        ms_Data.blendDst = UNKNOWN;
+    }
+
+    public static void useProgram(int program) {
+        if(ms_Data.program == program) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        glUseProgram(program);
+        ms_Data.program = program;
+        ms_Stats.Issued++;
+        ms_Stats.ProgramBinds++;
+    }
+
+    public static void bindTexture(int unit, int texture) {
+        if(unit < 0 || unit >= MAX_TEXTURE_UNITS) {
+            Log.RENDER.error("Texture unit [{}] is out of range!", unit);
+            return;
+        }
+
+        if(ms_Data.textures[unit] == texture) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        activeTexture(unit);
+        glBindTexture(GL_TEXTURE_2D, texture);
+        ms_Data.textures[unit] = texture;
+        ms_Stats.Issued++;
+        ms_Stats.TextureBinds++;
+    }
+
+    public static void bindVertexArray(int vao) {
+        if(ms_Data.vao == vao) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        glBindVertexArray(vao);
+        ms_Data.vao = vao;
+        ms_Stats.Issued++;
+        ms_Stats.VertexArrayBinds++;
+    }
+
+    public static void bindUniformBuffer(int binding, int buffer) {
+        if(binding < 0 || binding >= MAX_UNIFORM_BINDINGS) {
+            Log.RENDER.error("Uniform buffer binding [{}] is out of range!", binding);
+            return;
+        }
+
+        if(ms_Data.uniformBuffers[binding] == buffer) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        glBindBufferBase(GL_UNIFORM_BUFFER, binding, buffer);
+        ms_Data.uniformBuffers[binding] = buffer;
+        ms_Stats.Issued++;
+    }
+
+    /**
+     * Sets the constant value of an attribute, which is what shaders read while no enabled array feeds it.<br>
+     * Only use this for attributes no VAO ever enables, drawing from an enabled array leaves the value undefined.
+     */
+    public static void setVertexAttrib(int index, float x, float y, float z, float w) {
+        if(index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            Log.RENDER.error("Vertex attribute [{}] is out of range!", index);
+            return;
+        }
+
+        final float[] attribs = ms_Data.attribs;
+        final int i = index * 4;
+        if(ms_Data.attribsKnown[index] && attribs[i] == x && attribs[i + 1] == y && attribs[i + 2] == z && attribs[i + 3] == w) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        glVertexAttrib4f(index, x, y, z, w);
+        attribs[i] = x;
+        attribs[i + 1] = y;
+        attribs[i + 2] = z;
+        attribs[i + 3] = w;
+        ms_Data.attribsKnown[index] = true;
+        ms_Stats.Issued++;
+    }
+
+    public static void setBlend(boolean enabled) {
+        ms_Data.blend = setCapability(GL_BLEND, ms_Data.blend, enabled);
+    }
+
+    public static void setDepthTest(boolean enabled) {
+        ms_Data.depthTest = setCapability(GL_DEPTH_TEST, ms_Data.depthTest, enabled);
+    }
+
+    public static void blendFunc(int src, int dst) {
+        if(ms_Data.blendSrc == src && ms_Data.blendDst == dst) {
+            ms_Stats.Skipped++;
+            return;
+        }
+
+        glBlendFunc(src, dst);
+        ms_Data.blendSrc = src;
+        ms_Data.blendDst = dst;
+        ms_Stats.Issued++;
+    }
+
+    /*
+     * Deleting an object that's bound makes GL fall back to 0, so we have to do the same.
+     */
+
+    public static void onProgramDeleted(int program) {
+        if(ms_Data.program == program)
+            ms_Data.program = 0;
+    }
+
+    public static void onTextureDeleted(int texture) {
+        for(int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            if(ms_Data.textures[i] == texture)
+                ms_Data.textures[i] = 0;
+        }
+    }
+
+    public static void onVertexArrayDeleted(int vao) {
+        if(ms_Data.vao == vao)
+            ms_Data.vao = 0;
+    }
+
+    public static void onUniformBufferDeleted(int buffer) {
+        for(int i = 0; i < MAX_UNIFORM_BINDINGS; i++) {
+            if(ms_Data.uniformBuffers[i] == buffer)
+                ms_Data.uniformBuffers[i] = 0;
+        }
+    }
+
+    public static void resetStats() {
+        ms_Stats.Issued = 0L;
+        ms_Stats.Skipped = 0L;
+        ms_Stats.ProgramBinds = 0L;
+        ms_Stats.TextureBinds = 0L;
+        ms_Stats.VertexArrayBinds = 0L;
+    }
+
+    public static void logStats() {
+        long total = ms_Stats.Issued + ms_Stats.Skipped;
+        Log.RENDER.info("GLState: {} state changes issued, {} skipped ({}% avoided)",
+                ms_Stats.Issued, ms_Stats.Skipped, String.format("%.1f", total == 0L ? 0.0 : ms_Stats.Skipped * 100.0 / total));
+    }
+
+    /**
+     * @return the number of state changes that reached the driver.
+     */
+    public static long getIssued() {
+        return ms_Stats.Issued;
+    }
+
+    /**
+     * @return the number of state changes we skipped because nothing would have changed.
+     */
+    public static long getSkipped() {
+        return ms_Stats.Skipped;
+    }
+
+    public static long getProgramBinds() {
+        return ms_Stats.ProgramBinds;
+    }
+
+    public static long getTextureBinds() {
+        return ms_Stats.TextureBinds;
+    }
+
+    public static long getVertexArrayBinds() {
+        return ms_Stats.VertexArrayBinds;
+    }
+
+    public static int getBoundProgram() {
+        return ms_Data.program;
+    }
+
+    public static int getBoundVertexArray() {
+        return ms_Data.vao;
+    }
+
+    private static void activeTexture(int unit) {
+        if(ms_Data.activeUnit == unit)
+            return;
+
+        glActiveTexture(GL_TEXTURE0 + unit);
+        ms_Data.activeUnit = unit;
+    }
+
+    private static int setCapability(int capability, int current, boolean enabled) {
+        int wanted = enabled ? 1 : 0;
+        if(current == wanted) {
+            ms_Stats.Skipped++;
+            return current;
+        }
+
+        if(enabled) glEnable(capability);
+        else glDisable(capability);
+
+        ms_Stats.Issued++;
+        return wanted;
+    }
+
+}
@@ -1,5 +1,6 @@
 package git.arcane.core.graphics;
 
+import git.arcane.core.graphics.rendering.RenderCommands;
 import org.joml.Vector3f;
 import org.lwjgl.system.MemoryUtil;
 
@@ -18,11 +19,16 @@ import static org.lwjgl.opengl.GL45.glCreateVertexArrays;
 /**
  * Handles the data needed for anything to be rendered to our screen.
  * We use two sets of floats to create a valid mesh we'll eventually render.
+ * <br>The vertices and indices belong to whoever builds the Mesh, the buffers and the index count that was uploaded
+ * with them belong to the thread that owns OpenGL. Drawing only ever reads the latter, so a Mesh can be rebuilt
+ * while a recorded frame still draws what was uploaded before.
  */
 public class Mesh {
 
     private static class MeshData {
+        // Only touched on the thread that owns OpenGL.
         public int vao = -1, vbo = -1, ebo = -1;
+        public int uploadedIndices;
 
         public float[] vertices;
         public int[] indices;
@@ -41,9 +47,39 @@ public class Mesh {
         create();
     }
 
+    /**
+     * Uploads the Mesh. While a {@link RenderCommands} list is recording this is deferred to the render thread.
+     */
     public void create() {
+        // The task keeps the arrays as they are now, later calls to setVertices and setIndices don't change what it uploads.
+        final float[] vertices = m_Data.vertices;
+        final int[] indices = m_Data.indices;
+
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.task(() -> upload(vertices, indices));
+            return;
+        }
+
+        upload(vertices, indices);
+    }
+
+    public void dispose() {
+        m_Data.vertices = null;
+        m_Data.indices = null;
+
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.task(this::deleteBuffers);
+            return;
+        }
+
+        deleteBuffers();
+    }
+
+    private void upload(float[] vertices, int[] indices) {
         if(m_Loaded) {
-            dispose();
+            deleteBuffers();
             m_Loaded = false;
         }
 
@@ -51,11 +87,11 @@ public class Mesh {
         IntBuffer indexBuffer = null;
         try {
             m_Data.vao = glGenVertexArrays();
-            glBindVertexArray(m_Data.vao);
+            GLState.bindVertexArray(m_Data.vao);
 
             m_Data.vbo = glGenBuffers();
-            vertexBuffer = MemoryUtil.memAllocFloat(m_Data.vertices.length);
-            vertexBuffer.put(0, m_Data.vertices);
+            vertexBuffer = MemoryUtil.memAllocFloat(vertices.length);
+            vertexBuffer.put(0, vertices);
 
             glBindBuffer(GL_ARRAY_BUFFER, m_Data.vbo);
             glBufferData(GL_ARRAY_BUFFER, vertexBuffer, GL_STATIC_DRAW);
@@ -70,13 +106,14 @@ public class Mesh {
             glVertexAttribPointer(2, 2, GL_FLOAT, false, 8 * Float.BYTES, 6 * Float.BYTES);
 
             m_Data.ebo = glGenBuffers();
-            indexBuffer = MemoryUtil.memAllocInt(m_Data.indices.length);
-            indexBuffer.put(0, m_Data.indices);
+            indexBuffer = MemoryUtil.memAllocInt(indices.length);
+            indexBuffer.put(0, indices);
 
             glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, m_Data.ebo);
             glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+            m_Data.uploadedIndices = indices.length;
 
-            glBindVertexArray(0);
+            GLState.bindVertexArray(0);
         } finally {
             if(vertexBuffer != null)
                 MemoryUtil.memFree(vertexBuffer);
@@ -88,13 +125,12 @@ public class Mesh {
         }
     }
 
-    public void dispose() {
+    private void deleteBuffers() {
         glDeleteVertexArrays(m_Data.vao);
+        GLState.onVertexArrayDeleted(m_Data.vao);
         glDeleteBuffers(m_Data.vbo);
         glDeleteBuffers(m_Data.ebo);
-
-        m_Data.vertices = null;
-        m_Data.indices = null;
+        m_Data.uploadedIndices = 0;
     }
 
     public void setVertices(float[] vertices) {
@@ -117,6 +153,14 @@ public class Mesh {
         return m_Data.indices.length;
     }
 
+    /**
+     * @return the number of indices in the buffers {@link #getVAO()} draws from, which is what a draw has to use.
+     * Only valid on the thread that owns OpenGL.
+     */
+    public int getUploadedIndexCount() {
+        return m_Data.uploadedIndices;
+    }
+
     public float[] getVertices() {
         return m_Data.vertices;
     }
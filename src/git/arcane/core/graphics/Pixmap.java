@@ -0,0 +1,155 @@
+package git.arcane.core.graphics;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.stb.STBImage.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
+
+/**
+ * CPU side pixels of an image, either decoded by stb, allocated by us or borrowed from someone else (like a mapped file).<br>
+ * Nothing in here touches OpenGL, so Pixmaps can be created and filled on any thread.
+ */
+public class Pixmap {
+
+    private enum Owner {
+        STB, MEMORY_UTIL, BORROWED
+    }
+
+    private final int m_Width, m_Height, m_Channels;
+    private final Owner m_Owner;
+    private ByteBuffer m_Pixels;
+
+    private Pixmap(int width, int height, int channels, ByteBuffer pixels, Owner owner) {
+        m_Width = width;
+        m_Height = height;
+        m_Channels = channels;
+
+        m_Pixels = pixels;
+        m_Owner = owner;
+    }
+
+    /**
+     * Frees the pixels. The Pixmap can't be used afterwards.
+     */
+    public void free() {
+        if(m_Pixels == null)
+            return;
+
+        switch(m_Owner) {
+            case STB -> stbi_image_free(m_Pixels);
+            case MEMORY_UTIL -> MemoryUtil.memFree(m_Pixels);
+            case BORROWED -> {}
+        }
+
+        m_Pixels = null;
+    }
+
+    /**
+     * Hands the pixels over to someone else, who becomes responsible for freeing them.
+     * @return the pixels, this Pixmap no longer references them.
+     */
+    public ByteBuffer release() {
+        ByteBuffer pixels = m_Pixels;
+        m_Pixels = null;
+        return pixels;
+    }
+
+    public int getWidth() {
+        return m_Width;
+    }
+
+    public int getHeight() {
+        return m_Height;
+    }
+
+    public int getChannels() {
+        return m_Channels;
+    }
+
+    public ByteBuffer getPixels() {
+        return m_Pixels;
+    }
+
+    public boolean isSTBOwned() {
+        return m_Owner == Owner.STB;
+    }
+
+    /**
+     * Allocates an empty (fully transparent) Pixmap.
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @param channels the amount of bytes per pixel.
+     * @return the new Pixmap.
+     */
+    public static Pixmap allocate(int width, int height, int channels) {
+        return new Pixmap(width, height, channels, MemoryUtil.memCalloc(width * height * channels), Owner.MEMORY_UTIL);
+    }
+
+    /**
+     * Wraps pixels someone else owns, {@link #free()} only lets go of them.<br>
+     * The pixels have to stay valid for as long as the Pixmap is used.
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @param channels the amount of bytes per pixel.
+     * @param pixels the pixels, from position to limit.
+     * @return the new Pixmap.
+     */
+    public static Pixmap wrap(int width, int height, int channels, ByteBuffer pixels) {
+        return new Pixmap(width, height, channels, pixels, Owner.BORROWED);
+    }
+
+    public static Pixmap load(String path) throws IOException {
+        return load(path, 0);
+    }
+
+    /**
+     * Reads and decodes an image from our resources.
+     * @param path the path of the image in our resources.
+     * @param desiredChannels the amount of channels we want, or 0 to keep the image's own.
+     * @return the decoded Pixmap.
+     * @throws IOException if the image can't be read or decoded.
+     */
+    public static Pixmap load(String path, int desiredChannels) throws IOException {
+        try(InputStream is = Pixmap.class.getResourceAsStream(path)) {
+            if(is == null)
+                throw new IOException("Failed to read Image: " + path);
+
+            byte[] data = is.readAllBytes();
+            ByteBuffer imageBuffer = BufferUtils.createByteBuffer(data.length);
+            imageBuffer.put(0, data);
+
+            return decode(imageBuffer, desiredChannels, path);
+        }
+    }
+
+    /**
+     * Decodes an encoded image (png, jpg, ...) that is already in memory.
+     * @param encoded the encoded image.
+     * @param desiredChannels the amount of channels we want, or 0 to keep the image's own.
+     * @param name the name we'll use if something goes wrong.
+     * @return the decoded Pixmap.
+     * @throws IOException if the image can't be decoded.
+     */
+    public static Pixmap decode(ByteBuffer encoded, int desiredChannels, String name) throws IOException {
+        try(MemoryStack stack = stackPush()) {
+            IntBuffer w = stack.mallocInt(1);
+            IntBuffer h = stack.mallocInt(1);
+            IntBuffer channels = stack.mallocInt(1);
+
+            ByteBuffer pixels = stbi_load_from_memory(encoded, w, h, channels, desiredChannels);
+            if(pixels == null)
+                throw new IOException("Failed to read data in Image: " + name + " (" + stbi_failure_reason() + ")");
+
+            int chans = desiredChannels != 0 ? desiredChannels : channels.get(0);
+            return new Pixmap(w.get(0), h.get(0), chans, pixels, Owner.STB);
+        }
+    }
+
+}
@@ -0,0 +1,321 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.util.Log;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL41.*;
+import static org.lwjgl.system.MemoryStack.stackPush;
+
+/**
+ * Hands out one shared {@link Shaders} per pair of shader sources, no matter how often or by whom it's asked for.<br>
+ * Programs are keyed by a hash of their sources and the driver. Once linked, the driver's binary of a program is
+ * written to the cache directory, and later runs hand it straight back to the driver instead of compiling. A binary
+ * the driver rejects, e.g. after a driver update, is compiled from source again and replaced.
+ * <br>Everything here has to happen on the thread that owns OpenGL.
+ */
+public class ShaderRegistry {
+    private static ShaderRegistry ms_Instance = null;
+
+    private static final int MAGIC = 0x52445341; // "ASDR"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+
+    private static class EntryData {
+        public String Key;
+        public Shaders Shader;
+        public int References;
+    }
+
+    private static class StatsData {
+        public int Compiled, Cached, Rejected, Shared;
+        public long CompileNanos, CacheNanos;
+    }
+
+    private final Path m_Directory;
+    private final Map<String, EntryData> m_Entries;
+    private final Map<Shaders, EntryData> m_EntriesByShader;
+    private final StatsData m_Stats;
+
+    // Resolved with the first program, we need the context for both.
+    private String m_Driver;
+    private boolean m_BinarySupported;
+
+    /**
+     * @param cacheDirectory where program binaries are kept, or null to always compile from source.
+     */
+    public ShaderRegistry(Path cacheDirectory) {
+        m_Directory = cacheDirectory;
+        m_Entries = new HashMap<>();
+        m_EntriesByShader = new HashMap<>();
+        m_Stats = new StatsData();
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Gets the program of a vertex and fragment shader, creating it if nobody has yet.<br>
+     * Every acquire should be matched by a {@link Shaders#dispose()}, the program is deleted with the last one.
+     * @param vertPath the path of the vertex shader in our resources.
+     * @param fragPath the path of the fragment shader in our resources.
+     * @return the shared Shaders.
+     */
+    public Shaders acquire(String vertPath, String fragPath) {
+        final String vertex = Shaders.readSource(vertPath);
+        final String fragment = Shaders.readSource(fragPath);
+        final String key = getKey(vertex, fragment);
+
+        EntryData entry = m_Entries.get(key);
+        if(entry != null) {
+            entry.References++;
+            m_Stats.Shared++;
+            return entry.Shader;
+        }
+
+        final Path file = m_BinarySupported && m_Directory != null ? m_Directory.resolve(key + ".bin") : null;
+
+        long start = System.nanoTime();
+        int program = file != null ? loadBinary(file) : 0;
+        if(program != 0) {
+            final long nanos = System.nanoTime() - start;
+            m_Stats.CacheNanos += nanos;
+            m_Stats.Cached++;
+            Log.RENDER.info("Loaded program [{} + {}] from its binary in {}ms", vertPath, fragPath, formatMs(nanos));
+        } else {
+            start = System.nanoTime();
+            program = compile(vertex, vertPath, fragment, fragPath);
+            final long nanos = System.nanoTime() - start;
+            m_Stats.CompileNanos += nanos;
+            m_Stats.Compiled++;
+            Log.RENDER.info("Compiled program [{} + {}] in {}ms", vertPath, fragPath, formatMs(nanos));
+
+            if(file != null)
+                saveBinary(program, file);
+        }
+
+        entry = new EntryData();
+        entry.Key = key;
+        entry.Shader = new Shaders(vertPath, fragPath, program);
+        entry.Shader.setRegistry(this);
+        entry.References = 1;
+
+        m_Entries.put(key, entry);
+        m_EntriesByShader.put(entry.Shader, entry);
+        return entry.Shader;
+    }
+
+    /**
+     * Called by {@link Shaders#dispose()}, deletes the program once nobody uses it anymore.
+     */
+    void release(Shaders shader) {
+        final EntryData entry = m_EntriesByShader.get(shader);
+        if(entry == null) {
+            Log.RENDER.warn("Program [{} + {}] has already been deleted!", shader.getVertexPath(), shader.getFragmentPath());
+            return;
+        }
+
+        if(--entry.References > 0)
+            return;
+
+        m_Entries.remove(entry.Key);
+        m_EntriesByShader.remove(shader);
+        shader.setRegistry(null);
+        shader.destroy();
+    }
+
+    private int compile(String vertex, String vertPath, String fragment, String fragPath) {
+        final int vert = Shaders.createShader(vertex, vertPath, GL_VERTEX_SHADER);
+        final int frag = Shaders.createShader(fragment, fragPath, GL_FRAGMENT_SHADER);
+
+        // The program keeps what it needs, the shader objects are only in the way once it's linked.
+        final int program = Shaders.createProgram(vert, frag, m_BinarySupported);
+        glDeleteShader(vert);
+        glDeleteShader(frag);
+        return program;
+    }
+
+    /**
+     * @return the program created from a cached binary, or 0 if there's no binary or the driver rejected it.
+     */
+    private int loadBinary(Path file) {
+        if(!Files.isRegularFile(file))
+            return 0;
+
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            data.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(data.remaining() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION) {
+                Log.RENDER.warn("Ignoring program binary [{}], it was written by something else!", file);
+                return 0;
+            }
+
+            final int format = data.getInt(), length = data.getInt();
+            if(data.remaining() != length) {
+                Log.RENDER.warn("Ignoring program binary [{}], it is truncated!", file);
+                return 0;
+            }
+
+            final int program = glCreateProgram();
+            glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+            glProgramBinary(program, format, data.slice());
+
+            if(glGetProgrami(program, GL_LINK_STATUS) != GL_TRUE) {
+                Log.RENDER.warn("The driver rejected program binary [{}], compiling it again.", file);
+                glDeleteProgram(program);
+                m_Stats.Rejected++;
+                return 0;
+            }
+
+            return program;
+        } catch (IOException e) {
+            Log.RENDER.warn("Failed to read program binary [{}]: {}", file, e.toString());
+            return 0;
+        }
+    }
+
+    /**
+     * Writes a linked program's binary next to where it ends up and moves it into place, so nobody ever reads half a file.
+     */
+    private void saveBinary(int program, Path file) {
+        final int length = glGetProgrami(program, GL_PROGRAM_BINARY_LENGTH);
+        if(length <= 0)
+            return;
+
+        final ByteBuffer binary = MemoryUtil.memAlloc(length);
+        Path temp = null;
+        try {
+            final int format;
+            try(MemoryStack stack = stackPush()) {
+                final IntBuffer formatBuffer = stack.mallocInt(1);
+                glGetProgramBinary(program, null, formatBuffer, binary);
+                format = formatBuffer.get(0);
+            }
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(format).putInt(length).flip();
+
+            Files.createDirectories(file.getParent());
+            temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer[] buffers = { header, binary };
+                while(buffers[0].hasRemaining() || buffers[1].hasRemaining())
+                    channel.write(buffers);
+            }
+
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            Log.RENDER.warn("Failed to write program binary [{}]: {}", file, e.toString());
+        } finally {
+            MemoryUtil.memFree(binary);
+            if(temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    /**
+     * Hashes the sources together with the driver, a binary is only any good to the driver that wrote it.
+     */
+    private String getKey(String vertex, String fragment) {
+        if(m_Driver == null)
+            resolveDriver();
+
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(m_Driver.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(vertex.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(fragment.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(), 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM has SHA-256, if this one doesn't the sources themselves still tell programs apart.
+            return vertex + '\0' + fragment;
+        }
+    }
+
+    private void resolveDriver() {
+        m_Driver = glGetString(GL_VENDOR) + "|" + glGetString(GL_RENDERER) + "|" + glGetString(GL_VERSION);
+
+        final GLCapabilities caps = GL.getCapabilities();
+        m_BinarySupported = (caps.OpenGL41 || caps.GL_ARB_get_program_binary) && glGetInteger(GL_NUM_PROGRAM_BINARY_FORMATS) > 0;
+        if(!m_BinarySupported && m_Directory != null)
+            Log.RENDER.info("The driver can't hand out program binaries, every program will be compiled from source.");
+    }
+
+    public int getProgramCount() {
+        return m_Entries.size();
+    }
+
+    public int getCompiledCount() {
+        return m_Stats.Compiled;
+    }
+
+    public int getCachedCount() {
+        return m_Stats.Cached;
+    }
+
+    /**
+     * @return the time spent creating programs, compiled or from binaries, in nanoseconds.
+     */
+    public long getCreateNanos() {
+        return m_Stats.CompileNanos + m_Stats.CacheNanos;
+    }
+
+    public void logStats() {
+        Log.RENDER.info("ShaderRegistry: {} programs, {} compiled in {}ms, {} from binaries in {}ms, {} binaries rejected, {} shared",
+                m_Entries.size(), m_Stats.Compiled, formatMs(m_Stats.CompileNanos), m_Stats.Cached,
+                formatMs(m_Stats.CacheNanos), m_Stats.Rejected, m_Stats.Shared);
+    }
+
+    /**
+     * Deletes every program that is still around. Has to be called on the thread that owns OpenGL.
+     */
+    public void dispose() {
+        for(EntryData entry : m_Entries.values()) {
+            entry.Shader.setRegistry(null);
+            entry.Shader.destroy();
+        }
+        m_Entries.clear();
+        m_EntriesByShader.clear();
+
+        if(ms_Instance == this)
+            ms_Instance = null;
+    }
+
+    public static ShaderRegistry get() {
+        return ms_Instance;
+    }
+
+    private static String formatMs(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+}
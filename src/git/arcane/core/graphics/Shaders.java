@@ -1,23 +1,29 @@
 package git.arcane.core.graphics;
 
+import git.arcane.core.graphics.cameras.Camera;
 import git.arcane.core.util.Log;
 import org.joml.Matrix4f;
+import org.joml.Matrix4fc;
 import org.lwjgl.system.MemoryStack;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.FloatBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL41.GL_PROGRAM_BINARY_RETRIEVABLE_HINT;
+import static org.lwjgl.opengl.GL41.glProgramParameteri;
 import static org.lwjgl.system.MemoryStack.stackPush;
 
 /**
  * Reads shader data from shader paths we pass to it on creation.<br>
  * Allows us to bind our shader program and set unique uniform variables per program.
+ * <br>Shaders handed out by a {@link ShaderRegistry} are shared, disposing one only lets go of it.
  */
 public class Shaders {
     private static class ShaderData {
@@ -37,36 +43,95 @@ public class Shaders {
         public String FragmentPath() { return m_ShaderPath.get(1); }
     }
 
+    /**
+     * The last value we uploaded to a uniform, so setting the same value twice doesn't reach the driver.
+     */
+    private static class UniformData {
+        public final int location;
+        public boolean uploaded;
+
+        public int intValue;
+        public float x, y, z;
+        public Matrix4f matrix;
+
+        private UniformData(int location) {
+            this.location = location;
+            this.uploaded = false;
+        }
+    }
+
     private final ShaderData m_Data;
     private final Map<String, Integer> m_UniformMap;
 
+    private UniformData[] m_Uniforms;
+    private int m_UniformCount;
+
+    // Set for programs the registry shares, which only it may delete.
+    private ShaderRegistry m_Registry;
+
     public Shaders(String vertPath, String fragPath) {
+        this(vertPath, fragPath, -1);
+        initialize();
+    }
+
+    /**
+     * Wraps a program the {@link ShaderRegistry} has already linked.
+     */
+    Shaders(String vertPath, String fragPath, int programID) {
         m_Data = new ShaderData(vertPath, fragPath);
+        m_Data.ProgramID = programID;
         m_UniformMap = new HashMap<>();
 
-        initialize();
+        m_Uniforms = new UniformData[8];
+        m_UniformCount = 0;
+
+        if(programID > 0)
+            bindUniformBlocks();
     }
 
     private void initialize() {
-        m_Data.VertexID = createShader(m_Data.VertexPath(), GL_VERTEX_SHADER);
-        m_Data.FragmentID = createShader(m_Data.FragmentPath(), GL_FRAGMENT_SHADER);
+        m_Data.VertexID = createShader(readSource(m_Data.VertexPath()), m_Data.VertexPath(), GL_VERTEX_SHADER);
+        m_Data.FragmentID = createShader(readSource(m_Data.FragmentPath()), m_Data.FragmentPath(), GL_FRAGMENT_SHADER);
+
+        m_Data.ProgramID = createProgram(m_Data.VertexID, m_Data.FragmentID, false);
+        bindUniformBlocks();
+    }
 
-        m_Data.ProgramID = createProgram(m_Data.VertexID, m_Data.FragmentID);
+    /**
+     * Points our <i>Camera</i> block, if we have one, at the binding point every {@link Camera} binds its buffer to.
+     */
+    private void bindUniformBlocks() {
+        final int block = glGetUniformBlockIndex(m_Data.ProgramID, Camera.UNIFORM_BLOCK);
+        if(block != GL_INVALID_INDEX)
+            glUniformBlockBinding(m_Data.ProgramID, block, Camera.UNIFORM_BINDING);
     }
 
     public void bind() {
-        glUseProgram(m_Data.ProgramID);
+        GLState.useProgram(m_Data.ProgramID);
     }
 
     public void dispose() {
+        if(m_Registry != null) {
+            m_Registry.release(this);
+            return;
+        }
+
+        destroy();
+    }
+
+    void destroy() {
         glDeleteProgram(m_Data.ProgramID);
+        GLState.onProgramDeleted(m_Data.ProgramID);
 
-        glDeleteShader(m_Data.VertexID);
-        glDeleteShader(m_Data.FragmentID);
+        // Programs from the registry never kept their shader objects.
+        if(m_Data.VertexID > 0)
+            glDeleteShader(m_Data.VertexID);
+        if(m_Data.FragmentID > 0)
+            glDeleteShader(m_Data.FragmentID);
     }
 
     public void setUniform1i(String name, int value) {
-        glUniform1i(getUniformLocation(name), value);
+        setUniform1i(getUniformHandle(name), value);
     }
 
     public void setUniformBool(String name, boolean value) {
@@ -74,49 +139,155 @@ public class Shaders {
     }
 
     public void setUniform1f(String name, float value) {
-        glUniform1f(getUniformLocation(name), value);
+        setUniform1f(getUniformHandle(name), value);
     }
 
     public void setUniform2f(String name, float val1, float val2) {
-        glUniform2f(getUniformLocation(name), val1, val2);
+        setUniform2f(getUniformHandle(name), val1, val2);
     }
 
     public void setUniform3f(String name, float val1, float val2, float val3) {
-        glUniform3f(getUniformLocation(name), val1, val2, val3);
+        setUniform3f(getUniformHandle(name), val1, val2, val3);
     }
 
     public void setUniformMat4(String name, Matrix4f value) {
+        setUniformMat4(getUniformHandle(name), value);
+    }
+
+    /*
+     * Handle based setters. These skip the name lookup entirely and only upload values that changed.
+     * The program has to be bound when calling them, just like with the name based setters.
+     */
+
+    public void setUniform1i(int handle, int value) {
+        UniformData uniform = m_Uniforms[handle];
+        if(uniform.uploaded && uniform.intValue == value)
+            return;
+
+        glUniform1i(uniform.location, value);
+        uniform.intValue = value;
+        uniform.uploaded = true;
+    }
+
+    public void setUniformBool(int handle, boolean value) {
+        setUniform1i(handle, value ? GL_TRUE : GL_FALSE);
+    }
+
+    public void setUniform1f(int handle, float value) {
+        UniformData uniform = m_Uniforms[handle];
+        if(uniform.uploaded && uniform.x == value)
+            return;
+
+        glUniform1f(uniform.location, value);
+        uniform.x = value;
+        uniform.uploaded = true;
+    }
+
+    public void setUniform2f(int handle, float val1, float val2) {
+        UniformData uniform = m_Uniforms[handle];
+        if(uniform.uploaded && uniform.x == val1 && uniform.y == val2)
+            return;
+
+        glUniform2f(uniform.location, val1, val2);
+        uniform.x = val1;
+        uniform.y = val2;
+        uniform.uploaded = true;
+    }
+
+    public void setUniform3f(int handle, float val1, float val2, float val3) {
+        UniformData uniform = m_Uniforms[handle];
+        if(uniform.uploaded && uniform.x == val1 && uniform.y == val2 && uniform.z == val3)
+            return;
+
+        glUniform3f(uniform.location, val1, val2, val3);
+        uniform.x = val1;
+        uniform.y = val2;
+        uniform.z = val3;
+        uniform.uploaded = true;
+    }
+
+    public void setUniformMat4(int handle, Matrix4fc value) {
+        UniformData uniform = m_Uniforms[handle];
+        if(uniform.uploaded && uniform.matrix.equals(value))
+            return;
+
         try(MemoryStack stack = stackPush()) {
             FloatBuffer buffer = stack.mallocFloat(16);
             value.get(buffer);
-            glUniformMatrix4fv(getUniformLocation(name), false, buffer);
+            glUniformMatrix4fv(uniform.location, false, buffer);
         }
+
+        if(uniform.matrix == null)
+            uniform.matrix = new Matrix4f();
+
+        uniform.matrix.set(value);
+        uniform.uploaded = true;
     }
 
+    /**
+     * Looks up a uniform in our program and hands back a handle we can set it with.<br>
+     * Resolve handles once and keep them around, setting uniforms through handles never touches the name lookup.
+     * @param name the name of the uniform in our shader source.
+     * @return the handle of the uniform.
+     */
     public int createUniform(String name) {
+        Integer existing = m_UniformMap.get(name);
+        if(existing != null)
+            return existing;
+
         int location = glGetUniformLocation(m_Data.ProgramID, name);
         if(location < 0) {
             Log.RENDER.error("Failed to create uniform!");
             System.exit(-1);
         }
 
-        m_UniformMap.put(name, location);
-        return getUniformLocation(name);
+        if(m_UniformCount == m_Uniforms.length)
+            m_Uniforms = Arrays.copyOf(m_Uniforms, m_Uniforms.length * 2);
+
+        int handle = m_UniformCount++;
+        m_Uniforms[handle] = new UniformData(location);
+
+        m_UniformMap.put(name, handle);
+        return handle;
     }
 
-    private int getUniformLocation(String name) {
-        if(!m_UniformMap.containsKey(name))
-            return createUniform(name);
+    public int getUniformHandle(String name) {
+        return createUniform(name);
+    }
 
-        return m_UniformMap.get(name);
+    public int getUniformLocation(int handle) {
+        return m_Uniforms[handle].location;
     }
 
-    private int createProgram(int vertex, int fragment) {
+    public int getProgramID() {
+        return m_Data.ProgramID;
+    }
+
+    public String getVertexPath() {
+        return m_Data.VertexPath();
+    }
+
+    public String getFragmentPath() {
+        return m_Data.FragmentPath();
+    }
+
+    void setRegistry(ShaderRegistry registry) {
+        m_Registry = registry;
+    }
+
+    /**
+     * Links a program out of compiled shaders, which stay ours to delete.
+     * @param retrievable whether we'll ask the driver for the linked binary afterwards.
+     */
+    static int createProgram(int vertex, int fragment, boolean retrievable) {
         int program = glCreateProgram();
 
         glAttachShader(program, vertex);
         glAttachShader(program, fragment);
 
+        if(retrievable)
+            glProgramParameteri(program, GL_PROGRAM_BINARY_RETRIEVABLE_HINT, GL_TRUE);
+
         glLinkProgram(program);
         if(glGetProgrami(program, GL_LINK_STATUS) != GL_TRUE) {
             Log.RENDER.error("Failed to link Shaders to our Program!\n{}", glGetProgramInfoLog(program, 1024));
@@ -133,42 +304,33 @@ public class Shaders {
         return program;
     }
 
-    private int createShader(String path, int type) {
+    static int createShader(String source, String path, int type) {
         int shader = glCreateShader(type);
-        glShaderSource(shader, readSrcFromFile(path));
+        glShaderSource(shader, source);
 
         glCompileShader(shader);
         if(glGetShaderi(shader, GL_COMPILE_STATUS) != GL_TRUE) {
-            Log.RENDER.error("Failed to compile shader: \n{}", glGetShaderInfoLog(shader, 1024));
+            Log.RENDER.error("Failed to compile shader [{}]: \n{}", path, glGetShaderInfoLog(shader, 1024));
             throw new RuntimeException("Failed to load OpenGL Shader");
         }
 
         return shader;
     }
 
-    private String readSrcFromFile(String shaderPath) {
-        String result;
+    /**
+     * Reads a shader source from our resources in one go.
+     */
+    static String readSource(String shaderPath) {
         try (InputStream is = Shaders.class.getResourceAsStream(shaderPath)) {
             if(is == null) {
                 Log.RENDER.error("Failed to read Source from [{}]!", shaderPath);
                 throw new IOException("Failed to read Shader Source!");
             }
 
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
-            StringBuilder sb = new StringBuilder();
-
-            String line;
-            while((line = br.readLine()) != null) {
-                sb.append(line).append("\n");
-            }
-
-            br.close();
-            result = sb.toString();
+            return new String(is.readAllBytes(), StandardCharsets.UTF_8);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
-
-        return result;
     }
 
 }
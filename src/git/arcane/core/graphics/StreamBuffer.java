@@ -0,0 +1,283 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.profiler.Profiler;
+import git.arcane.core.util.Log;
+import org.lwjgl.opengl.ARBBufferStorage;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL44.*;
+
+/**
+ * A GL buffer for data we rewrite every frame, like the vertices of a {@link git.arcane.core.graphics.rendering.SpriteBatch}.<br>
+ * The buffer is split into {@link #REGIONS} regions that we fill one after the other. Before we come back around to a
+ * region we wait on a fence, so we never overwrite data the GPU hasn't drawn yet and the driver never has to stall us.
+ * How the data gets in depends on what the context supports, see {@link Mode}.
+ */
+public class StreamBuffer {
+
+    public static final int REGIONS = 3;
+
+    /**
+     * How we write into the buffer.<br>
+     * PERSISTENT maps the buffer once (ARB_buffer_storage / GL 4.4) and writes straight into it.
+     * UNSYNCHRONIZED maps just the range we write with glMapBufferRange, which the GL 3.3 context we ask for supports.
+     * ORPHAN uploads with glBufferSubData and hands the whole buffer back to the driver whenever it's full.
+     */
+    public enum Mode {
+        PERSISTENT, UNSYNCHRONIZED, ORPHAN
+    }
+
+    private static class StreamData {
+        public int id = -1, target;
+        public Mode mode;
+
+        public long regionSize, alignment;
+        public long offset;
+        public int region;
+
+        public long mapped = MemoryUtil.NULL;
+        public final long[] fences = new long[REGIONS];
+    }
+
+    private static class StreamStats {
+        public long BytesStreamed, Uploads;
+        public long FenceWaits, FenceWaitNanos;
+    }
+
+    private final StreamData m_Data;
+    private final StreamStats m_Stats;
+
+    public StreamBuffer(int target, long regionSize, int alignment) {
+        this(target, regionSize, alignment, getBestMode());
+    }
+
+    /**
+     * Creates the buffer.
+     * @param target the target we bind the buffer to, usually GL_ARRAY_BUFFER.
+     * @param regionSize the most bytes a single upload can hold. The buffer is {@link #REGIONS} times this big.
+     * @param alignment every upload starts at a multiple of this, e.g. the size of a vertex.
+     * @param mode how we write into the buffer. Falls back to {@link #getBestMode()} if it isn't supported.
+     */
+    public StreamBuffer(int target, long regionSize, int alignment, Mode mode) {
+        m_Data = new StreamData();
+        m_Stats = new StreamStats();
+
+        m_Data.target = target;
+        m_Data.alignment = Math.max(1, alignment);
+        m_Data.regionSize = align(regionSize, m_Data.alignment);
+
+        if(mode == Mode.PERSISTENT && getBestMode() != Mode.PERSISTENT) {
+            Log.RENDER.warn("Persistent buffer mapping isn't supported, falling back to {}", getBestMode());
+            mode = getBestMode();
+        }
+        m_Data.mode = mode;
+
+        create();
+    }
+
+    private void create() {
+        final long size = m_Data.regionSize * REGIONS;
+
+        m_Data.id = glGenBuffers();
+        glBindBuffer(m_Data.target, m_Data.id);
+
+        if(m_Data.mode == Mode.PERSISTENT) {
+            final int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+            if(GL.getCapabilities().OpenGL44) glBufferStorage(m_Data.target, size, flags);
+            else ARBBufferStorage.glBufferStorage(m_Data.target, size, flags);
+
+            m_Data.mapped = nglMapBufferRange(m_Data.target, 0L, size, flags);
+            if(m_Data.mapped == MemoryUtil.NULL) {
+                // Storage is immutable, so the buffer has to be created again to be used any other way.
+                Log.RENDER.warn("Failed to map a persistent StreamBuffer, falling back to {}", Mode.UNSYNCHRONIZED);
+                glDeleteBuffers(m_Data.id);
+                m_Data.mode = Mode.UNSYNCHRONIZED;
+                create();
+                return;
+            }
+        } else {
+            glBufferData(m_Data.target, size, GL_STREAM_DRAW);
+        }
+
+        Log.RENDER.debug("Created a {}KB StreamBuffer using {}", size / 1024, m_Data.mode);
+    }
+
+    /**
+     * Copies the remaining data of a buffer (position to limit) into the GL buffer.
+     * @param data the data to upload, its position is left untouched.
+     * @return the offset in bytes where the data starts in the GL buffer, or -1 if nothing was uploaded.
+     */
+    public long upload(Buffer data) {
+        final int elementSize = data instanceof ByteBuffer ? 1 : data instanceof ShortBuffer ? 2 : 4;
+        final long bytes = (long) data.remaining() * elementSize;
+        final long source = MemoryUtil.memAddress0(data) + (long) data.position() * elementSize;
+
+        return upload(source, bytes);
+    }
+
+    /**
+     * Copies bytes from native memory into the GL buffer.
+     * @param source the address of the data.
+     * @param bytes how many bytes to copy. Can't be more than the region size.
+     * @return the offset in bytes where the data starts in the GL buffer, or -1 if nothing was uploaded.
+     */
+    public long upload(long source, long bytes) {
+        if(bytes > m_Data.regionSize) {
+            Log.RENDER.error("Can't stream {} bytes at once, the StreamBuffer's regions hold {}!", bytes, m_Data.regionSize);
+            return -1L;
+        }
+
+        final long offset = reserve(bytes);
+        glBindBuffer(m_Data.target, m_Data.id);
+
+        switch(m_Data.mode) {
+            case PERSISTENT -> MemoryUtil.memCopy(source, m_Data.mapped + offset, bytes);
+            case UNSYNCHRONIZED -> {
+                // Our fences already keep us away from data in flight, so the driver doesn't need to check.
+                long mapped = nglMapBufferRange(m_Data.target, offset, bytes,
+                        GL_MAP_WRITE_BIT | GL_MAP_UNSYNCHRONIZED_BIT | GL_MAP_INVALIDATE_RANGE_BIT);
+                if(mapped == MemoryUtil.NULL) {
+                    Log.RENDER.error("Failed to map {} bytes of a StreamBuffer, skipping the upload!", bytes);
+                    return -1L;
+                }
+                MemoryUtil.memCopy(source, mapped, bytes);
+                glUnmapBuffer(m_Data.target);
+            }
+            case ORPHAN -> nglBufferSubData(m_Data.target, offset, bytes, source);
+        }
+
+        m_Stats.BytesStreamed += bytes;
+        m_Stats.Uploads++;
+        Profiler.count(Profiler.Counter.STREAMED_BYTES, bytes);
+        return offset;
+    }
+
+    public void dispose() {
+        for(int i = 0; i < REGIONS; i++) {
+            if(m_Data.fences[i] != MemoryUtil.NULL)
+                glDeleteSync(m_Data.fences[i]);
+            m_Data.fences[i] = MemoryUtil.NULL;
+        }
+
+        if(m_Data.mapped != MemoryUtil.NULL) {
+            glBindBuffer(m_Data.target, m_Data.id);
+            glUnmapBuffer(m_Data.target);
+            m_Data.mapped = MemoryUtil.NULL;
+        }
+
+        glDeleteBuffers(m_Data.id);
+        m_Data.id = -1;
+    }
+
+    public int getID() {
+        return m_Data.id;
+    }
+
+    public Mode getMode() {
+        return m_Data.mode;
+    }
+
+    public long getRegionSize() {
+        return m_Data.regionSize;
+    }
+
+    /**
+     * @return the bytes we've uploaded over our whole lifetime. The Profiler tracks them per frame.
+     */
+    public long getBytesStreamed() {
+        return m_Stats.BytesStreamed;
+    }
+
+    public long getUploads() {
+        return m_Stats.Uploads;
+    }
+
+    /**
+     * @return how many times we had to wait for the GPU to finish with a region before reusing it.
+     */
+    public long getFenceWaits() {
+        return m_Stats.FenceWaits;
+    }
+
+    public long getFenceWaitNanos() {
+        return m_Stats.FenceWaitNanos;
+    }
+
+    /**
+     * @return the best way of streaming the current context supports.
+     */
+    public static Mode getBestMode() {
+        final GLCapabilities caps = GL.getCapabilities();
+        return caps.OpenGL44 || caps.GL_ARB_buffer_storage ? Mode.PERSISTENT : Mode.UNSYNCHRONIZED;
+    }
+
+    /**
+     * Finds room for the next upload, moving on to the next region if the current one is full.
+     */
+    private long reserve(long bytes) {
+        long offset = align(m_Data.offset, m_Data.alignment);
+        long regionEnd = (m_Data.region + 1) * m_Data.regionSize;
+
+        if(offset + bytes > regionEnd) {
+            nextRegion();
+            offset = m_Data.region * m_Data.regionSize;
+        }
+
+        m_Data.offset = offset + bytes;
+        return offset;
+    }
+
+    private void nextRegion() {
+        if(m_Data.mode == Mode.ORPHAN) {
+            m_Data.region = (m_Data.region + 1) % REGIONS;
+
+            // Wrapping around hands the old storage to the driver, who keeps it alive until the GPU is done with it.
+            if(m_Data.region == 0) {
+                glBindBuffer(m_Data.target, m_Data.id);
+                glBufferData(m_Data.target, m_Data.regionSize * REGIONS, GL_STREAM_DRAW);
+            }
+            return;
+        }
+
+        // Remember when the GPU is done with the region we just filled...
+        m_Data.fences[m_Data.region] = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+        m_Data.region = (m_Data.region + 1) % REGIONS;
+
+        // ...and make sure it is done with the one we're about to fill.
+        final long fence = m_Data.fences[m_Data.region];
+        if(fence == MemoryUtil.NULL)
+            return;
+
+        if(glClientWaitSync(fence, 0, 0L) == GL_TIMEOUT_EXPIRED) {
+            final long start = System.nanoTime();
+            int status;
+            do {
+                status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, 1_000_000L);
+            } while(status == GL_TIMEOUT_EXPIRED);
+
+            if(status == GL_WAIT_FAILED)
+                Log.RENDER.error("Waiting on a StreamBuffer fence failed!");
+
+            m_Stats.FenceWaits++;
+            m_Stats.FenceWaitNanos += System.nanoTime() - start;
+            Profiler.count(Profiler.Counter.FENCE_WAITS, 1L);
+        }
+
+        glDeleteSync(fence);
+        m_Data.fences[m_Data.region] = MemoryUtil.NULL;
+    }
+
+    private static long align(long value, long alignment) {
+        return (value + alignment - 1) / alignment * alignment;
+    }
+
+}
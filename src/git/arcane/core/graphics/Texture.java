@@ -1,27 +1,27 @@
 package git.arcane.core.graphics;
 
+import git.arcane.core.graphics.rendering.RegionCache;
 import git.arcane.core.util.Log;
-import org.lwjgl.BufferUtils;
-import org.lwjgl.system.MemoryStack;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.nio.IntBuffer;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
-import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL13.GL_CLAMP_TO_BORDER;
 import static org.lwjgl.opengl.GL30.*;
 import static org.lwjgl.opengl.GL45.glCreateTextures;
-import static org.lwjgl.stb.STBImage.*;
-import static org.lwjgl.system.MemoryStack.stackPush;
+import static org.lwjgl.stb.STBImage.stbi_image_free;
 
 /**
- * Loads an image into usable OpenGL information and helps us bind it so we can render it to the screen.
+ * Loads an image into usable OpenGL information and helps us bind it so we can render it to the screen.<br>
+ * Every Texture keeps an estimate of the video memory its levels take up, which adds up to {@link #getTotalVramBytes()}.
  */
 public class Texture {
 
+    // Every Texture's levels together, updated on whichever thread owns OpenGL.
+    private static final AtomicLong ms_TotalVramBytes = new AtomicLong();
+
     private static class TextureData {
         public int RenderID;
         public ByteBuffer ImageData;
@@ -29,6 +29,12 @@ public class Texture {
         public String Path;
         public int Width, Height;
         public int Channels;
+
+        public long VramBytes;
+
+        // Set while a TextureManager is in charge of us, which may free our storage and bring it back.
+        public TextureManager Manager;
+        public long LastBound;
     }
 
     private final TextureData m_Data;
@@ -43,21 +49,44 @@ public class Texture {
     }
 
     public void bind(int slot) {
-        glActiveTexture(GL_TEXTURE0 + slot);
-        glBindTexture(GL_TEXTURE_2D, m_Data.RenderID);
+        if(m_Data.Manager != null)
+            m_Data.Manager.onBind(this);
+
+        GLState.bindTexture(slot, m_Data.RenderID);
     }
 
     public void delete() {
-        glDeleteTextures(m_Data.RenderID);
-        stbi_image_free(m_Data.ImageData);
+        if(m_Data.Manager != null)
+            m_Data.Manager.onDeleted(this);
+
+        // Regions of a deleted Texture would keep it alive and could never be drawn again.
+        RegionCache.evict(this);
+        release();
+
+        if(m_Data.ImageData != null)
+            stbi_image_free(m_Data.ImageData);
+        m_Data.ImageData = null;
     }
 
     public void uploadData(int width, int height, ByteBuffer data) {
-        uploadData(GL_RGBA16, width, height, GL_RGBA, data);
+        uploadData(GL_RGBA8, width, height, GL_RGBA, data);
     }
 
     public void uploadData(int internalFormat, int width, int height, int format, ByteBuffer data) {
-        glTexImage2D(GL_TEXTURE_2D, 0, internalFormat, width, height, 0, format, GL_UNSIGNED_BYTE, data);
+        uploadData(0, internalFormat, width, height, format, data);
+    }
+
+    public void uploadData(int level, int internalFormat, int width, int height, int format, ByteBuffer data) {
+        glTexImage2D(GL_TEXTURE_2D, level, internalFormat, width, height, 0, format, GL_UNSIGNED_BYTE, data);
+        addVramBytes((long) width * height * getBytesPerTexel(internalFormat));
+    }
+
+    /**
+     * Generates every mip level below the first, which adds about a third to our size.
+     */
+    public void generateMipmaps() {
+        glGenerateMipmap(GL_TEXTURE_2D);
+        addVramBytes(m_Data.VramBytes / 3);
     }
 
     public void setParameter(int name, int value) {
@@ -72,7 +101,7 @@ public class Texture {
         m_Data.ImageData = data;
     }
 
-    private void setPath(String path) {
+    void setPath(String path) {
         m_Data.Path = path;
     }
 
@@ -111,61 +140,163 @@ public class Texture {
         return m_Data.Channels;
     }
 
-    public static Texture createTexture(int width, int height, int channels, ByteBuffer data) {
-        Texture texture = new Texture();
+    /**
+     * @return an estimate of the video memory our levels take up, 0 while a {@link TextureManager} has evicted us.
+     */
+    public long getVramBytes() {
+        return m_Data.VramBytes;
+    }
 
-        texture.setImageData(data);
-        texture.setWidth(width);
-        texture.setHeight(height);
-        texture.setChannels(channels);
+    public boolean isResident() {
+        return m_Data.RenderID != 0;
+    }
 
-        texture.bind();
+    /**
+     * @return an estimate of the video memory every Texture takes up together.
+     */
+    public static long getTotalVramBytes() {
+        return ms_TotalVramBytes.get();
+    }
 
-        texture.setParameter(GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
-        texture.setParameter(GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
+    /**
+     * Picks the sized internal format that holds 8 bits per channel.
+     */
+    public static int getInternalFormat(int channels) {
+        return switch(channels) {
+            case 1 -> GL_R8;
+            case 2 -> GL_RG8;
+            case 3 -> GL_RGB8;
+            default -> GL_RGBA8;
+        };
+    }
 
-        texture.setParameter(GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_NEAREST);
-        texture.setParameter(GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+    public static int getFormat(int channels) {
+        return switch(channels) {
+            case 1 -> GL_RED;
+            case 2 -> GL_RG;
+            case 3 -> GL_RGB;
+            default -> GL_RGBA;
+        };
+    }
 
-        switch(texture.getChannels()) {
-            case 3 -> texture.uploadData(GL_RGB16, texture.getWidth(), texture.getHeight(), GL_RGB, texture.getImageData());
-            case 4 -> texture.uploadData(texture.getWidth(), texture.getHeight(), texture.getImageData());
-        }
+    /**
+     * Sets up an image's storage, uploads it and generates its mip levels. Called for new Textures and by the
+     * {@link TextureManager} when it brings back one it evicted.
+     */
+    void create(int width, int height, int channels, ByteBuffer data) {
+        generate();
 
-        glGenerateMipmap(GL_TEXTURE_2D);
+        setWidth(width);
+        setHeight(height);
+        setChannels(channels);
+
+        bind();
+
+        setParameter(GL_TEXTURE_WRAP_S, GL_CLAMP_TO_BORDER);
+        setParameter(GL_TEXTURE_WRAP_T, GL_CLAMP_TO_BORDER);
+
+        setParameter(GL_TEXTURE_MIN_FILTER, GL_NEAREST_MIPMAP_NEAREST);
+        setParameter(GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+
+        // Rows of 1 to 3 byte texels don't always end on the 4 byte boundary OpenGL expects by default.
+        final boolean aligned = (width * channels) % 4 == 0;
+        if(!aligned)
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+
+        uploadData(getInternalFormat(channels), width, height, getFormat(channels), data);
+
+        if(!aligned)
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+
+        generateMipmaps();
+    }
+
+    /**
+     * Gets us a new name from OpenGL if {@link #release()} gave ours back.
+     */
+    void generate() {
+        if(m_Data.RenderID == 0)
+            m_Data.RenderID = glGenTextures();
+    }
+
+    /**
+     * Frees our storage on the GPU but keeps everything else, so the Texture can be created again.
+     */
+    void release() {
+        if(m_Data.RenderID == 0)
+            return;
+
+        glDeleteTextures(m_Data.RenderID);
+        GLState.onTextureDeleted(m_Data.RenderID);
+        m_Data.RenderID = 0;
+
+        addVramBytes(-m_Data.VramBytes);
+    }
+
+    void setManager(TextureManager manager) {
+        m_Data.Manager = manager;
+    }
+
+    void setLastBound(long lastBound) {
+        m_Data.LastBound = lastBound;
+    }
+
+    long getLastBound() {
+        return m_Data.LastBound;
+    }
+
+    private void addVramBytes(long bytes) {
+        m_Data.VramBytes += bytes;
+        ms_TotalVramBytes.addAndGet(bytes);
+    }
+
+    private static int getBytesPerTexel(int internalFormat) {
+        return switch(internalFormat) {
+            case GL_R8 -> 1;
+            case GL_RG8 -> 2;
+            // Drivers pad 3 channel formats to 4 bytes.
+            case GL_RGB8, GL_RGBA8 -> 4;
+            case GL_RGB16, GL_RGBA16 -> 8;
+            default -> 4;
+        };
+    }
+
+    /**
+     * Uploads pixels into a new Texture. The pixels stay the caller's, they can be freed right after.
+     * @param width the width in pixels.
+     * @param height the height in pixels.
+     * @param channels the amount of bytes per pixel, the internal format is picked from it.
+     * @param data the pixels.
+     * @return the uploaded Texture.
+     */
+    public static Texture createTexture(int width, int height, int channels, ByteBuffer data) {
+        Texture texture = new Texture();
+        texture.create(width, height, channels, data);
         return texture;
     }
 
     public static Texture loadTexture(String path) {
-        int width, height, chans;
-        ByteBuffer imageData = null;
-        try(MemoryStack stack = stackPush()) {
-            IntBuffer w = stack.mallocInt(1);
-            IntBuffer h = stack.mallocInt(1);
-            IntBuffer channels = stack.mallocInt(1);
-
-            try(InputStream is = Texture.class.getResourceAsStream(path)) {
-                if(is == null)
-                    throw new IOException("Failed to read Texture: " + path);
-
-                byte[] data = is.readAllBytes();
-                ByteBuffer imageBuffer = BufferUtils.createByteBuffer(data.length);
-                imageBuffer.put(0, data);
-                imageData = stbi_load_from_memory(imageBuffer, w, h, channels, 0);
-                if(imageData == null)
-                    throw new IOException("Failed to read data in Texture: " + path);
-            } catch (IOException e) {
-                Log.RENDER.error("Failed to load Texture:\n{}", e.getMessage());
-                System.exit(-1);
-            }
-
-            width = w.get(0);
-            height = h.get(0);
-            chans = channels.get(0);
+        Pixmap pixmap = null;
+        try {
+            pixmap = Pixmap.load(path);
+        } catch (IOException e) {
+            Log.RENDER.error("Failed to load Texture:\n{}", e.getMessage());
+            System.exit(-1);
         }
 
-        Texture result = createTexture(width, height, chans, imageData);
+        return createTexture(path, pixmap);
+    }
+
+    /**
+     * Uploads an already decoded {@link Pixmap} and frees it, the driver has its own copy of the pixels.
+     * @param path the path the Pixmap was loaded from.
+     * @param pixmap the decoded image.
+     * @return the uploaded Texture.
+     */
+    public static Texture createTexture(String path, Pixmap pixmap) {
+        Texture result = createTexture(pixmap.getWidth(), pixmap.getHeight(), pixmap.getChannels(), pixmap.getPixels());
         result.setPath(path);
+        pixmap.free();
         return result;
     }
 
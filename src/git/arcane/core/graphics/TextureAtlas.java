@@ -0,0 +1,397 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.util.Log;
+import org.lwjgl.system.MemoryUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs many images into a few large page {@link Texture}s so drawing a scene doesn't keep switching Textures.<br>
+ * Images are added first, then {@link #pack()} places them with a skyline packer and uploads the pages.
+ * Every image is surrounded by a border of its own edge pixels, so filtering never bleeds into its neighbours.
+ */
+public class TextureAtlas {
+
+    public static final int DEFAULT_PAGE_SIZE = 1024;
+    public static final int DEFAULT_PADDING = 2;
+
+    private static final int CHANNELS = 4;
+
+    /**
+     * A handle to an image inside the atlas. It is handed out when the image is added,
+     * but only knows its page and position once the atlas has been packed.
+     */
+    public static class Region {
+        private final String m_Name;
+        private final int m_Width, m_Height;
+
+        private Pixmap m_Pixmap;
+        private Page m_Page;
+        private int m_X, m_Y;
+
+        private Region(String name, Pixmap pixmap) {
+            m_Name = name;
+            m_Width = pixmap.getWidth();
+            m_Height = pixmap.getHeight();
+            m_Pixmap = pixmap;
+        }
+
+        public boolean isPacked() {
+            return m_Page != null;
+        }
+
+        public String getName() {
+            return m_Name;
+        }
+
+        public Texture getTexture() {
+            return m_Page != null ? m_Page.texture : null;
+        }
+
+        public int getPageWidth() {
+            return m_Page != null ? m_Page.width : 0;
+        }
+
+        public int getPageHeight() {
+            return m_Page != null ? m_Page.height : 0;
+        }
+
+        /**
+         * @return the x position (in pixels) of the image inside its page.
+         */
+        public int getX() {
+            return m_X;
+        }
+
+        /**
+         * @return the y position (in pixels) of the image inside its page.
+         */
+        public int getY() {
+            return m_Y;
+        }
+
+        public int getWidth() {
+            return m_Width;
+        }
+
+        public int getHeight() {
+            return m_Height;
+        }
+    }
+
+    private static class Page {
+        public final int width, height;
+        public final List<Skyline> skyline;
+        public Pixmap pixels;
+        public Texture texture;
+
+        private Page(int width, int height) {
+            this.width = width;
+            this.height = height;
+
+            skyline = new ArrayList<>();
+            skyline.add(new Skyline(0, 0, width));
+        }
+    }
+
+    private static class Skyline {
+        public int x, y, width;
+
+        private Skyline(int x, int y, int width) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+
+    private final int m_PageSize, m_Padding;
+    private final Map<String, Region> m_Regions;
+    private final List<Page> m_Pages;
+
+    private boolean m_Packed;
+    private long m_PackTimeNanos;
+    private long m_UsedPixels;
+
+    public TextureAtlas() {
+        this(DEFAULT_PAGE_SIZE, DEFAULT_PADDING);
+    }
+
+    public TextureAtlas(int pageSize, int padding) {
+        m_PageSize = pageSize;
+        m_Padding = padding;
+
+        m_Regions = new HashMap<>();
+        m_Pages = new ArrayList<>();
+        m_Packed = false;
+    }
+
+    /**
+     * Reads an image from our resources and queues it to be packed.
+     * @param name the name we can find the image by later.
+     * @param path the path of the image in our resources.
+     * @return the handle of the image, valid once the atlas is packed.
+     */
+    public Region add(String name, String path) {
+        try {
+            return add(name, Pixmap.load(path, CHANNELS));
+        } catch (IOException e) {
+            Log.RENDER.error("Failed to add [{}] to TextureAtlas:\n{}", name, e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    /**
+     * Queues an RGBA {@link Pixmap} to be packed. The atlas takes ownership of the Pixmap and frees it when packed.
+     * @param name the name we can find the image by later.
+     * @param pixmap the RGBA pixels of the image.
+     * @return the handle of the image, valid once the atlas is packed.
+     */
+    public Region add(String name, Pixmap pixmap) {
+        if(m_Packed) {
+            Log.RENDER.error("Can't add [{}], the TextureAtlas has already been packed!", name);
+            return null;
+        }
+
+        if(pixmap.getChannels() != CHANNELS) {
+            Log.RENDER.error("TextureAtlas images must be RGBA, [{}] has {} channels!", name, pixmap.getChannels());
+            return null;
+        }
+
+        if(m_Regions.containsKey(name)) {
+            Log.RENDER.warn("There is already an image [{}] in the TextureAtlas!", name);
+            return m_Regions.get(name);
+        }
+
+        Region region = new Region(name, pixmap);
+        m_Regions.put(name, region);
+        return region;
+    }
+
+    /**
+     * Places every queued image on a page, then uploads the pages as {@link Texture}s.
+     */
+    public void pack() {
+        if(m_Packed)
+            return;
+
+        long start = System.nanoTime();
+
+        // Tallest first keeps the skyline flat, which wastes a lot less space.
+        List<Region> regions = new ArrayList<>(m_Regions.values());
+        regions.sort((a, b) -> b.m_Height != a.m_Height ? b.m_Height - a.m_Height : b.m_Width - a.m_Width);
+
+        for(Region region : regions) {
+            place(region);
+            m_UsedPixels += (long) region.m_Width * region.m_Height;
+        }
+
+        for(Page page : m_Pages) {
+            page.texture = Texture.createTexture(page.width, page.height, CHANNELS, page.pixels.getPixels());
+
+            // The Texture doesn't need our copy once it has been uploaded.
+            page.pixels.free();
+            page.pixels = null;
+        }
+
+        m_PackTimeNanos = System.nanoTime() - start;
+        m_Packed = true;
+
+        Log.RENDER.info("Packed {} images into {} page(s) in {}ms ({}% occupancy)", regions.size(), m_Pages.size(),
+                String.format("%.2f", m_PackTimeNanos / 1_000_000.0), String.format("%.1f", getOccupancy() * 100.0));
+    }
+
+    public void dispose() {
+        for(Page page : m_Pages) {
+            if(page.texture != null)
+                page.texture.delete();
+            if(page.pixels != null)
+                page.pixels.free();
+        }
+
+        for(Region region : m_Regions.values()) {
+            if(region.m_Pixmap != null)
+                region.m_Pixmap.free();
+            region.m_Pixmap = null;
+            region.m_Page = null;
+        }
+
+        m_Pages.clear();
+    }
+
+    public Region getRegion(String name) {
+        return m_Regions.get(name);
+    }
+
+    public boolean isPacked() {
+        return m_Packed;
+    }
+
+    public int getPageCount() {
+        return m_Pages.size();
+    }
+
+    public Texture getPage(int index) {
+        return m_Pages.get(index).texture;
+    }
+
+    public long getPackTimeNanos() {
+        return m_PackTimeNanos;
+    }
+
+    /**
+     * @return how much of the pages' area is covered by images, from 0 to 1.
+     */
+    public double getOccupancy() {
+        long total = 0L;
+        for(Page page : m_Pages)
+            total += (long) page.width * page.height;
+
+        return total == 0L ? 0.0 : (double) m_UsedPixels / total;
+    }
+
+    private void place(Region region) {
+        int width = region.m_Width + m_Padding * 2;
+        int height = region.m_Height + m_Padding * 2;
+
+        for(Page page : m_Pages) {
+            if(insert(page, region, width, height))
+                return;
+        }
+
+        // Images bigger than a page get a page of their own.
+        Page page = new Page(Math.max(m_PageSize, width), Math.max(m_PageSize, height));
+        page.pixels = Pixmap.allocate(page.width, page.height, CHANNELS);
+        m_Pages.add(page);
+
+        if(!insert(page, region, width, height))
+            Log.RENDER.error("Failed to fit [{}] into the TextureAtlas!", region.m_Name);
+    }
+
+    /**
+     * Bottom-left skyline placement. Picks the spot that keeps the top of the image as low as possible.
+     */
+    private boolean insert(Page page, Region region, int width, int height) {
+        int bestIndex = -1, bestY = Integer.MAX_VALUE, bestWidth = Integer.MAX_VALUE;
+
+        for(int i = 0; i < page.skyline.size(); i++) {
+            int y = fit(page, i, width, height);
+            if(y < 0)
+                continue;
+
+            Skyline node = page.skyline.get(i);
+            if(y + height < bestY || (y + height == bestY && node.width < bestWidth)) {
+                bestIndex = i;
+                bestY = y + height;
+                bestWidth = node.width;
+            }
+        }
+
+        if(bestIndex < 0)
+            return false;
+
+        int x = page.skyline.get(bestIndex).x;
+        int y = bestY - height;
+        addSkyline(page, bestIndex, x, bestY, width);
+
+        region.m_Page = page;
+        region.m_X = x + m_Padding;
+        region.m_Y = y + m_Padding;
+
+        blit(page, region);
+        region.m_Pixmap.free();
+        region.m_Pixmap = null;
+        return true;
+    }
+
+    private int fit(Page page, int index, int width, int height) {
+        int x = page.skyline.get(index).x;
+        if(x + width > page.width)
+            return -1;
+
+        int y = 0, remaining = width;
+        for(int i = index; remaining > 0; i++) {
+            if(i >= page.skyline.size())
+                return -1;
+
+            Skyline node = page.skyline.get(i);
+            y = Math.max(y, node.y);
+            if(y + height > page.height)
+                return -1;
+
+            remaining -= node.width;
+        }
+
+        return y;
+    }
+
+    private void addSkyline(Page page, int index, int x, int y, int width) {
+        page.skyline.add(index, new Skyline(x, y, width));
+
+        // Shrink or remove the segments our new one now covers.
+        for(int i = index + 1; i < page.skyline.size(); i++) {
+            Skyline prev = page.skyline.get(i - 1);
+            Skyline node = page.skyline.get(i);
+
+            int overlap = prev.x + prev.width - node.x;
+            if(overlap <= 0)
+                break;
+
+            node.x += overlap;
+            node.width -= overlap;
+            if(node.width > 0)
+                break;
+
+            page.skyline.remove(i);
+            i--;
+        }
+
+        // Merge neighbours at the same height.
+        for(int i = 0; i < page.skyline.size() - 1; i++) {
+            Skyline node = page.skyline.get(i);
+            Skyline next = page.skyline.get(i + 1);
+            if(node.y == next.y) {
+                node.width += next.width;
+                page.skyline.remove(i + 1);
+                i--;
+            }
+        }
+    }
+
+    /**
+     * Copies the image into its page and repeats its edge pixels into the padding around it.
+     */
+    private void blit(Page page, Region region) {
+        ByteBuffer src = region.m_Pixmap.getPixels();
+        ByteBuffer dst = page.pixels.getPixels();
+
+        int srcStride = region.m_Width * CHANNELS;
+        int dstStride = page.width * CHANNELS;
+
+        long srcAddress = MemoryUtil.memAddress(src);
+        long dstAddress = MemoryUtil.memAddress(dst);
+
+        int left = region.m_X - m_Padding, right = region.m_X + region.m_Width + m_Padding;
+        int bottom = region.m_Y - m_Padding, top = region.m_Y + region.m_Height + m_Padding;
+
+        for(int y = bottom; y < top; y++) {
+            int srcY = Math.min(Math.max(y - region.m_Y, 0), region.m_Height - 1);
+            long srcRow = srcAddress + (long) srcY * srcStride;
+            long dstRow = dstAddress + (long) y * dstStride;
+
+            MemoryUtil.memCopy(srcRow, dstRow + (long) region.m_X * CHANNELS, srcStride);
+
+            for(int x = left; x < region.m_X; x++)
+                MemoryUtil.memCopy(srcRow, dstRow + (long) x * CHANNELS, CHANNELS);
+
+            for(int x = region.m_X + region.m_Width; x < right; x++)
+                MemoryUtil.memCopy(srcRow + srcStride - CHANNELS, dstRow + (long) x * CHANNELS, CHANNELS);
+        }
+    }
+
+}
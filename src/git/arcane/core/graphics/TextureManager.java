@@ -0,0 +1,217 @@
+package git.arcane.core.graphics;
+
+import git.arcane.core.util.Log;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the video memory our textures take up under a budget.<br>
+ * Textures it loads or is handed remember where they came from. Every {@link Texture#bind(int)} stamps them, and once
+ * {@link Texture#getTotalVramBytes()} goes over the budget the least recently bound ones give their storage back. An
+ * evicted Texture stays a valid object and is loaded again from its file the next time it's bound.
+ * <br>Everything here has to happen on the thread that owns OpenGL.
+ */
+public class TextureManager {
+    private static TextureManager ms_Instance = null;
+
+    private static class StatsData {
+        public volatile long Loads, Reloads, Evictions;
+        public volatile long ReloadNanos;
+    }
+
+    private final List<Texture> m_Textures;
+    private final StatsData m_Stats;
+
+    private long m_Budget;
+    private long m_Stamp;
+    private boolean m_WarnedOverBudget;
+
+    /**
+     * @param budgetBytes how much video memory every Texture may take up together, 0 never evicts anything.
+     */
+    public TextureManager(long budgetBytes) {
+        m_Textures = new ArrayList<>();
+        m_Stats = new StatsData();
+        m_Budget = Math.max(0L, budgetBytes);
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Loads a texture that is evicted and loaded again as needed. Has to be called on the thread that owns OpenGL.
+     * @param path a PNG in our resources, or a baked file ending in {@link BakedTexture#EXTENSION} relative to the working directory.
+     * @return the Texture, or null if it couldn't be loaded.
+     */
+    public Texture load(String path) {
+        final Texture texture = new Texture();
+        texture.setPath(path);
+
+        if(!upload(texture)) {
+            texture.delete();
+            return null;
+        }
+
+        m_Stats.Loads++;
+        manage(texture);
+        return texture;
+    }
+
+    /**
+     * Puts an already uploaded Texture in our care, e.g. one the AssetManager loaded. It needs a path to be loaded again from.
+     */
+    public void manage(Texture texture) {
+        if(texture.getPath() == null) {
+            Log.RENDER.warn("Can't manage a Texture without a path, it could never be loaded again!");
+            return;
+        }
+
+        texture.setManager(this);
+        texture.setLastBound(++m_Stamp);
+        m_Textures.add(texture);
+
+        evict(texture);
+    }
+
+    /**
+     * Called by {@link Texture#bind(int)}, brings the Texture back if we evicted it.
+     */
+    void onBind(Texture texture) {
+        texture.setLastBound(++m_Stamp);
+        if(texture.isResident())
+            return;
+
+        final long start = System.nanoTime();
+        if(!upload(texture)) {
+            // Binds 0 from now on rather than trying the disk every draw.
+            texture.setManager(null);
+            m_Textures.remove(texture);
+            return;
+        }
+
+        m_Stats.ReloadNanos += System.nanoTime() - start;
+        m_Stats.Reloads++;
+        evict(texture);
+    }
+
+    void onDeleted(Texture texture) {
+        texture.setManager(null);
+        m_Textures.remove(texture);
+    }
+
+    /**
+     * Releases the least recently bound textures until we're back under the budget.
+     * @param keep the Texture that is about to be used, which is never evicted.
+     */
+    private void evict(Texture keep) {
+        if(m_Budget == 0L)
+            return;
+
+        while(Texture.getTotalVramBytes() > m_Budget) {
+            Texture oldest = null;
+            for(Texture texture : m_Textures) {
+                if(texture == keep || !texture.isResident())
+                    continue;
+                if(oldest == null || texture.getLastBound() < oldest.getLastBound())
+                    oldest = texture;
+            }
+
+            if(oldest == null) {
+                if(!m_WarnedOverBudget) {
+                    Log.RENDER.warn("Textures take up {}MB, nothing left to evict to get under the budget of {}MB!",
+                            Texture.getTotalVramBytes() / (1024 * 1024), m_Budget / (1024 * 1024));
+                    m_WarnedOverBudget = true;
+                }
+                return;
+            }
+
+            oldest.release();
+            m_Stats.Evictions++;
+        }
+    }
+
+    private static boolean upload(Texture texture) {
+        final String path = texture.getPath();
+        try {
+            if(path.endsWith(BakedTexture.EXTENSION)) {
+                BakedTexture.map(Path.of(path)).upload(texture);
+            } else {
+                final Pixmap pixmap = Pixmap.load(path);
+                texture.create(pixmap.getWidth(), pixmap.getHeight(), pixmap.getChannels(), pixmap.getPixels());
+                pixmap.free();
+            }
+            return true;
+        } catch (IOException e) {
+            Log.RENDER.error("Failed to load Texture [{}]:\n{}", path, e.getMessage());
+            return false;
+        }
+    }
+
+    public void setBudget(long budgetBytes) {
+        m_Budget = Math.max(0L, budgetBytes);
+        m_WarnedOverBudget = false;
+    }
+
+    public long getBudget() {
+        return m_Budget;
+    }
+
+    /**
+     * @return the video memory of the textures we manage that are resident right now.
+     */
+    public long getManagedBytes() {
+        long bytes = 0L;
+        for(Texture texture : m_Textures)
+            bytes += texture.getVramBytes();
+        return bytes;
+    }
+
+    public int getManagedCount() {
+        return m_Textures.size();
+    }
+
+    public int getResidentCount() {
+        int count = 0;
+        for(Texture texture : m_Textures) {
+            if(texture.isResident())
+                count++;
+        }
+        return count;
+    }
+
+    public long getLoadCount() {
+        return m_Stats.Loads;
+    }
+
+    public long getReloadCount() {
+        return m_Stats.Reloads;
+    }
+
+    public long getEvictionCount() {
+        return m_Stats.Evictions;
+    }
+
+    public void logStats() {
+        Log.RENDER.info("TextureManager: {}MB of textures ({}MB managed, budget {}MB), {} of {} resident, {} loads, {} reloads in {}ms, {} evictions",
+                Texture.getTotalVramBytes() / (1024 * 1024), getManagedBytes() / (1024 * 1024), m_Budget / (1024 * 1024),
+                getResidentCount(), getManagedCount(), m_Stats.Loads, m_Stats.Reloads,
+                String.format("%.2f", m_Stats.ReloadNanos / 1_000_000.0), m_Stats.Evictions);
+    }
+
+    public void dispose() {
+        for(Texture texture : m_Textures)
+            texture.setManager(null);
+        m_Textures.clear();
+
+        if(ms_Instance == this)
+            ms_Instance = null;
+    }
+
+    public static TextureManager get() {
+        return ms_Instance;
+    }
+
+}
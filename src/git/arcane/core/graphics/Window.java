@@ -21,6 +21,9 @@ public class Window {
         public String Title = "Window";
         public int Width = 100, Height = 100;
         boolean Resizable = false, Fullscreen = false, VSync = true;
+
+        boolean Headless = false;
+        GameSettings.HeadlessBackend HeadlessMode = GameSettings.HeadlessBackend.INVISIBLE;
     }
 
     private final WindowData m_Data;
@@ -52,7 +55,29 @@ public class Window {
     }
 
     public Window(GameSettings setting) {
-        this(setting.GameName, setting.WinWidth, setting.WinHeight, setting.EnableVSync, setting.EnableResize);
+        m_Data = new WindowData();
+        m_Data.Title = setting.GameName;
+
+        m_Data.Width = setting.WinWidth;
+        m_Data.Height = setting.WinHeight;
+
+        // Nobody is watching a headless window, so never wait on a display refresh.
+        m_Data.VSync = setting.EnableVSync && !setting.Headless;
+        m_Data.Resizable = setting.EnableResize;
+
+        m_Data.Headless = setting.Headless;
+        m_Data.HeadlessMode = setting.HeadlessMode;
+        initialize();
+    }
+
+    /**
+     * Picks the GLFW platform before GLFW is initialized. OSMesa contexts need the null platform,
+     * which lets GLFW run without any display server.
+     * @param setting the settings the Window will be created with.
+     */
+    public static void configurePlatform(GameSettings setting) {
+        if(setting.Headless && setting.HeadlessMode == GameSettings.HeadlessBackend.OSMESA)
+            glfwInitHint(GLFW_PLATFORM, GLFW_PLATFORM_NULL);
     }
 
     private void initialize() {
@@ -69,15 +94,20 @@ public class Window {
         glfwWindowHint(GLFW_CONTEXT_VERSION_MAJOR, 3);
         glfwWindowHint(GLFW_CONTEXT_VERSION_MINOR, 3);
 
+        if(m_Data.Headless && m_Data.HeadlessMode == GameSettings.HeadlessBackend.OSMESA)
+            glfwWindowHint(GLFW_CONTEXT_CREATION_API, GLFW_OSMESA_CONTEXT_API);
+
         m_Data.GLFWwindow = glfwCreateWindow(width, height, title, NULL, NULL);
         if(m_Data.GLFWwindow == -1L || m_Data.GLFWwindow == NULL) {
             Log.CORE.error("Failed to create a Window!");
             throw new RuntimeException("Failed to create GLFWwindow!");
         }
 
-        GLFWVidMode vid_mode = glfwGetVideoMode(glfwGetPrimaryMonitor());
-        assert(vid_mode != null);
-        glfwSetWindowPos(m_Data.GLFWwindow, (vid_mode.width() - width) / 2, (vid_mode.height() - height) / 2);
+        if(!m_Data.Headless) {
+            GLFWVidMode vid_mode = glfwGetVideoMode(glfwGetPrimaryMonitor());
+            assert(vid_mode != null);
+            glfwSetWindowPos(m_Data.GLFWwindow, (vid_mode.width() - width) / 2, (vid_mode.height() - height) / 2);
+        }
 
         glfwMakeContextCurrent(m_Data.GLFWwindow);
         glfwSwapInterval(vSync ? 1 : 0);
@@ -86,11 +116,26 @@ public class Window {
     }
 
     public void show() {
-        glfwShowWindow(m_Data.GLFWwindow);
+        if(!m_Data.Headless)
+            glfwShowWindow(m_Data.GLFWwindow);
     }
 
     public void update() {
+        swapBuffers();
+        pollEvents();
+    }
+
+    /**
+     * Presents the frame. Needs the context, so with a {@link git.arcane.core.graphics.rendering.RenderThread} only it calls this.
+     */
+    public void swapBuffers() {
         glfwSwapBuffers(m_Data.GLFWwindow);
+    }
+
+    /**
+     * Handles input and window events. Always call this from the thread that created the window.
+     */
+    public void pollEvents() {
         glfwPollEvents();
     }
 
@@ -129,6 +174,10 @@ public class Window {
         return m_Data.Fullscreen;
     }
 
+    public boolean isHeadless() {
+        return m_Data.Headless;
+    }
+
     public boolean vSyncEnabled() {
         return m_Data.VSync;
     }
@@ -1,18 +1,54 @@
 package git.arcane.core.graphics.cameras;
 
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.rendering.RenderCommands;
 import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL31.GL_UNIFORM_BUFFER;
 
 /**
  * An abstract class that is meant to encapsulate the basic functionalities of any Camera.<br>
  * This should, in theory, allow us to create all sorts of cameras by simply extending this class.
+ * <br>Every Camera owns a uniform buffer holding its matrices as the <i>Camera</i> block of our shaders, which
+ * {@link #bind()} uploads when they changed and binds to {@link #UNIFORM_BINDING}.
  */
 public abstract class Camera {
+
+    /**
+     * The binding point every program's <i>Camera</i> block is assigned to.
+     */
+    public static final int UNIFORM_BINDING = 0;
+    public static final String UNIFORM_BLOCK = "Camera";
+
+    // std140: u_ViewProjection, u_View and u_Projection, each a column major mat4.
+    public static final int UNIFORM_FLOATS = 3 * 16;
+
     protected static class CameraData {
-        public Matrix4f Combined;
+        public Matrix4f Combined = new Matrix4f();
         public Matrix4f View = new Matrix4f();
         public Matrix4f Projection = new Matrix4f();
 
+        // World space box the camera can currently see, refreshed by updateVisibleBounds().
+        public final Matrix4f InverseCombined = new Matrix4f();
+        public final Vector3f VisibleMin = new Vector3f(), VisibleMax = new Vector3f();
+
         public float MoveSpeed = 2.5f;
+
+        // The matrices the last Version was made of, so an update that moved nothing keeps it.
+        public final Matrix4f LastView = new Matrix4f(), LastProjection = new Matrix4f();
+
+        // Bumped whenever the matrices change, the buffer is uploaded again once it's behind.
+        public int Version;
+        public int UniformBuffer;
+        public int UploadedVersion = -1;
+
+        // Where bind() writes our matrices before uploading them, reused so binding never allocates.
+        public FloatBuffer Uniforms;
     }
 
     protected final CameraData m_Data;
@@ -24,6 +60,110 @@ public abstract class Camera {
     public abstract void update();
     public abstract void resize(int width, int height);
 
+    /**
+     * Recalculates the world space box the camera can see and marks our uniform buffer as out of date, but only if
+     * the view or projection changed since the last call. Cameras should call this at the end of <i>update</i>.
+     */
+    protected void updateVisibleBounds() {
+        if(m_Data.Version != 0 && m_Data.View.equals(m_Data.LastView) && m_Data.Projection.equals(m_Data.LastProjection))
+            return;
+
+        m_Data.LastView.set(m_Data.View);
+        m_Data.LastProjection.set(m_Data.Projection);
+
+        m_Data.Combined.invert(m_Data.InverseCombined)
+                .frustumAabb(m_Data.VisibleMin, m_Data.VisibleMax);
+        m_Data.Version++;
+    }
+
+    /**
+     * Binds our matrices to {@link #UNIFORM_BINDING}, uploading them first if they changed since the last bind.
+     * Has to be called on the thread that owns OpenGL.
+     */
+    public void bind() {
+        if(m_Data.UploadedVersion != m_Data.Version) {
+            if(m_Data.Uniforms == null)
+                m_Data.Uniforms = MemoryUtil.memAllocFloat(UNIFORM_FLOATS);
+
+            getUniforms(0, m_Data.Uniforms);
+            upload(0, m_Data.Uniforms);
+            m_Data.UploadedVersion = m_Data.Version;
+            return;
+        }
+
+        bindBuffer();
+    }
+
+    /**
+     * Writes our matrices as laid out in the <i>Camera</i> block, so they can be uploaded later by {@link #upload}.
+     */
+    public void getUniforms(int index, FloatBuffer data) {
+        m_Data.Combined.get(index, data);
+        m_Data.View.get(index + 16, data);
+        m_Data.Projection.get(index + 32, data);
+    }
+
+    /**
+     * Uploads matrices written by {@link #getUniforms} into our buffer and binds it, which is how the render thread
+     * replays what was recorded. Has to be called on the thread that owns OpenGL.
+     */
+    public void upload(int index, FloatBuffer data) {
+        if(m_Data.UniformBuffer == 0) {
+            m_Data.UniformBuffer = glGenBuffers();
+            glBindBuffer(GL_UNIFORM_BUFFER, m_Data.UniformBuffer);
+            glBufferData(GL_UNIFORM_BUFFER, (long) UNIFORM_FLOATS * Float.BYTES, GL_DYNAMIC_DRAW);
+        } else {
+            glBindBuffer(GL_UNIFORM_BUFFER, m_Data.UniformBuffer);
+        }
+
+        nglBufferSubData(GL_UNIFORM_BUFFER, 0L, (long) UNIFORM_FLOATS * Float.BYTES, MemoryUtil.memAddress0(data) + (long) index * Float.BYTES);
+
+        // Whoever binds next has to check again, the buffer may now hold something older than our matrices.
+        m_Data.UploadedVersion = -1;
+        bindBuffer();
+    }
+
+    /**
+     * Binds our buffer as it is, for when its contents are known to be current.
+     */
+    public void bindBuffer() {
+        GLState.bindUniformBuffer(UNIFORM_BINDING, m_Data.UniformBuffer);
+    }
+
+    /**
+     * Frees our uniform buffer. While a {@link RenderCommands} list is recording this is deferred to the render thread.
+     */
+    public void dispose() {
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.task(this::release);
+            return;
+        }
+
+        release();
+    }
+
+    private void release() {
+        if(m_Data.Uniforms != null)
+            MemoryUtil.memFree(m_Data.Uniforms);
+        m_Data.Uniforms = null;
+
+        if(m_Data.UniformBuffer == 0)
+            return;
+
+        glDeleteBuffers(m_Data.UniformBuffer);
+        GLState.onUniformBufferDeleted(m_Data.UniformBuffer);
+        m_Data.UniformBuffer = 0;
+        m_Data.UploadedVersion = -1;
+    }
+
+    /**
+     * @return a number that changes whenever our matrices do.
+     */
+    public int getVersion() {
+        return m_Data.Version;
+    }
+
     public void setMoveSpeed(float moveSpeed) {
         m_Data.MoveSpeed = moveSpeed;
     }
@@ -43,4 +183,18 @@ public abstract class Camera {
         return m_Data.Combined;
     }
 
+    /**
+     * @return the lowest corner of the world space box the camera can see.
+     */
+    public Vector3f getVisibleMin() {
+        return m_Data.VisibleMin;
+    }
+
+    /**
+     * @return the highest corner of the world space box the camera can see.
+     */
+    public Vector3f getVisibleMax() {
+        return m_Data.VisibleMax;
+    }
+
 }
@@ -31,12 +31,11 @@ public class OrthoCamera extends Camera {
 
     @Override
     public void update() {
-        m_Data.View = new Matrix4f();
-        m_Data.View.translate(-m_Position.x, -m_Position.y, 0.0f)
+        m_Data.View.translation(-m_Position.x, -m_Position.y, 0.0f)
                 .scale(m_Zoom);
 
-        m_Data.Combined = new Matrix4f();
         m_Data.Combined.set(m_Data.Projection).mul(m_Data.View);
+        updateVisibleBounds();
     }
 
     @Override
@@ -44,8 +43,7 @@ public class OrthoCamera extends Camera {
         m_Dimension.set(width, height);
         m_AspectRatio = m_Dimension.x / m_Dimension.y;
 
-        m_Data.Projection = new Matrix4f();
-        m_Data.Projection.ortho(-m_Dimension.x / m_AspectRatio, m_Dimension.x / m_AspectRatio, -m_Dimension.y / m_AspectRatio, m_Dimension.y / m_AspectRatio, -1.0f, 1.0f);
+        m_Data.Projection.setOrtho(-m_Dimension.x / m_AspectRatio, m_Dimension.x / m_AspectRatio, -m_Dimension.y / m_AspectRatio, m_Dimension.y / m_AspectRatio, -1.0f, 1.0f);
         update();
     }
 
@@ -0,0 +1,334 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.Shaders;
+import git.arcane.core.graphics.StreamBuffer;
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.cameras.Camera;
+import git.arcane.core.profiler.Profiler;
+import git.arcane.core.spatial.SpatialGrid;
+import git.arcane.core.util.Log;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.glDrawElementsInstanced;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+
+/**
+ * Draws many quads with a single instanced draw call.<br>
+ * Where {@link SpriteBatch} writes 4 vertices per quad, we keep one unit quad on the GPU and only upload
+ * 12 floats per quad (position, size, UV rect, tint and layer). Needs the <i>instanced.vert</i> shader.
+ */
+public class InstancedBatch {
+
+    public static final int DEFAULT_MAX_INSTANCES = 16384;
+
+    // x, y, halfWidth, halfHeight, u0, v0, u1, v1, r, g, b, layer
+    public static final int INSTANCE_FLOATS = 12;
+    private static final int INSTANCE_BYTES = INSTANCE_FLOATS * Float.BYTES;
+
+    private static final float[] QUAD_CORNERS = {
+            -1.0f, -1.0f, // Bottom Left
+            -1.0f,  1.0f, // Top Left
+             1.0f,  1.0f, // Top Right
+             1.0f, -1.0f  // Bottom Right
+    };
+    private static final int[] QUAD_INDICES = { 0, 1, 2, 3, 0, 2 };
+
+    private static class BatchData {
+        public int vao = -1, quadVBO = -1, ebo = -1;
+        public StreamBuffer stream;
+
+        public FloatBuffer instances;
+        public int maxInstances, instanceCount;
+
+        public Texture texture;
+        public boolean depthTest = true;
+        public boolean drawing;
+    }
+
+    private static class BatchStats {
+        public int DrawCalls, Instances;
+    }
+
+    private final BatchData m_Data;
+    private final BatchStats m_Stats;
+    private final Shaders m_Shader;
+    private Camera m_Camera;
+    private int m_SamplerHandle, m_TexturedHandle;
+
+    private final SpatialGrid.Visitor<Sprite> m_DrawVisitor = sprite -> sprite.draw(this);
+    private final RenderCommands.Replayable m_Replayer = this::submit;
+
+    public InstancedBatch(Shaders shader, Camera camera) {
+        this(shader, camera, DEFAULT_MAX_INSTANCES);
+    }
+
+    public InstancedBatch(Shaders shader, Camera camera, int maxInstances) {
+        this(shader, camera, maxInstances, StreamBuffer.getBestMode());
+    }
+
+    /**
+     * Creates a batch that streams its data with a specific {@link StreamBuffer.Mode}, mostly to compare them.
+     */
+    public InstancedBatch(Shaders shader, Camera camera, int maxInstances, StreamBuffer.Mode streamMode) {
+        m_Data = new BatchData();
+        m_Stats = new BatchStats();
+
+        m_Shader = shader;
+        m_Camera = camera;
+        m_Data.maxInstances = maxInstances;
+
+        initialize(streamMode);
+    }
+
+    private void initialize(StreamBuffer.Mode streamMode) {
+        m_Data.instances = MemoryUtil.memAllocFloat(m_Data.maxInstances * INSTANCE_FLOATS);
+
+        m_Data.vao = glGenVertexArrays();
+        GLState.bindVertexArray(m_Data.vao);
+
+        m_Data.quadVBO = glGenBuffers();
+        glBindBuffer(GL_ARRAY_BUFFER, m_Data.quadVBO);
+        glBufferData(GL_ARRAY_BUFFER, QUAD_CORNERS, GL_STATIC_DRAW);
+
+        glEnableVertexAttribArray(0);
+        glVertexAttribPointer(0, 2, GL_FLOAT, false, 2 * Float.BYTES, 0);
+
+        m_Data.stream = new StreamBuffer(GL_ARRAY_BUFFER, (long) m_Data.instances.capacity() * Float.BYTES, INSTANCE_BYTES, streamMode);
+
+        // Attributes 1 to 3 advance once per quad instead of once per vertex.
+        for(int i = 0; i < 3; i++) {
+            glEnableVertexAttribArray(1 + i);
+            glVertexAttribDivisor(1 + i, 1);
+        }
+        pointInstanceAttributes(0L);
+
+        m_Data.ebo = glGenBuffers();
+        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, m_Data.ebo);
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER, QUAD_INDICES, GL_STATIC_DRAW);
+
+        GLState.bindVertexArray(0);
+
+        GLState.setBlend(true);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        m_SamplerHandle = m_Shader.createUniform("u_Sampler");
+        m_TexturedHandle = m_Shader.createUniform("u_Textured");
+    }
+
+    /**
+     * Starts collecting quads. Also resets the per-frame draw call and instance counters.
+     */
+    public void begin() {
+        if(m_Data.drawing) {
+            Log.RENDER.warn("InstancedBatch.begin() called twice without end()!");
+            return;
+        }
+
+        m_Stats.DrawCalls = 0;
+        m_Stats.Instances = 0;
+
+        m_Data.drawing = true;
+        m_Data.instanceCount = 0;
+        m_Data.instances.clear();
+    }
+
+    /**
+     * Flushes whatever is left in the batch and stops collecting quads.
+     */
+    public void end() {
+        if(!m_Data.drawing) {
+            Log.RENDER.warn("InstancedBatch.end() called without begin()!");
+            return;
+        }
+
+        flush();
+        m_Data.drawing = false;
+    }
+
+    /**
+     * Uploads the collected instances and draws all of them in a single call.
+     */
+    public void flush() {
+        if(m_Data.instanceCount == 0 || m_Shader == null || m_Camera == null)
+            return;
+
+        m_Data.instances.flip();
+
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.batch(m_Replayer, m_Camera, m_Data.texture, m_Data.depthTest, m_Data.instances, m_Data.instanceCount);
+        } else {
+            m_Camera.bind();
+            submit(m_Data.texture, m_Data.depthTest, MemoryUtil.memAddress(m_Data.instances), m_Data.instanceCount);
+        }
+        Profiler.countDraw(m_Data.instanceCount * QUAD_INDICES.length);
+
+        m_Stats.DrawCalls++;
+        m_Stats.Instances += m_Data.instanceCount;
+
+        m_Data.instanceCount = 0;
+        m_Data.instances.clear();
+    }
+
+    /**
+     * Streams instances to the GPU and draws them. Called by {@link #flush()}, or by the render thread for instances we recorded.
+     */
+    private void submit(Texture texture, boolean depthTest, long instances, int count) {
+        boolean textured = texture != null;
+
+        GLState.setDepthTest(depthTest);
+        GLState.setBlend(true);
+
+        m_Shader.bind();
+
+        m_Shader.setUniformBool(m_TexturedHandle, textured);
+        if(textured) {
+            texture.bind(0);
+            m_Shader.setUniform1i(m_SamplerHandle, 0);
+        }
+
+        long offset = m_Data.stream.upload(instances, (long) count * INSTANCE_BYTES);
+        if(offset < 0L)
+            return;
+
+        // GL 3.3 has no base instance for glDrawElementsInstanced, so we move the attributes to the new data instead.
+        GLState.bindVertexArray(m_Data.vao);
+        pointInstanceAttributes(offset);
+        glDrawElementsInstanced(GL_TRIANGLES, QUAD_INDICES.length, GL_UNSIGNED_INT, 0, count);
+    }
+
+    /**
+     * Points the per-instance attributes of our VAO at the instances starting at an offset of the stream.
+     * Expects our VAO to be bound.
+     */
+    private void pointInstanceAttributes(long offset) {
+        glBindBuffer(GL_ARRAY_BUFFER, m_Data.stream.getID());
+        for(int i = 0; i < 3; i++)
+            glVertexAttribPointer(1 + i, 4, GL_FLOAT, false, INSTANCE_BYTES, offset + (long) i * 4 * Float.BYTES);
+    }
+
+    /**
+     * Adds a quad to the batch. Takes the same arguments as {@link SpriteBatch#draw}, so the quad spans from
+     * <i>position - size</i> to <i>position + size</i>.
+     */
+    public void draw(Texture texture, float x, float y, float z, float width, float height,
+                     float u0, float v0, float u1, float v1, Vector3f tint) {
+        draw(texture, x, y, z, width, height, u0, v0, u1, v1, tint.x, tint.y, tint.z);
+    }
+
+    public void draw(Texture texture, float x, float y, float z, float width, float height,
+                     float u0, float v0, float u1, float v1, float r, float g, float b) {
+        if(!m_Data.drawing) {
+            Log.RENDER.warn("InstancedBatch.draw() called without begin()!");
+            return;
+        }
+
+        if(texture != m_Data.texture) {
+            flush();
+            m_Data.texture = texture;
+        } else if(m_Data.instanceCount >= m_Data.maxInstances) {
+            flush();
+        }
+
+        putInstance(m_Data.instances, x, y, z, width, height, u0, v0, u1, v1, r, g, b);
+        m_Data.instanceCount++;
+    }
+
+    /**
+     * Writes one instance in our instance layout. See {@link #draw} for what the arguments mean.
+     * @param buffer the buffer to write into, it needs room for {@link #INSTANCE_FLOATS} floats.
+     */
+    public static void putInstance(FloatBuffer buffer, float x, float y, float z, float width, float height,
+                                   float u0, float v0, float u1, float v1, float r, float g, float b) {
+        buffer.put(x).put(y).put(width).put(height)
+                .put(u0).put(v0).put(u1).put(v1)
+                .put(r).put(g).put(b).put(z);
+    }
+
+    /**
+     * Draws only the {@link Sprite}s of a {@link SpatialGrid} that overlap what our camera can see.
+     * @param grid the grid tracking the Sprites.
+     * @return the number of Sprites drawn.
+     */
+    public int drawVisible(SpatialGrid<Sprite> grid) {
+        if(m_Camera == null)
+            return 0;
+
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+        return grid.query(min.x, min.y, max.x, max.y, m_DrawVisitor);
+    }
+
+    public void dispose() {
+        glDeleteVertexArrays(m_Data.vao);
+        GLState.onVertexArrayDeleted(m_Data.vao);
+        glDeleteBuffers(m_Data.quadVBO);
+        glDeleteBuffers(m_Data.ebo);
+        m_Data.stream.dispose();
+
+        MemoryUtil.memFree(m_Data.instances);
+        m_Data.instances = null;
+    }
+
+    /**
+     * Enables or disables depth testing for the quads that follow. Flushes if the state changes.
+     */
+    public void setDepthTest(boolean depthTest) {
+        if(m_Data.depthTest == depthTest)
+            return;
+
+        flush();
+        m_Data.depthTest = depthTest;
+    }
+
+    public void setCamera(Camera camera) {
+        if(m_Camera == camera)
+            return;
+
+        flush();
+        m_Camera = camera;
+    }
+
+    public boolean isDepthTest() {
+        return m_Data.depthTest;
+    }
+
+    public boolean isDrawing() {
+        return m_Data.drawing;
+    }
+
+    public Camera getCamera() {
+        return m_Camera;
+    }
+
+    public int getMaxInstances() {
+        return m_Data.maxInstances;
+    }
+
+    public StreamBuffer getStream() {
+        return m_Data.stream;
+    }
+
+    /**
+     * @return the number of draw calls issued since the last {@link #begin()}.
+     */
+    public int getDrawCalls() {
+        return m_Stats.DrawCalls;
+    }
+
+    /**
+     * @return the number of quads drawn since the last {@link #begin()}.
+     */
+    public int getInstanceCount() {
+        return m_Stats.Instances;
+    }
+
+}
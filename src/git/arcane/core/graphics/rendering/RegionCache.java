@@ -0,0 +1,152 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.util.Log;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Shares {@link SpriteRegion}s between every {@link SpriteSheet}, keyed by their {@link Texture} and UV rectangle.<br>
+ * Regions are reference counted, so asking for the same area twice hands back the same instance
+ * and it is only dropped once every user has released it.
+ */
+public class RegionCache {
+
+    private static class RegionKey {
+        public Texture texture;
+        public float u0, v0, u1, v1;
+
+        private RegionKey set(Texture texture, float u0, float v0, float u1, float v1) {
+            this.texture = texture;
+            this.u0 = u0;
+            this.v0 = v0;
+            this.u1 = u1;
+            this.v1 = v1;
+            return this;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof RegionKey other)) return false;
+
+            return texture == other.texture
+                    && Float.compare(u0, other.u0) == 0 && Float.compare(v0, other.v0) == 0
+                    && Float.compare(u1, other.u1) == 0 && Float.compare(v1, other.v1) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = System.identityHashCode(texture);
+            result = 31 * result + Float.floatToIntBits(u0);
+            result = 31 * result + Float.floatToIntBits(v0);
+            result = 31 * result + Float.floatToIntBits(u1);
+            result = 31 * result + Float.floatToIntBits(v1);
+            return result;
+        }
+    }
+
+    private static final Map<RegionKey, SpriteRegion> ms_Regions = new HashMap<>();
+    private static final Map<SpriteRegion, RegionKey> ms_Keys = new HashMap<>();
+
+    // Reused for lookups so a cache hit doesn't allocate.
+    private static final RegionKey ms_LookupKey = new RegionKey();
+
+    private static long ms_Hits = 0L, ms_Misses = 0L;
+
+    private RegionCache() {}
+
+    /**
+     * Receives the shared {@link SpriteRegion} for an area of a {@link Texture}, creating it if needed.<br>
+     * Every call must be paired with a call to {@link #release(SpriteRegion)}.
+     * @param texture the texture the region belongs to.
+     * @param u0 the u coordinate of the left edge.
+     * @param v0 the v coordinate of the bottom edge.
+     * @param u1 the u coordinate of the right edge.
+     * @param v1 the v coordinate of the top edge.
+     * @return the shared region.
+     */
+    public static SpriteRegion acquire(Texture texture, float u0, float v0, float u1, float v1) {
+        SpriteRegion region = ms_Regions.get(ms_LookupKey.set(texture, u0, v0, u1, v1));
+        ms_LookupKey.texture = null;
+
+        if(region != null) {
+            ms_Hits++;
+        } else {
+            ms_Misses++;
+
+            RegionKey key = new RegionKey().set(texture, u0, v0, u1, v1);
+            region = new SpriteRegion(texture, u0, v0, u1, v1);
+
+            ms_Regions.put(key, region);
+            ms_Keys.put(region, key);
+        }
+
+        region.m_RefCount++;
+        return region;
+    }
+
+    /**
+     * Gives up a reference to a {@link SpriteRegion}. Once nobody references it, it's removed from the cache.
+     * @param region the region we no longer need.
+     */
+    public static void release(SpriteRegion region) {
+        if(region == null)
+            return;
+
+        if(region.m_RefCount <= 0) {
+            Log.RENDER.warn("Released a SpriteRegion that was not acquired!");
+            return;
+        }
+
+        region.m_RefCount--;
+        if(region.m_RefCount == 0) {
+            RegionKey key = ms_Keys.remove(region);
+            if(key != null)
+                ms_Regions.remove(key);
+        }
+    }
+
+    /**
+     * Drops every region belonging to a {@link Texture}, regardless of its references. Used when the Texture is deleted.
+     * @param texture the texture whose regions are no longer valid.
+     */
+    public static void evict(Texture texture) {
+        ms_Regions.entrySet().removeIf(entry -> {
+            if(entry.getKey().texture != texture)
+                return false;
+
+            ms_Keys.remove(entry.getValue());
+            return true;
+        });
+    }
+
+    public static void logStats() {
+        Log.RENDER.info("RegionCache: {} regions, {} hits, {} misses ({}% hit rate)",
+                getSize(), ms_Hits, ms_Misses, String.format("%.1f", getHitRate() * 100.0));
+    }
+
+    public static void resetStats() {
+        ms_Hits = 0L;
+        ms_Misses = 0L;
+    }
+
+    public static int getSize() {
+        return ms_Regions.size();
+    }
+
+    public static long getHits() {
+        return ms_Hits;
+    }
+
+    public static long getMisses() {
+        return ms_Misses;
+    }
+
+    public static double getHitRate() {
+        long total = ms_Hits + ms_Misses;
+        return total == 0L ? 0.0 : (double) ms_Hits / total;
+    }
+
+}
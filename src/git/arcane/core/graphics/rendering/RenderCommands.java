@@ -0,0 +1,267 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.Mesh;
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.cameras.Camera;
+import org.joml.Vector2fc;
+import org.joml.Vector3fc;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+import static org.lwjgl.opengl.GL11.glClear;
+
+/**
+ * One frame of rendering, recorded on the update thread and replayed on the {@link RenderThread}.<br>
+ * While a list is recording, {@link SpriteBatch}, {@link InstancedBatch}, {@link Renderer} and {@link Mesh} write
+ * into it instead of calling OpenGL, copying everything they need (vertices, transforms) so the Game can keep
+ * changing while the list waits to be replayed. A recorded Mesh draws whatever was last uploaded for it on the
+ * render thread, see {@link Mesh}. A Camera's matrices are copied the first time it's used in a list and again only
+ * if they changed, the draws after that just bind its uniform buffer. Once submitted, a list is never touched by the
+ * update thread again until the render thread hands it back.
+ */
+public class RenderCommands {
+
+    private static final int OP_CLEAR = 0, OP_BATCH = 1, OP_MESH = 2, OP_TASK = 3, OP_CAMERA = 4;
+
+    // op, first reference, first float, count, flags
+    private static final int OP_INTS = 5;
+    // offset xyz, scale xy
+    private static final int TRANSFORM_FLOATS = 5;
+
+    /**
+     * Something that draws data we recorded for it. The batches implement this.
+     */
+    interface Replayable {
+        void replay(Texture texture, boolean depthTest, long address, int count);
+    }
+
+    private static RenderCommands ms_Recording = null;
+    private static Thread ms_RecordingThread = null;
+
+    private static class CommandData {
+        public int[] ops = new int[OP_INTS * 64];
+        public int opInts;
+
+        public Object[] refs = new Object[128];
+        public int refCount;
+
+        public FloatBuffer floats;
+        public long submitTime;
+
+        // The cameras whose matrices this list holds and which version of them, plus the one bound last.
+        public Camera[] cameras = new Camera[4];
+        public int[] cameraVersions = new int[4];
+        public int cameraCount;
+        public Camera boundCamera;
+    }
+
+    private final CommandData m_Data;
+
+    public RenderCommands() {
+        m_Data = new CommandData();
+        m_Data.floats = MemoryUtil.memAllocFloat(SpriteBatch.DEFAULT_MAX_QUADS * SpriteBatch.QUAD_FLOATS);
+    }
+
+    /**
+     * @return the list the current thread is recording into, or null if we should call OpenGL directly.
+     */
+    public static RenderCommands getRecording() {
+        return Thread.currentThread() == ms_RecordingThread ? ms_Recording : null;
+    }
+
+    static void beginRecording(RenderCommands commands) {
+        ms_Recording = commands;
+        ms_RecordingThread = Thread.currentThread();
+    }
+
+    static void endRecording() {
+        ms_Recording = null;
+        ms_RecordingThread = null;
+    }
+
+    public void clear(int mask) {
+        addOp(OP_CLEAR, 0, 0, mask, 0);
+    }
+
+    /**
+     * Runs a task on the render thread at this point of the frame. Use it for OpenGL work that isn't drawing.
+     */
+    public void task(Runnable task) {
+        addOp(OP_TASK, addRef(task), 0, 0, 0);
+    }
+
+    /**
+     * Records a batch's data (position to limit of the buffer) to be drawn with the batch later.
+     */
+    void batch(Replayable batch, Camera camera, Texture texture, boolean depthTest, FloatBuffer data, int count) {
+        camera(camera);
+
+        final int floats = data.remaining();
+        ensureFloats(floats);
+
+        final int first = m_Data.floats.position();
+        MemoryUtil.memCopy(MemoryUtil.memAddress(data), MemoryUtil.memAddress0(m_Data.floats) + (long) first * Float.BYTES,
+                (long) floats * Float.BYTES);
+        m_Data.floats.position(first + floats);
+
+        final int ref = addRef(batch);
+        addRef(texture);
+        addOp(OP_BATCH, ref, first, count, depthTest ? 1 : 0);
+    }
+
+    void mesh(Renderer renderer, Camera camera, Mesh mesh, Texture texture, Vector3fc offset, Vector2fc scale) {
+        camera(camera);
+        ensureFloats(TRANSFORM_FLOATS);
+
+        final FloatBuffer floats = m_Data.floats;
+        final int first = floats.position();
+        floats.put(first, offset.x()).put(first + 1, offset.y()).put(first + 2, offset.z());
+        floats.put(first + 3, scale.x()).put(first + 4, scale.y());
+        floats.position(first + TRANSFORM_FLOATS);
+
+        final int ref = addRef(renderer);
+        addRef(mesh);
+        addRef(texture);
+        addOp(OP_MESH, ref, first, 0, 0);
+    }
+
+    /**
+     * Makes sure the draws recorded next see the camera as it is now. Copies its matrices only if this list doesn't
+     * have them yet, and records nothing at all if the camera is already bound.
+     */
+    private void camera(Camera camera) {
+        final CommandData data = m_Data;
+        final int version = camera.getVersion();
+
+        int index = 0;
+        while(index < data.cameraCount && data.cameras[index] != camera)
+            index++;
+
+        if(index < data.cameraCount && data.cameraVersions[index] == version) {
+            if(data.boundCamera != camera) {
+                addOp(OP_CAMERA, addRef(camera), -1, 0, 0);
+                data.boundCamera = camera;
+            }
+            return;
+        }
+
+        if(index == data.cameraCount) {
+            if(data.cameraCount == data.cameras.length) {
+                data.cameras = Arrays.copyOf(data.cameras, data.cameraCount * 2);
+                data.cameraVersions = Arrays.copyOf(data.cameraVersions, data.cameraCount * 2);
+            }
+            data.cameras[data.cameraCount++] = camera;
+        }
+        data.cameraVersions[index] = version;
+
+        ensureFloats(Camera.UNIFORM_FLOATS);
+        final int first = data.floats.position();
+        camera.getUniforms(first, data.floats);
+        data.floats.position(first + Camera.UNIFORM_FLOATS);
+
+        addOp(OP_CAMERA, addRef(camera), first, 0, 0);
+        data.boundCamera = camera;
+    }
+
+    void replay() {
+        final int[] ops = m_Data.ops;
+        final Object[] refs = m_Data.refs;
+        final long floats = MemoryUtil.memAddress0(m_Data.floats);
+
+        for(int i = 0; i < m_Data.opInts; i += OP_INTS) {
+            final int ref = ops[i + 1], first = ops[i + 2];
+
+            switch(ops[i]) {
+                case OP_CLEAR -> glClear(ops[i + 3]);
+                case OP_BATCH -> ((Replayable) refs[ref]).replay((Texture) refs[ref + 1], ops[i + 4] != 0,
+                        floats + (long) first * Float.BYTES, ops[i + 3]);
+                case OP_MESH -> {
+                    final FloatBuffer data = m_Data.floats;
+                    ((Renderer) refs[ref]).replayMesh((Mesh) refs[ref + 1], (Texture) refs[ref + 2],
+                            data.get(first), data.get(first + 1), data.get(first + 2), data.get(first + 3), data.get(first + 4));
+                }
+                case OP_TASK -> ((Runnable) refs[ref]).run();
+                case OP_CAMERA -> {
+                    if(first >= 0) ((Camera) refs[ref]).upload(first, m_Data.floats);
+                    else ((Camera) refs[ref]).bindBuffer();
+                }
+            }
+        }
+    }
+
+    /**
+     * Forgets everything recorded so the list can be recorded again. Keeps its memory.
+     */
+    void reset() {
+        Arrays.fill(m_Data.refs, 0, m_Data.refCount, null);
+        m_Data.refCount = 0;
+        m_Data.opInts = 0;
+        m_Data.floats.clear();
+
+        Arrays.fill(m_Data.cameras, 0, m_Data.cameraCount, null);
+        m_Data.cameraCount = 0;
+        m_Data.boundCamera = null;
+    }
+
+    public void dispose() {
+        reset();
+        MemoryUtil.memFree(m_Data.floats);
+        m_Data.floats = null;
+    }
+
+    void setSubmitTime(long submitTime) {
+        m_Data.submitTime = submitTime;
+    }
+
+    long getSubmitTime() {
+        return m_Data.submitTime;
+    }
+
+    /**
+     * @return the number of commands recorded so far.
+     */
+    public int getCommandCount() {
+        return m_Data.opInts / OP_INTS;
+    }
+
+    /**
+     * @return the bytes of vertex, transform and camera data recorded so far.
+     */
+    public long getDataBytes() {
+        return (long) m_Data.floats.position() * Float.BYTES;
+    }
+
+    private void addOp(int op, int ref, int first, int count, int flags) {
+        if(m_Data.opInts + OP_INTS > m_Data.ops.length)
+            m_Data.ops = Arrays.copyOf(m_Data.ops, m_Data.ops.length * 2);
+
+        final int[] ops = m_Data.ops;
+        final int i = m_Data.opInts;
+        ops[i] = op;
+        ops[i + 1] = ref;
+        ops[i + 2] = first;
+        ops[i + 3] = count;
+        ops[i + 4] = flags;
+        m_Data.opInts += OP_INTS;
+    }
+
+    private int addRef(Object ref) {
+        if(m_Data.refCount == m_Data.refs.length)
+            m_Data.refs = Arrays.copyOf(m_Data.refs, m_Data.refs.length * 2);
+
+        m_Data.refs[m_Data.refCount] = ref;
+        return m_Data.refCount++;
+    }
+
+    private void ensureFloats(int floats) {
+        if(m_Data.floats.remaining() >= floats)
+            return;
+
+        // Grows the same way for every list, so after the first few frames none of them grow again.
+        final int capacity = Math.max(m_Data.floats.capacity() * 2, m_Data.floats.position() + floats);
+        m_Data.floats = MemoryUtil.memRealloc(m_Data.floats, capacity);
+    }
+
+}
@@ -0,0 +1,363 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.Window;
+import git.arcane.core.profiler.Profiler;
+import git.arcane.core.util.Log;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.lwjgl.glfw.GLFW.glfwMakeContextCurrent;
+import static org.lwjgl.system.MemoryUtil.NULL;
+
+/**
+ * Owns the OpenGL context and replays the {@link RenderCommands} the update thread records.<br>
+ * The lists are double or triple buffered: the update thread records the next frame while we replay and swap
+ * the last one, so a swap blocked on VSync no longer eats into update time. When every list is in use the update
+ * thread waits for us, which keeps it at most a couple of frames ahead.
+ */
+public class RenderThread implements Runnable {
+    private static RenderThread ms_Instance = null;
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long POLL_NANOS = 1_000_000L;
+
+    private static class ThreadData {
+        public Window Window;
+        public GLCapabilities Capabilities;
+        public Thread Thread;
+        public volatile boolean Running;
+
+        public RenderCommands[] Lists;
+        public RenderCommands Recording;
+        public long FrameStart;
+    }
+
+    private static class ThreadStats {
+        // Filled in by the render thread, collected by the update thread.
+        public final AtomicLong RenderNanos = new AtomicLong(), LatencyNanos = new AtomicLong();
+        public final AtomicLong MaxLatencyNanos = new AtomicLong(), Replayed = new AtomicLong();
+
+        // Only touched by the update thread.
+        public long WindowStart, UpdateNanos, WaitNanos;
+        public int Submitted, DepthSum, MaxDepth;
+
+        public volatile double LatencyMs, MaxLatencyMs, QueueDepth, WaitMs, Overlap;
+        public volatile int MaxQueueDepth;
+    }
+
+    private final ThreadData m_Data;
+    private final ThreadStats m_Stats;
+
+    private final BlockingQueue<RenderCommands> m_Free, m_Submitted;
+    private final Queue<Runnable> m_Tasks;
+
+    /**
+     * Creates the render thread. Call {@link #start()} from the thread that currently owns the context.
+     * @param window the window whose context we take over.
+     * @param buffers how many lists to cycle through, 2 for double buffering or 3 for triple buffering.
+     */
+    public RenderThread(Window window, int buffers) {
+        m_Data = new ThreadData();
+        m_Stats = new ThreadStats();
+
+        m_Data.Window = window;
+        m_Data.Lists = new RenderCommands[Math.max(2, buffers)];
+
+        m_Free = new ArrayBlockingQueue<>(m_Data.Lists.length);
+        m_Submitted = new ArrayBlockingQueue<>(m_Data.Lists.length);
+        m_Tasks = new ConcurrentLinkedQueue<>();
+
+        for(int i = 0; i < m_Data.Lists.length; i++) {
+            m_Data.Lists[i] = new RenderCommands();
+            m_Free.add(m_Data.Lists[i]);
+        }
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Hands the context over from the calling thread to our own.
+     */
+    public void start() {
+        m_Data.Capabilities = GL.getCapabilities();
+        glfwMakeContextCurrent(NULL);
+        GL.setCapabilities(null);
+
+        m_Data.Running = true;
+        m_Stats.WindowStart = System.nanoTime();
+
+        m_Data.Thread = new Thread(this, "Render_Thread");
+        Profiler.setRenderThread(m_Data.Thread);
+        m_Data.Thread.start();
+        Log.RENDER.info("Rendering on its own thread with {} command lists", m_Data.Lists.length);
+    }
+
+    /**
+     * Replays whatever is still queued, then hands the context back to the calling thread.
+     */
+    public void stop() {
+        m_Data.Running = false;
+        try {
+            m_Data.Thread.join();
+        } catch (InterruptedException e) {
+            Log.RENDER.error("Interrupted while stopping the render thread!");
+            Thread.currentThread().interrupt();
+        }
+
+        glfwMakeContextCurrent(m_Data.Window.getGLFWwindow());
+        GL.setCapabilities(m_Data.Capabilities);
+        Profiler.setRenderThread(null);
+
+        for(RenderCommands list : m_Data.Lists)
+            list.dispose();
+
+        if(ms_Instance == this)
+            ms_Instance = null;
+    }
+
+    /**
+     * Marks the start of a frame on the update thread, everything until {@link #submit()} counts as update work.
+     */
+    public void beginFrame() {
+        m_Data.FrameStart = System.nanoTime();
+    }
+
+    /**
+     * Takes a free list and starts recording into it. Waits if the render thread still holds every list.
+     * @return the list being recorded, or null if the render thread died and there is nothing to record into.
+     */
+    public RenderCommands record() {
+        final long start = System.nanoTime();
+
+        RenderCommands list = null;
+        try {
+            while((list = m_Free.poll(POLL_NANOS, TimeUnit.NANOSECONDS)) == null) {
+                if(!m_Data.Thread.isAlive()) {
+                    Log.RENDER.error("The render thread has stopped!");
+                    return null;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+
+        m_Stats.WaitNanos += System.nanoTime() - start;
+
+        m_Data.Recording = list;
+        RenderCommands.beginRecording(list);
+        return list;
+    }
+
+    /**
+     * Stops recording and queues the list for the render thread.
+     */
+    public void submit() {
+        final RenderCommands list = m_Data.Recording;
+        if(list == null)
+            return;
+
+        RenderCommands.endRecording();
+        m_Data.Recording = null;
+
+        final long now = System.nanoTime();
+        list.setSubmitTime(now);
+        m_Submitted.add(list);
+
+        final int depth = m_Submitted.size();
+        m_Stats.Submitted++;
+        m_Stats.DepthSum += depth;
+        m_Stats.MaxDepth = Math.max(m_Stats.MaxDepth, depth);
+        m_Stats.UpdateNanos += now - m_Data.FrameStart;
+
+        if(now - m_Stats.WindowStart >= NANOS_PER_SECOND)
+            publishStats(now);
+    }
+
+    @Override
+    public void run() {
+        glfwMakeContextCurrent(m_Data.Window.getGLFWwindow());
+        GL.setCapabilities(m_Data.Capabilities);
+
+        try {
+            while(m_Data.Running || !m_Submitted.isEmpty()) {
+                runTasks();
+
+                final RenderCommands list = m_Submitted.poll(POLL_NANOS, TimeUnit.NANOSECONDS);
+                if(list == null)
+                    continue;
+
+                final long start = System.nanoTime();
+                list.replay();
+                m_Data.Window.swapBuffers();
+                Profiler.endReplay();
+                final long end = System.nanoTime();
+
+                final long latency = end - list.getSubmitTime();
+                m_Stats.RenderNanos.addAndGet(end - start);
+                m_Stats.LatencyNanos.addAndGet(latency);
+                m_Stats.MaxLatencyNanos.accumulateAndGet(latency, Math::max);
+                m_Stats.Replayed.incrementAndGet();
+
+                list.reset();
+                m_Free.add(list);
+            }
+            runTasks();
+        } catch (Throwable e) {
+            Log.RENDER.error("The render thread crashed!", e);
+            m_Data.Running = false;
+        } finally {
+            cancelTasks();
+            glfwMakeContextCurrent(NULL);
+            GL.setCapabilities(null);
+        }
+    }
+
+    /**
+     * Runs a task on the thread that owns the OpenGL context and waits for it, e.g. to create GL resources from an update.<br>
+     * Runs it right away if there is no render thread, or if we are already on it.
+     * @return whether the task ran to the end, false if it threw or the render thread stopped before running it.
+     */
+    public static boolean invokeAndWait(Runnable task) {
+        final RenderThread thread = ms_Instance;
+        if(thread == null || !thread.m_Data.Running || Thread.currentThread() == thread.m_Data.Thread) {
+            task.run();
+            return true;
+        }
+
+        final FutureTask<Void> future = new FutureTask<>(task, null);
+        thread.m_Tasks.add(future);
+        try {
+            // Polls rather than waiting for good, the render thread may die before it gets to the task.
+            while(true) {
+                try {
+                    future.get(POLL_NANOS, TimeUnit.NANOSECONDS);
+                    return true;
+                } catch (TimeoutException e) {
+                    if(!thread.m_Data.Thread.isAlive()) {
+                        future.cancel(false);
+                        Log.RENDER.error("The render thread stopped before it could run a task!");
+                        return false;
+                    }
+                }
+            }
+        } catch (ExecutionException e) {
+            Log.RENDER.error("A task on the render thread failed!", e.getCause());
+            return false;
+        } catch (CancellationException e) {
+            Log.RENDER.error("The render thread stopped before it could run a task!");
+            return false;
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * @return the average time from submitting a list to its frame being swapped over the last second, in milliseconds.
+     */
+    public double getLatencyMs() {
+        return m_Stats.LatencyMs;
+    }
+
+    public double getMaxLatencyMs() {
+        return m_Stats.MaxLatencyMs;
+    }
+
+    /**
+     * @return how many lists were waiting to be replayed on average when we submitted one, over the last second.
+     */
+    public double getQueueDepth() {
+        return m_Stats.QueueDepth;
+    }
+
+    public int getMaxQueueDepth() {
+        return m_Stats.MaxQueueDepth;
+    }
+
+    /**
+     * @return how long the update thread waited for a free list per frame over the last second, in milliseconds.
+     */
+    public double getWaitMs() {
+        return m_Stats.WaitMs;
+    }
+
+    /**
+     * @return the share of the last second both threads were busy at once, from 0 to 1.
+     */
+    public double getOverlap() {
+        return m_Stats.Overlap;
+    }
+
+    public int getBufferCount() {
+        return m_Data.Lists.length;
+    }
+
+    public void logStats() {
+        Log.RENDER.info("RenderThread: {}ms latency (max {}ms), queue depth {} (max {}), {}ms waiting per frame, {}% overlap",
+                String.format("%.2f", m_Stats.LatencyMs), String.format("%.2f", m_Stats.MaxLatencyMs),
+                String.format("%.2f", m_Stats.QueueDepth), m_Stats.MaxQueueDepth,
+                String.format("%.2f", m_Stats.WaitMs), String.format("%.1f", m_Stats.Overlap * 100.0));
+    }
+
+    public static RenderThread get() {
+        return ms_Instance;
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while((task = m_Tasks.poll()) != null)
+            task.run();
+    }
+
+    /**
+     * Fails whatever is still queued once we stop, nobody is left to run it and its callers would wait forever.
+     */
+    private void cancelTasks() {
+        Runnable task;
+        while((task = m_Tasks.poll()) != null) {
+            if(task instanceof FutureTask<?> future)
+                future.cancel(false);
+        }
+    }
+
+    private void publishStats(long now) {
+        final long elapsed = now - m_Stats.WindowStart;
+        final long replayed = m_Stats.Replayed.getAndSet(0L);
+        final long renderNanos = m_Stats.RenderNanos.getAndSet(0L);
+        final long latency = m_Stats.LatencyNanos.getAndSet(0L);
+        final long maxLatency = m_Stats.MaxLatencyNanos.getAndSet(0L);
+        final int submitted = Math.max(1, m_Stats.Submitted);
+
+        m_Stats.LatencyMs = replayed > 0L ? latency / (double) replayed / 1_000_000.0 : 0.0;
+        m_Stats.MaxLatencyMs = maxLatency / 1_000_000.0;
+        m_Stats.QueueDepth = m_Stats.DepthSum / (double) submitted;
+        m_Stats.MaxQueueDepth = m_Stats.MaxDepth;
+        m_Stats.WaitMs = m_Stats.WaitNanos / (double) submitted / 1_000_000.0;
+
+        // Whatever busy time doesn't fit into the window must have happened on both threads at once.
+        final long updateBusy = m_Stats.UpdateNanos - m_Stats.WaitNanos;
+        m_Stats.Overlap = Math.max(0.0, Math.min(1.0, (updateBusy + renderNanos - elapsed) / (double) elapsed));
+
+        m_Stats.WindowStart = now;
+        m_Stats.UpdateNanos = 0L;
+        m_Stats.WaitNanos = 0L;
+        m_Stats.Submitted = 0;
+        m_Stats.DepthSum = 0;
+        m_Stats.MaxDepth = 0;
+    }
+
+}
@@ -1,28 +1,37 @@
 package git.arcane.core.graphics.rendering;
 
+import git.arcane.core.graphics.GLState;
 import git.arcane.core.graphics.Mesh;
 import git.arcane.core.graphics.Shaders;
 import git.arcane.core.graphics.Texture;
 import git.arcane.core.graphics.cameras.Camera;
-import org.joml.Matrix4f;
+import git.arcane.core.profiler.Profiler;
 import org.joml.Vector2f;
+import org.joml.Vector2fc;
 import org.joml.Vector3f;
+import org.joml.Vector3fc;
 
 import static org.lwjgl.opengl.GL11.*;
-import static org.lwjgl.opengl.GL14.GL_FUNC_ADD;
-import static org.lwjgl.opengl.GL14.glBlendFuncSeparate;
-import static org.lwjgl.opengl.GL20.glBlendEquationSeparate;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
 
 /**
  * A basic renderer that allows us to render things to the screen <br>
  * in a "quick and dirty" manner. Will see lots of change.
+ * <br>The camera's matrices come from its uniform buffer. A Mesh's offset and scale are handed to the vertex shader
+ * as constant attributes, so drawing one never multiplies matrices or uploads uniforms.
  */
 public class Renderer {
 
+    // Where the vertex shader reads a Mesh's offset (xyz) and scale (xy). No VAO ever enables these.
+    public static final int OFFSET_ATTRIB = 4, SCALE_ATTRIB = 5;
+
+    private static final Vector3fc ORIGIN = new Vector3f(0.0f);
+    private static final Vector2fc UNIT_SCALE = new Vector2f(1.0f);
+
     private final Shaders m_Shader;
     private Camera m_Camera;
 
+    private int m_SamplerHandle, m_TexturedHandle;
+
     public Renderer(Shaders shaders, Camera camera) {
         m_Shader = shaders;
         m_Camera = camera;
@@ -31,14 +40,13 @@ public class Renderer {
     }
 
     private void initialize() {
-        glEnable(GL_DEPTH_TEST);
+        GLState.setDepthTest(true);
 
-        glEnable(GL_BLEND);
-        glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+        GLState.setBlend(true);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
 
-        m_Shader.createUniform("u_MVPmatrix");
-        m_Shader.createUniform("u_Sampler");
-        m_Shader.createUniform("u_Textured");
+        m_SamplerHandle = m_Shader.createUniform("u_Sampler");
+        m_TexturedHandle = m_Shader.createUniform("u_Textured");
 
         update();
     }
@@ -57,37 +65,57 @@ public class Renderer {
     }
 
     public void renderMesh(Mesh mesh) {
-        renderMesh(new Vector3f(0.0f), new Vector2f(1.0f), mesh);
+        renderMesh(ORIGIN, UNIT_SCALE, mesh, null);
+    }
+
+    public void renderMesh(Mesh mesh, Texture texture) {
+        renderMesh(ORIGIN, UNIT_SCALE, mesh, texture);
     }
 
     public void renderMesh(Camera camera, Mesh mesh, Texture texture) {
-        renderMesh(new Vector3f(0.0f), new Vector2f(1.0f), mesh, texture);
+        renderMesh(ORIGIN, UNIT_SCALE, mesh, texture);
     }
 
-    public void renderMesh(Vector3f position, Vector2f scale, Mesh mesh) {
+    public void renderMesh(Vector3fc position, Vector2fc scale, Mesh mesh) {
         renderMesh(position, scale, mesh, null);
     }
 
-    public void renderMesh(Vector3f position, Vector2f scale, Mesh mesh, Texture texture) {
+    public void renderMesh(Vector3fc position, Vector2fc scale, Mesh mesh, Texture texture) {
         if(m_Shader == null || m_Camera == null)
             return;
 
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.mesh(this, m_Camera, mesh, texture, position, scale);
+        } else {
+            m_Camera.bind();
+            replayMesh(mesh, texture, position.x(), position.y(), position.z(), scale.x(), scale.y());
+        }
+        Profiler.countDraw(mesh.getVertexCount());
+    }
+
+    /**
+     * Draws a Mesh with the camera already bound. Called by {@link #renderMesh}, or by the render thread for Meshes we recorded.
+     */
+    void replayMesh(Mesh mesh, Texture texture, float x, float y, float z, float scaleX, float scaleY) {
         boolean textured = texture != null;
-        Matrix4f model = new Matrix4f();
-        model.translate(position).scale(scale.x, scale.y, 1.0f);
+
+        GLState.setDepthTest(true);
+        GLState.setBlend(true);
 
         m_Shader.bind();
-        m_Shader.setUniformMat4("u_MVPmatrix", new Matrix4f(m_Camera.getCombinedMatrix()).mul(model));
+        GLState.setVertexAttrib(OFFSET_ATTRIB, x, y, z, 0.0f);
+        GLState.setVertexAttrib(SCALE_ATTRIB, scaleX, scaleY, 1.0f, 0.0f);
 
-        m_Shader.setUniformBool("u_Textured", textured);
+        m_Shader.setUniformBool(m_TexturedHandle, textured);
         if(textured) {
             texture.bind(0);
-            m_Shader.setUniform1i("u_Sampler", 0);
+            m_Shader.setUniform1i(m_SamplerHandle, 0);
         }
 
-        glBindVertexArray(mesh.getVAO());
-        glDrawElements(GL_TRIANGLES, mesh.getVertexCount(), GL_UNSIGNED_INT, 0);
-        glBindVertexArray(0);
+        // Reads what was uploaded rather than the Mesh's arrays, which may have been rebuilt since this draw was recorded.
+        GLState.bindVertexArray(mesh.getVAO());
+        glDrawElements(GL_TRIANGLES, mesh.getUploadedIndexCount(), GL_UNSIGNED_INT, 0);
     }
 
 }
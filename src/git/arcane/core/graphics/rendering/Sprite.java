@@ -1,20 +1,25 @@
 package git.arcane.core.graphics.rendering;
 
-import git.arcane.core.graphics.Mesh;
 import git.arcane.core.graphics.Texture;
+import git.arcane.core.spatial.SpatialGrid;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
 /**
- * Handles a render-able Mesh with a Texture. This allows us to draw a texture super quick. <br>
+ * Handles a render-able area of a Texture. This allows us to draw a texture super quick. <br>
+ * Sprites are submitted to a {@link SpriteBatch}, so they don't own any GPU resources themselves.
  * Sprite Sheet support is currently supported.
  */
 public class Sprite {
 
     private static class SpriteData {
-        public Mesh mesh;
         public Vector3f tint;
         public Texture texture;
+        public SpriteRegion region;
+
+        // UVs of the bottom-left (u0, v0) and top-right (u1, v1) corners.
+        public float u0 = 0.0f, v0 = 1.0f;
+        public float u1 = 1.0f, v1 = 0.0f;
 
         private SpriteData(Texture texture) {
             this.texture = texture;
@@ -27,16 +32,34 @@ public class Sprite {
     private final Vector2f m_Size;
     private float m_Layer;
 
-    public Sprite(Texture texture, Mesh mesh, Vector3f tint) {
+    // The grid that tracks our bounds for culling, if any.
+    private SpatialGrid<Sprite> m_SpatialGrid;
+    private int m_SpatialId = -1;
+
+    public Sprite(Texture texture, Vector3f tint, float u0, float v0, float u1, float v1) {
         m_Data = new SpriteData(texture);
         m_Data.tint = tint;
-        m_Data.mesh = mesh;
+
+        m_Data.u0 = u0;
+        m_Data.v0 = v0;
+        m_Data.u1 = u1;
+        m_Data.v1 = v1;
 
         m_Position = new Vector3f(0.0f);
         m_Size = new Vector2f(1.0f);
         m_Layer = 0.0f;
     }
 
+    /**
+     * Creates a Sprite that displays a shared {@link SpriteRegion}. The region is released when the Sprite is disposed.
+     * @param region the region acquired from the {@link RegionCache}.
+     * @param tint the color the Sprite is multiplied by.
+     */
+    public Sprite(SpriteRegion region, Vector3f tint) {
+        this(region.getTexture(), tint, region.getU0(), region.getV0(), region.getU1(), region.getV1());
+        m_Data.region = region;
+    }
+
     public Sprite(Texture texture, Vector3f tint, int x, int y, int width, int height) {
         m_Data = new SpriteData(texture);
         m_Data.tint = tint;
@@ -44,8 +67,6 @@ public class Sprite {
         m_Position = new Vector3f(x, y, 0.0f);
         m_Size = new Vector2f(width, height);
         m_Layer = 0.0f;
-
-        init();
     }
 
     public Sprite(Texture texture, int x, int y, int width, int height) {
@@ -60,67 +81,49 @@ public class Sprite {
         this(texture, new Vector3f(1.0f));
     }
 
-    private void init() {
-        Vector2f topLeft = new Vector2f(0.0f, 0.0f), topRight = new Vector2f(1.0f, 0.0f);
-        Vector2f botLeft = new Vector2f(0.0f, 1.0f), botRight = new Vector2f(1.0f, 1.0f);
-
-        Vector3f color = m_Data.tint;
-        float[] vertices = new float[] {
-                -1.0f, -1.0f, 0.0f, color.x, color.y, color.z, botLeft.x,  botLeft.y,  // Bottom Left
-                -1.0f,  1.0f, 0.0f, color.x, color.y, color.z, topLeft.x,  topLeft.y,  // Top Left
-                1.0f,  1.0f, 0.0f, color.x, color.y, color.z, topRight.x, topRight.y, // Top Right
-                1.0f, -1.0f, 0.0f, color.x, color.y, color.z, botRight.x, botRight.y, // Bottom Right
-        };
-
-        int[] indices = new int[] {
-                0, 1, 2,
-                3, 0, 2
-        };
-
-        if(m_Data.mesh != null)
-            m_Data.mesh.dispose();
-
-        m_Data.mesh = new Mesh(vertices, indices);
-    }
-
-    private void reloadTint() {
-        float[] vertices = m_Data.mesh.getVertices();
-        int[] indices = m_Data.mesh.getIndices();
-
-        vertices[3] = m_Data.tint.x;
-        vertices[4] = m_Data.tint.y;
-        vertices[5] = m_Data.tint.z;
-
-        vertices[11] = m_Data.tint.x;
-        vertices[12] = m_Data.tint.y;
-        vertices[13] = m_Data.tint.z;
-
-        vertices[19] = m_Data.tint.x;
-        vertices[20] = m_Data.tint.y;
-        vertices[21] = m_Data.tint.z;
-
-        vertices[27] = m_Data.tint.x;
-        vertices[28] = m_Data.tint.y;
-        vertices[29] = m_Data.tint.z;
-
-        m_Data.mesh.dispose();
-        m_Data.mesh = new Mesh(vertices, indices);
+    public void draw(SpriteBatch batch) {
+        batch.draw(m_Data.texture, m_Position.x, m_Position.y, m_Position.z, m_Size.x, m_Size.y,
+                m_Data.u0, m_Data.v0, m_Data.u1, m_Data.v1, m_Data.tint);
     }
 
-    public void draw(Renderer render) {
-        render.renderMesh(m_Position, m_Size, m_Data.mesh, m_Data.texture);
+    public void draw(InstancedBatch batch) {
+        batch.draw(m_Data.texture, m_Position.x, m_Position.y, m_Position.z, m_Size.x, m_Size.y,
+                m_Data.u0, m_Data.v0, m_Data.u1, m_Data.v1, m_Data.tint);
     }
 
     public void dispose() {
-        m_Data.mesh.dispose();
+        // The geometry lives in the SpriteBatch and the Texture is owned elsewhere, we only hand back our region.
+        RegionCache.release(m_Data.region);
+        m_Data.region = null;
+
+        setSpatialGrid(null);
     }
 
     public void setPosition(float x, float y) {
         m_Position.set(x, y, m_Position.z);
+        updateBounds();
     }
 
     public void setSize(float xSize, float ySize) {
         m_Size.set(xSize, ySize);
+        updateBounds();
+    }
+
+    /**
+     * Makes a {@link SpatialGrid} track this Sprite, so it can be culled when it's off screen.<br>
+     * The grid is kept up to date whenever the Sprite moves or changes size.
+     * @param grid the grid that should track us, or null to stop being tracked.
+     */
+    public void setSpatialGrid(SpatialGrid<Sprite> grid) {
+        if(m_SpatialGrid == grid)
+            return;
+
+        if(m_SpatialGrid != null)
+            m_SpatialGrid.remove(m_SpatialId);
+
+        m_SpatialGrid = grid;
+        m_SpatialId = grid == null ? -1 : grid.add(this,
+                m_Position.x - m_Size.x, m_Position.y - m_Size.y, m_Position.x + m_Size.x, m_Position.y + m_Size.y);
     }
 
     public void setLayer(float layer) {
@@ -129,13 +132,45 @@ public class Sprite {
 
     public void setTint(Vector3f color) {
         m_Data.tint.set(color);
-        reloadTint();
     }
 
     public void setTexture(Texture texture) {
         m_Data.texture = texture;
     }
 
+    /**
+     * Makes this Sprite display a shared {@link SpriteRegion} instead, releasing the region it held before.
+     * @param region the region acquired from the {@link RegionCache}.
+     */
+    public void setRegion(SpriteRegion region) {
+        if(region == m_Data.region)
+            return;
+
+        RegionCache.release(m_Data.region);
+        m_Data.region = region;
+
+        m_Data.texture = region.getTexture();
+        setUVs(region.getU0(), region.getV0(), region.getU1(), region.getV1());
+    }
+
+    /**
+     * Sets which area of the {@link Texture} this Sprite displays.
+     * @param u0 the u coordinate of the left edge.
+     * @param v0 the v coordinate of the bottom edge.
+     * @param u1 the u coordinate of the right edge.
+     * @param v1 the v coordinate of the top edge.
+     */
+    public void setUVs(float u0, float v0, float u1, float v1) {
+        m_Data.u0 = u0;
+        m_Data.v0 = v0;
+        m_Data.u1 = u1;
+        m_Data.v1 = v1;
+    }
+
+    public SpatialGrid<Sprite> getSpatialGrid() {
+        return m_SpatialGrid;
+    }
+
     public Vector3f getPosition() {
         return m_Position;
     }
@@ -155,4 +190,32 @@ public class Sprite {
     public Texture getTexture() {
         return m_Data.texture;
     }
+
+    public SpriteRegion getRegion() {
+        return m_Data.region;
+    }
+
+    public float getU0() {
+        return m_Data.u0;
+    }
+
+    public float getV0() {
+        return m_Data.v0;
+    }
+
+    public float getU1() {
+        return m_Data.u1;
+    }
+
+    public float getV1() {
+        return m_Data.v1;
+    }
+
+    private void updateBounds() {
+        if(m_SpatialGrid == null)
+            return;
+
+        m_SpatialGrid.update(m_SpatialId,
+                m_Position.x - m_Size.x, m_Position.y - m_Size.y, m_Position.x + m_Size.x, m_Position.y + m_Size.y);
+    }
 }
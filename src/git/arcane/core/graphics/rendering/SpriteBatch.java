@@ -0,0 +1,348 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.Shaders;
+import git.arcane.core.graphics.StreamBuffer;
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.cameras.Camera;
+import git.arcane.core.profiler.Profiler;
+import git.arcane.core.spatial.SpatialGrid;
+import git.arcane.core.util.Log;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
+import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL32.glDrawElementsBaseVertex;
+
+/**
+ * Collects textured quads between {@link #begin()} and {@link #end()} and streams them to the GPU through a {@link StreamBuffer}.<br>
+ * The batch is only flushed to the GPU when the {@link Texture} or render state changes, or when it is full.
+ * This lets us draw thousands of {@link Sprite}s and glyphs with a handful of draw calls.
+ */
+public class SpriteBatch {
+
+    public static final int DEFAULT_MAX_QUADS = 4096;
+
+    // x, y, z, r, g, b, u, v -- Same layout as Mesh so both can share the scene shaders.
+    public static final int VERTEX_FLOATS = 8;
+    public static final int QUAD_FLOATS = VERTEX_FLOATS * 4;
+    private static final int QUAD_INDICES = 6;
+    private static final int VERTEX_BYTES = VERTEX_FLOATS * Float.BYTES;
+
+    private static class BatchData {
+        public int vao = -1, ebo = -1;
+        public StreamBuffer stream;
+
+        public FloatBuffer vertices;
+        public int maxQuads, quadCount;
+
+        public Texture texture;
+        public boolean depthTest = true;
+        public boolean drawing;
+    }
+
+    private static class BatchStats {
+        public int DrawCalls, Quads;
+    }
+
+    private final BatchData m_Data;
+    private final BatchStats m_Stats;
+    private final Shaders m_Shader;
+    private Camera m_Camera;
+    private int m_SamplerHandle, m_TexturedHandle;
+
+    // Kept around so culled drawing doesn't allocate a new lambda every frame.
+    private final SpatialGrid.Visitor<Sprite> m_DrawVisitor = sprite -> sprite.draw(this);
+    private final RenderCommands.Replayable m_Replayer = this::submit;
+
+    public SpriteBatch(Shaders shader, Camera camera) {
+        this(shader, camera, DEFAULT_MAX_QUADS);
+    }
+
+    public SpriteBatch(Shaders shader, Camera camera, int maxQuads) {
+        this(shader, camera, maxQuads, StreamBuffer.getBestMode());
+    }
+
+    /**
+     * Creates a batch that streams its data with a specific {@link StreamBuffer.Mode}, mostly to compare them.
+     */
+    public SpriteBatch(Shaders shader, Camera camera, int maxQuads, StreamBuffer.Mode streamMode) {
+        m_Data = new BatchData();
+        m_Stats = new BatchStats();
+
+        m_Shader = shader;
+        m_Camera = camera;
+        m_Data.maxQuads = maxQuads;
+
+        initialize(streamMode);
+    }
+
+    private void initialize(StreamBuffer.Mode streamMode) {
+        m_Data.vertices = MemoryUtil.memAllocFloat(m_Data.maxQuads * QUAD_FLOATS);
+
+        IntBuffer indexBuffer = null;
+        try {
+            m_Data.vao = glGenVertexArrays();
+            GLState.bindVertexArray(m_Data.vao);
+
+            // Every flush lands at a different offset of the stream, which we pass to the draw as a base vertex.
+            m_Data.stream = new StreamBuffer(GL_ARRAY_BUFFER, (long) m_Data.vertices.capacity() * Float.BYTES, VERTEX_BYTES, streamMode);
+            glBindBuffer(GL_ARRAY_BUFFER, m_Data.stream.getID());
+
+            glEnableVertexAttribArray(0);
+            glVertexAttribPointer(0, 3, GL_FLOAT, false, VERTEX_BYTES, 0);
+
+            glEnableVertexAttribArray(1);
+            glVertexAttribPointer(1, 3, GL_FLOAT, false, VERTEX_BYTES, 3 * Float.BYTES);
+
+            glEnableVertexAttribArray(2);
+            glVertexAttribPointer(2, 2, GL_FLOAT, false, VERTEX_BYTES, 6 * Float.BYTES);
+
+            // Every quad uses the same index pattern, so we only ever upload it once.
+            indexBuffer = MemoryUtil.memAllocInt(m_Data.maxQuads * QUAD_INDICES);
+            for(int i = 0, v = 0; i < m_Data.maxQuads; i++, v += 4) {
+                indexBuffer.put(v).put(v + 1).put(v + 2);
+                indexBuffer.put(v + 3).put(v).put(v + 2);
+            }
+            indexBuffer.flip();
+
+            m_Data.ebo = glGenBuffers();
+            glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, m_Data.ebo);
+            glBufferData(GL_ELEMENT_ARRAY_BUFFER, indexBuffer, GL_STATIC_DRAW);
+
+            GLState.bindVertexArray(0);
+        } finally {
+            if(indexBuffer != null)
+                MemoryUtil.memFree(indexBuffer);
+        }
+
+        GLState.setBlend(true);
+        GLState.blendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA);
+
+        m_SamplerHandle = m_Shader.createUniform("u_Sampler");
+        m_TexturedHandle = m_Shader.createUniform("u_Textured");
+    }
+
+    /**
+     * Starts collecting quads. Also resets the per-frame draw call and quad counters.
+     */
+    public void begin() {
+        if(m_Data.drawing) {
+            Log.RENDER.warn("SpriteBatch.begin() called twice without end()!");
+            return;
+        }
+
+        m_Stats.DrawCalls = 0;
+        m_Stats.Quads = 0;
+
+        m_Data.drawing = true;
+        m_Data.quadCount = 0;
+        m_Data.vertices.clear();
+    }
+
+    /**
+     * Flushes whatever is left in the batch and stops collecting quads.
+     */
+    public void end() {
+        if(!m_Data.drawing) {
+            Log.RENDER.warn("SpriteBatch.end() called without begin()!");
+            return;
+        }
+
+        flush();
+        m_Data.drawing = false;
+    }
+
+    /**
+     * Uploads the collected quads and draws them in a single call.
+     */
+    public void flush() {
+        if(m_Data.quadCount == 0 || m_Shader == null || m_Camera == null)
+            return;
+
+        m_Data.vertices.flip();
+
+        // On the update thread of a threaded renderer we only copy the quads, the render thread draws them later.
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) {
+            commands.batch(m_Replayer, m_Camera, m_Data.texture, m_Data.depthTest, m_Data.vertices, m_Data.quadCount);
+        } else {
+            m_Camera.bind();
+            submit(m_Data.texture, m_Data.depthTest, MemoryUtil.memAddress(m_Data.vertices), m_Data.quadCount);
+        }
+        Profiler.countDraw(m_Data.quadCount * QUAD_INDICES);
+
+        m_Stats.DrawCalls++;
+        m_Stats.Quads += m_Data.quadCount;
+
+        m_Data.quadCount = 0;
+        m_Data.vertices.clear();
+    }
+
+    /**
+     * Streams quads to the GPU and draws them. Called by {@link #flush()}, or by the render thread for quads we recorded.
+     */
+    private void submit(Texture texture, boolean depthTest, long vertices, int quads) {
+        boolean textured = texture != null;
+
+        GLState.setDepthTest(depthTest);
+        GLState.setBlend(true);
+
+        m_Shader.bind();
+
+        // Our vertices are already in world space, see Renderer for the Meshes that aren't.
+        GLState.setVertexAttrib(Renderer.OFFSET_ATTRIB, 0.0f, 0.0f, 0.0f, 0.0f);
+        GLState.setVertexAttrib(Renderer.SCALE_ATTRIB, 1.0f, 1.0f, 1.0f, 0.0f);
+
+        m_Shader.setUniformBool(m_TexturedHandle, textured);
+        if(textured) {
+            texture.bind(0);
+            m_Shader.setUniform1i(m_SamplerHandle, 0);
+        }
+
+        long offset = m_Data.stream.upload(vertices, (long) quads * QUAD_FLOATS * Float.BYTES);
+        if(offset < 0L)
+            return;
+
+        GLState.bindVertexArray(m_Data.vao);
+        glDrawElementsBaseVertex(GL_TRIANGLES, quads * QUAD_INDICES, GL_UNSIGNED_INT, 0, (int) (offset / VERTEX_BYTES));
+    }
+
+    /**
+     * Adds a quad to the batch. The quad spans from <i>position - size</i> to <i>position + size</i>,
+     * which matches how {@link Renderer#renderMesh} scales the unit Mesh.
+     * @param texture the texture to sample from, or null for an untextured quad.
+     * @param x the x position of the quad's center.
+     * @param y the y position of the quad's center.
+     * @param z the depth of the quad.
+     * @param width the half-width of the quad.
+     * @param height the half-height of the quad.
+     * @param u0 the u coordinate of the left edge.
+     * @param v0 the v coordinate of the bottom edge.
+     * @param u1 the u coordinate of the right edge.
+     * @param v1 the v coordinate of the top edge.
+     * @param tint the color the quad is multiplied by.
+     */
+    public void draw(Texture texture, float x, float y, float z, float width, float height,
+                     float u0, float v0, float u1, float v1, Vector3f tint) {
+        draw(texture, x, y, z, width, height, u0, v0, u1, v1, tint.x, tint.y, tint.z);
+    }
+
+    public void draw(Texture texture, float x, float y, float z, float width, float height,
+                     float u0, float v0, float u1, float v1, float r, float g, float b) {
+        if(!m_Data.drawing) {
+            Log.RENDER.warn("SpriteBatch.draw() called without begin()!");
+            return;
+        }
+
+        if(texture != m_Data.texture) {
+            flush();
+            m_Data.texture = texture;
+        } else if(m_Data.quadCount >= m_Data.maxQuads) {
+            flush();
+        }
+
+        putQuad(m_Data.vertices, x, y, z, width, height, u0, v0, u1, v1, r, g, b);
+        m_Data.quadCount++;
+    }
+
+    /**
+     * Writes the 4 vertices of a quad in our vertex layout. See {@link #draw} for what the arguments mean.
+     * @param buffer the buffer to write into, it needs room for {@link #QUAD_FLOATS} floats.
+     */
+    public static void putQuad(FloatBuffer buffer, float x, float y, float z, float width, float height,
+                               float u0, float v0, float u1, float v1, float r, float g, float b) {
+        float left = x - width, right = x + width;
+        float bottom = y - height, top = y + height;
+
+        buffer.put(left).put(bottom).put(z).put(r).put(g).put(b).put(u0).put(v0);  // Bottom Left
+        buffer.put(left).put(top).put(z).put(r).put(g).put(b).put(u0).put(v1);     // Top Left
+        buffer.put(right).put(top).put(z).put(r).put(g).put(b).put(u1).put(v1);    // Top Right
+        buffer.put(right).put(bottom).put(z).put(r).put(g).put(b).put(u1).put(v0); // Bottom Right
+    }
+
+    public void dispose() {
+        glDeleteVertexArrays(m_Data.vao);
+        GLState.onVertexArrayDeleted(m_Data.vao);
+        glDeleteBuffers(m_Data.ebo);
+        m_Data.stream.dispose();
+
+        MemoryUtil.memFree(m_Data.vertices);
+        m_Data.vertices = null;
+    }
+
+    /**
+     * Draws only the {@link Sprite}s of a {@link SpatialGrid} that overlap what our camera can see.
+     * @param grid the grid tracking the Sprites.
+     * @return the number of Sprites drawn, see {@link SpatialGrid#getSize()} for how many there are in total.
+     */
+    public int drawVisible(SpatialGrid<Sprite> grid) {
+        if(m_Camera == null)
+            return 0;
+
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+        return grid.query(min.x, min.y, max.x, max.y, m_DrawVisitor);
+    }
+
+    /**
+     * Enables or disables depth testing for the quads that follow. Flushes if the state changes.
+     * @param depthTest whether the following quads should be depth tested.
+     */
+    public void setDepthTest(boolean depthTest) {
+        if(m_Data.depthTest == depthTest)
+            return;
+
+        flush();
+        m_Data.depthTest = depthTest;
+    }
+
+    public void setCamera(Camera camera) {
+        if(m_Camera == camera)
+            return;
+
+        flush();
+        m_Camera = camera;
+    }
+
+    public boolean isDepthTest() {
+        return m_Data.depthTest;
+    }
+
+    public boolean isDrawing() {
+        return m_Data.drawing;
+    }
+
+    public Camera getCamera() {
+        return m_Camera;
+    }
+
+    public int getMaxQuads() {
+        return m_Data.maxQuads;
+    }
+
+    public StreamBuffer getStream() {
+        return m_Data.stream;
+    }
+
+    /**
+     * @return the number of draw calls issued since the last {@link #begin()}.
+     */
+    public int getDrawCalls() {
+        return m_Stats.DrawCalls;
+    }
+
+    /**
+     * @return the number of quads drawn since the last {@link #begin()}.
+     */
+    public int getQuadCount() {
+        return m_Stats.Quads;
+    }
+
+}
@@ -0,0 +1,51 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.graphics.Texture;
+
+/**
+ * An immutable area of a {@link Texture}, described by its UVs.<br>
+ * Regions are handed out by the {@link RegionCache} so every {@link Sprite} showing the same area shares one instance.
+ */
+public class SpriteRegion {
+
+    private final Texture m_Texture;
+    private final float m_U0, m_V0, m_U1, m_V1;
+
+    int m_RefCount;
+
+    SpriteRegion(Texture texture, float u0, float v0, float u1, float v1) {
+        m_Texture = texture;
+
+        m_U0 = u0;
+        m_V0 = v0;
+        m_U1 = u1;
+        m_V1 = v1;
+
+        m_RefCount = 0;
+    }
+
+    public Texture getTexture() {
+        return m_Texture;
+    }
+
+    public float getU0() {
+        return m_U0;
+    }
+
+    public float getV0() {
+        return m_V0;
+    }
+
+    public float getU1() {
+        return m_U1;
+    }
+
+    public float getV1() {
+        return m_V1;
+    }
+
+    public int getRefCount() {
+        return m_RefCount;
+    }
+
+}
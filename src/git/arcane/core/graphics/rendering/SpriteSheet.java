@@ -1,12 +1,13 @@
 package git.arcane.core.graphics.rendering;
 
-import git.arcane.core.graphics.Mesh;
 import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.TextureAtlas;
+import git.arcane.core.util.Log;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 
 /**
- * Creates {@link Sprite}s with the data needed for a Mesh to display a specific portion of a specified {@link Texture}.
+ * Creates {@link Sprite}s with the UVs needed to display a specific portion of a specified {@link Texture}.
  */
 public class SpriteSheet {
 
@@ -14,10 +15,21 @@ public class SpriteSheet {
         public Texture sheetTexture;
         public int sheetWidth, sheetHeight;
 
-        private SpriteSheetData(Texture texture) {
+        // Where the sheet starts inside its Texture, and how big that Texture is. Only differs for atlas regions.
+        public int originX, originY;
+        public int textureWidth, textureHeight;
+
+        public final float[] scratchUVs = new float[4];
+
+        private SpriteSheetData(Texture texture, int originX, int originY, int width, int height, int textureWidth, int textureHeight) {
             sheetTexture = texture;
-            sheetWidth   = texture.getWidth();
-            sheetHeight  = texture.getHeight();
+            sheetWidth   = width;
+            sheetHeight  = height;
+
+            this.originX = originX;
+            this.originY = originY;
+            this.textureWidth  = textureWidth;
+            this.textureHeight = textureHeight;
         }
     }
 
@@ -28,7 +40,35 @@ public class SpriteSheet {
      * @param texture the texture that will be used to create {@link Sprite}s.
      */
     public SpriteSheet(Texture texture) {
-        m_Data = new SpriteSheetData(texture);
+        this(texture, 0, 0, texture.getWidth(), texture.getHeight(), texture.getWidth(), texture.getHeight());
+    }
+
+    /**
+     * Creates a SpriteSheet using an image packed into a {@link TextureAtlas}.<br>
+     * Offsets passed to <i>getSprite</i> are relative to the image, not to the atlas page.
+     * @param region the atlas region of our sheet, the atlas must already be packed.
+     */
+    public SpriteSheet(TextureAtlas.Region region) {
+        if(!region.isPacked())
+            Log.RENDER.error("The TextureAtlas of [{}] has not been packed yet!", region.getName());
+
+        m_Data = new SpriteSheetData(region.getTexture(), region.getX(), region.getY(), region.getWidth(), region.getHeight(),
+                region.getPageWidth(), region.getPageHeight());
+    }
+
+    /**
+     * Creates a SpriteSheet over an area of a {@link Texture}. Only the sizes are used to compute UVs,
+     * so the Texture may be null when all we need are the UVs.
+     * @param texture the texture that will be used to create {@link Sprite}s.
+     * @param originX the x position (in pixels) where the sheet starts inside the Texture.
+     * @param originY the y position (in pixels) where the sheet starts inside the Texture.
+     * @param width the width (in pixels) of the sheet.
+     * @param height the height (in pixels) of the sheet.
+     * @param textureWidth the width (in pixels) of the whole Texture.
+     * @param textureHeight the height (in pixels) of the whole Texture.
+     */
+    public SpriteSheet(Texture texture, int originX, int originY, int width, int height, int textureWidth, int textureHeight) {
+        m_Data = new SpriteSheetData(texture, originX, originY, width, height, textureWidth, textureHeight);
     }
 
     /**
@@ -55,12 +95,10 @@ public class SpriteSheet {
      * @return the {@link Sprite} created using the passed in data.
      */
     public Sprite getSprite(Sprite sprite, int xOffset, int yOffset, int spriteWidth, int spriteHeight) {
-        final Vector3f color = new Vector3f(sprite.getTint());
-        final Vector3f position = new Vector3f(sprite.getPosition());
-        final Vector2f size = new Vector2f(sprite.getSize());
+        final Vector3f position = sprite.getPosition();
+        final Vector2f size = sprite.getSize();
 
-        final Mesh mesh = CreateSpriteMesh(color, xOffset, yOffset, spriteWidth, spriteHeight);
-        final Sprite result = new Sprite(m_Data.sheetTexture, mesh, color);
+        final Sprite result = getSprite(new Vector3f(sprite.getTint()), xOffset, yOffset, spriteWidth, spriteHeight);
         result.setPosition(position.x, position.y);
         result.setSize(size.x, size.y);
 
@@ -78,39 +116,53 @@ public class SpriteSheet {
      * @return the {@link Sprite} created using the passed in data.
      */
     public Sprite getSprite(Vector3f color, int xOffset, int yOffset, int spriteWidth, int spriteHeight) {
-        final Mesh mesh = CreateSpriteMesh(color, xOffset, yOffset, spriteWidth, spriteHeight);
-        return new Sprite(m_Data.sheetTexture, mesh, new Vector3f(1.0f));
+        return new Sprite(getRegion(xOffset, yOffset, spriteWidth, spriteHeight), color);
     }
 
-    private Mesh CreateSpriteMesh(Vector3f color, float x, float y, float width, float height) {
-        Vector2f topLeft = new Vector2f(), topRight = new Vector2f();
-        Vector2f botLeft = new Vector2f(), botRight = new Vector2f();
+    /**
+     * Receives the shared {@link SpriteRegion} for an area of the sheet from the {@link RegionCache}.<br>
+     * Asking for the same area again hands back the same region. Release it with {@link RegionCache#release}.
+     * @param xOffset the xOffset (in pixels) where the area is.
+     * @param yOffset the yOffset (in pixels) where the area is.
+     * @param width the width (in pixels) of the area.
+     * @param height the height (in pixels) of the area.
+     * @return the shared region.
+     */
+    public SpriteRegion getRegion(int xOffset, int yOffset, int width, int height) {
+        final float[] uvs = m_Data.scratchUVs;
+        computeUVs(xOffset, yOffset, width, height, uvs);
+
+        return RegionCache.acquire(m_Data.sheetTexture, uvs[0], uvs[1], uvs[2], uvs[3]);
+    }
+
+    /**
+     * Calculates the UVs of an area of the sheet in the order the {@link SpriteBatch} expects them.
+     * @param x the xOffset (in pixels) where the area is.
+     * @param y the yOffset (in pixels) where the area is.
+     * @param width the width (in pixels) of the area.
+     * @param height the height (in pixels) of the area.
+     * @param dest the array that receives u0, v0, u1, v1 (bottom-left and top-right).
+     */
+    public void computeUVs(float x, float y, float width, float height, float[] dest) {
+        final float originX = m_Data.originX, originY = m_Data.originY;
+        final float texWidth = m_Data.textureWidth, texHeight = m_Data.textureHeight;
 
         if((x <= 0 && y <= 0) && (width >= m_Data.sheetWidth && height >= m_Data.sheetHeight)) {
-            topLeft.set( 0.0f, 0.0f);
-            topRight.set(1.0f, 0.0f);
-            botLeft.set( 0.0f, 1.0f);
-            botRight.set(1.0f, 1.0f);
-        } else {
-            topLeft.set(x / m_Data.sheetWidth, (y + height) / m_Data.sheetHeight);
-            topRight.set((x + width) / m_Data.sheetWidth, (y + height) / m_Data.sheetHeight);
-            botLeft.set(x / m_Data.sheetWidth, y / m_Data.sheetHeight);
-            botRight.set((x + width) / m_Data.sheetWidth, y / m_Data.sheetHeight);
+            dest[0] = originX / texWidth;
+            dest[1] = (originY + m_Data.sheetHeight) / texHeight;
+            dest[2] = (originX + m_Data.sheetWidth) / texWidth;
+            dest[3] = originY / texHeight;
+            return;
         }
 
-        float[] vertices = { // x, y, z, r, g, b, u, v
-                -1.0f, -1.0f, 0.0f, color.x, color.y, color.z, botLeft.x,  botLeft.y,  // Bottom Left
-                -1.0f,  1.0f, 0.0f, color.x, color.y, color.z, topLeft.x,  topLeft.y,  // Top Left
-                 1.0f,  1.0f, 0.0f, color.x, color.y, color.z, topRight.x, topRight.y, // Top Right
-                 1.0f, -1.0f, 0.0f, color.x, color.y, color.z, botRight.x, botRight.y, // Bottom Right
-        };
-
-        int[] indices = {
-                0, 1, 2,
-                3, 0, 2
-        };
+        dest[0] = (originX + x) / texWidth;
+        dest[1] = (originY + y) / texHeight;
+        dest[2] = (originX + x + width) / texWidth;
+        dest[3] = (originY + y + height) / texHeight;
+    }
 
-        return new Mesh(vertices, indices);
+    public Texture getTexture() {
+        return m_Data.sheetTexture;
     }
 
 }
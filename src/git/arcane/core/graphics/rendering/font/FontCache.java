@@ -0,0 +1,176 @@
+package git.arcane.core.graphics.rendering.font;
+
+import git.arcane.core.graphics.Pixmap;
+import git.arcane.core.util.Log;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Keeps the glyph images and metrics {@link RenderFont} rasterizes in files, so later runs skip AWT entirely.<br>
+ * Files are keyed by a hash of the font file, the size and whether the glyphs are anti-aliased. Reading one maps it
+ * into memory and the pixels are uploaded straight out of the mapping.
+ */
+class FontCache {
+
+    private static final int MAGIC = 0x544E4641; // "AFNT"
+    private static final int VERSION = 1;
+
+    // code, x, y, width, height, advance
+    private static final int GLYPH_BYTES = 6 * Integer.BYTES;
+
+    /**
+     * Everything a RenderFont needs to be created without rasterizing anything.
+     */
+    static class Entry {
+        public String Name;
+        public Pixmap Image;
+        public Glyph[] Glyphs;
+        public int FontHeight;
+    }
+
+    private static volatile Path ms_Directory = null;
+
+    private FontCache() {
+    }
+
+    static void setDirectory(Path directory) {
+        ms_Directory = directory;
+    }
+
+    static Path getDirectory() {
+        return ms_Directory;
+    }
+
+    /**
+     * @return the file a font's glyphs are cached in, or null if caching is off.
+     */
+    static Path getPath(byte[] fontFile, int size, boolean antiAlias) {
+        final Path directory = ms_Directory;
+        if(directory == null)
+            return null;
+
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256").digest(fontFile);
+            final String key = HexFormat.of().formatHex(hash, 0, 16);
+            return directory.resolve(key + "-" + size + (antiAlias ? "" : "-aliased") + ".glyphs");
+        } catch (NoSuchAlgorithmException e) {
+            Log.RENDER.error("Can't hash fonts, caching them is disabled: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Maps a cache file. The pixels of the Entry point into the mapping, which stays valid for as long as they are referenced.
+     * @param glyphCount the length of the glyph array to fill.
+     * @return the cached Entry, or null if there is no usable cache file.
+     */
+    static Entry read(Path path, int glyphCount) {
+        if(!Files.isRegularFile(path))
+            return null;
+
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final MappedByteBuffer file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            file.order(ByteOrder.LITTLE_ENDIAN);
+
+            if(file.remaining() < 8 * Integer.BYTES || file.getInt() != MAGIC || file.getInt() != VERSION) {
+                Log.RENDER.warn("Ignoring font cache [{}], it was written by something else!", path);
+                return null;
+            }
+
+            final int width = file.getInt(), height = file.getInt(), channels = file.getInt();
+            final Entry entry = new Entry();
+            entry.FontHeight = file.getInt();
+            final int glyphs = file.getInt();
+
+            final byte[] name = new byte[file.getInt()];
+            file.get(name);
+            entry.Name = new String(name, StandardCharsets.UTF_8);
+
+            final long pixelBytes = (long) width * height * channels;
+            if(file.remaining() != (long) glyphs * GLYPH_BYTES + pixelBytes) {
+                Log.RENDER.warn("Ignoring font cache [{}], it is truncated!", path);
+                return null;
+            }
+
+            entry.Glyphs = new Glyph[glyphCount];
+            for(int i = 0; i < glyphs; i++) {
+                final int code = file.getInt();
+                final Glyph glyph = new Glyph(file.getInt(), file.getInt(), file.getInt(), file.getInt(), file.getFloat());
+                if(code >= 0 && code < glyphCount)
+                    entry.Glyphs[code] = glyph;
+            }
+
+            entry.Image = Pixmap.wrap(width, height, channels, file.slice());
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            Log.RENDER.warn("Failed to read font cache [{}]: {}", path, e.toString());
+            return null;
+        }
+    }
+
+    /**
+     * Writes an Entry next to where it ends up and moves it into place, so nobody ever maps half a file.
+     */
+    static void write(Path path, Entry entry) {
+        final Pixmap image = entry.Image;
+        final byte[] name = entry.Name.getBytes(StandardCharsets.UTF_8);
+
+        int glyphs = 0;
+        for(Glyph glyph : entry.Glyphs) {
+            if(glyph != null)
+                glyphs++;
+        }
+
+        final ByteBuffer header = ByteBuffer.allocate(8 * Integer.BYTES + name.length + glyphs * GLYPH_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(image.getWidth()).putInt(image.getHeight()).putInt(image.getChannels());
+        header.putInt(entry.FontHeight).putInt(glyphs);
+        header.putInt(name.length).put(name);
+
+        for(int i = 0; i < entry.Glyphs.length; i++) {
+            final Glyph glyph = entry.Glyphs[i];
+            if(glyph == null)
+                continue;
+
+            header.putInt(i).putInt(glyph.x).putInt(glyph.y).putInt(glyph.width).putInt(glyph.height).putFloat(glyph.advance);
+        }
+        header.flip();
+
+        Path temp = null;
+        try {
+            Files.createDirectories(path.getParent());
+            temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+            try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer[] buffers = { header, image.getPixels().duplicate() };
+                while(buffers[0].hasRemaining() || buffers[1].hasRemaining())
+                    channel.write(buffers);
+            }
+
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+        } catch (IOException e) {
+            Log.RENDER.warn("Failed to write font cache [{}]: {}", path, e.toString());
+        } finally {
+            if(temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+}
@@ -6,7 +6,14 @@ public class Glyph {
     public final int width, height;
     public final float advance;
 
+    // Pre-computed UVs so drawing a glyph doesn't need to touch the SpriteSheet.
+    public final float u0, v0, u1, v1;
+
     public Glyph(int x, int y, int width, int height, float advance) {
+        this(x, y, width, height, advance, 0.0f, 0.0f, 0.0f, 0.0f);
+    }
+
+    public Glyph(int x, int y, int width, int height, float advance, float u0, float v0, float u1, float v1) {
         this.x = x;
         this.y = y;
 
@@ -14,6 +21,11 @@ public class Glyph {
         this.height = height;
 
         this.advance = advance;
+
+        this.u0 = u0;
+        this.v0 = v0;
+        this.u1 = u1;
+        this.v1 = v1;
     }
 
 }
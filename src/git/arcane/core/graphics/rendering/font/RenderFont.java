@@ -1,33 +1,43 @@
 package git.arcane.core.graphics.rendering.font;
 
+import git.arcane.core.graphics.Pixmap;
 import git.arcane.core.graphics.Texture;
-import git.arcane.core.graphics.rendering.Renderer;
-import git.arcane.core.graphics.rendering.Sprite;
-import git.arcane.core.graphics.rendering.SpriteSheet;
+import git.arcane.core.graphics.TextureAtlas;
+import git.arcane.core.graphics.rendering.SpriteBatch;
 import git.arcane.core.util.Log;
 import org.joml.Vector3f;
-import org.lwjgl.system.MemoryUtil;
 
 import java.awt.*;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Path;
 
 import static java.awt.Font.*;
-import static org.lwjgl.opengl.GL11.*;
 
 public class RenderFont {
 
-    private final Map<Character, Glyph> m_Glyphs;
-    private final SpriteSheet m_FontSheet;
+    // Glyphs are looked up by their char code, which avoids boxing every char into a Map key while drawing.
+    private static final int GLYPH_COUNT = 256;
+    private static final char FALLBACK_CHAR = '?';
+
+    // Glyphs are laid out in rows no wider than this, so the glyph image fits in a TextureAtlas page.
+    private static final int MAX_ROW_WIDTH = 512;
+
+    private final Glyph[] m_Glyphs;
 
     private Texture m_Texture;
-    private int m_FontHeight;
+    private final int m_FontHeight;
+
+    private final String m_Name;
+
+    // Holds our glyphs until they're uploaded or handed to a TextureAtlas.
+    private Pixmap m_Image;
+
+    // Only set when our glyphs live in a TextureAtlas instead of our own Texture.
+    private TextureAtlas.Region m_Region;
 
     public RenderFont() {
         this(new Font(MONOSPACED, PLAIN, 16), true);
@@ -50,19 +60,22 @@ public class RenderFont {
     }
 
     public RenderFont(String path, int size, boolean antiAlias) {
-        m_Glyphs = new HashMap<>();
-
-        try(InputStream is = RenderFont.class.getResourceAsStream(path)) {
-            if(is == null)
-                throw new IOException("Failed to load file!");
-
-            m_Texture = createFontTexture(Font.createFont(TRUETYPE_FONT, is).deriveFont(PLAIN, size), antiAlias);
-        } catch (Exception e) {
-            Log.RENDER.error(e.getMessage());
-            System.exit(-1);
-        }
+        this(path, size, antiAlias, null);
+    }
 
-        m_FontSheet = new SpriteSheet(m_Texture);
+    /**
+     * Creates a RenderFont whose glyphs get packed into a {@link TextureAtlas} instead of their own {@link Texture}.<br>
+     * The font can only be drawn once the atlas has been packed.
+     * @param path the path of the TrueType font in our resources.
+     * @param size the size of the font in points.
+     * @param antiAlias whether the glyphs should be anti-aliased.
+     * @param atlas the atlas our glyphs will be added to.
+     */
+    public RenderFont(String path, int size, boolean antiAlias, TextureAtlas atlas) {
+        this(loadEntry(path, size, antiAlias));
+
+        if(atlas != null) addToAtlas(atlas);
+        else upload();
     }
 
     public RenderFont(Font font) {
@@ -70,20 +83,72 @@ public class RenderFont {
     }
 
     public RenderFont(Font font, boolean antiAlias) {
-        m_Glyphs = new HashMap<>();
-        m_Texture = createFontTexture(font, antiAlias);
-        m_FontSheet = new SpriteSheet(m_Texture);
+        this(font, antiAlias, null);
+    }
+
+    public RenderFont(Font font, boolean antiAlias, TextureAtlas atlas) {
+        this(rasterizeEntry(font, antiAlias));
+
+        if(atlas != null) addToAtlas(atlas);
+        else upload();
+    }
+
+    /**
+     * Takes over rasterized (or cached) glyphs without touching OpenGL, so it's safe to call from any thread.
+     */
+    private RenderFont(FontCache.Entry entry) {
+        m_Glyphs = entry.Glyphs;
+        m_Name = entry.Name;
+        m_Image = entry.Image;
+        m_FontHeight = entry.FontHeight;
+    }
+
+    /**
+     * Creates our own {@link Texture} from the rasterized glyphs. Has to be called on the thread that owns OpenGL.
+     */
+    public void upload() {
+        if(m_Image == null) {
+            Log.RENDER.warn("RenderFont [{}] has already been uploaded!", m_Name);
+            return;
+        }
+
+        m_Texture = Texture.createTexture(m_Image.getWidth(), m_Image.getHeight(), m_Image.getChannels(), m_Image.getPixels());
+        resolveGlyphs(0, 0, m_Image.getWidth(), m_Image.getHeight());
+
+        m_Image.free();
+        m_Image = null;
+    }
+
+    /**
+     * Queues the rasterized glyphs in a {@link TextureAtlas} instead. The font can be drawn once the atlas is packed.
+     * @param atlas the atlas our glyphs will be added to.
+     */
+    public void addToAtlas(TextureAtlas atlas) {
+        if(m_Image == null) {
+            Log.RENDER.warn("RenderFont [{}] has already been uploaded!", m_Name);
+            return;
+        }
+
+        m_Region = atlas.add(m_Name, m_Image);
+        m_Image = null;
     }
 
-    public void drawText(Renderer renderer, CharSequence text, float x, float y, float padding, Vector3f color) {
+    /**
+     * Writes the glyph quads of our text straight into the {@link SpriteBatch}.<br>
+     * Since every glyph shares the font's {@link Texture}, a whole string ends up in a single draw call.
+     */
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float padding, float r, float g, float b) {
+        if(m_Texture == null && !resolveAtlasRegion())
+            return;
+
         int textHeight = getHeight(text);
 
         float drawX = x, drawY = y;
         if(textHeight > m_FontHeight)
             drawY += textHeight - m_FontHeight;
 
-        m_Texture.bind();
-        glDisable(GL_DEPTH_TEST);
+        boolean depthTest = batch.isDepthTest();
+        batch.setDepthTest(false);
         for(int i = 0; i < text.length(); i++) {
             char ch = text.charAt(i);
             if (ch == '\n') {
@@ -94,28 +159,35 @@ public class RenderFont {
             if (ch == '\r')
                 continue;
 
-            Glyph g = m_Glyphs.get(ch);
-            Sprite cha = m_FontSheet.getSprite(color, g.x, g.y, g.width, g.height);
-            cha.setPosition(drawX, drawY);
-            cha.setLayer(0f);
-
-            cha.draw(renderer);
-            cha.dispose();
-            drawX += g.width * padding;
+            Glyph glyph = getGlyph(ch);
+            batch.draw(m_Texture, drawX, drawY, 0.0f, 1.0f, 1.0f, glyph.u0, glyph.v0, glyph.u1, glyph.v1, r, g, b);
+            drawX += glyph.width * padding;
         }
-        glEnable(GL_DEPTH_TEST);
+        batch.setDepthTest(depthTest);
+    }
+
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float padding, Vector3f color) {
+        drawText(batch, text, x, y, padding, color.x, color.y, color.z);
     }
 
-    public void drawText(Renderer renderer, CharSequence text, float x, float y, float padding) {
-        drawText(renderer, text, x, y, padding, new Vector3f(1.0f));
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float padding) {
+        drawText(batch, text, x, y, padding, 1.0f, 1.0f, 1.0f);
     }
 
-    public void drawText(Renderer renderer, CharSequence text, float x, float y) {
-        drawText(renderer, text, x, y, 1.0f, new Vector3f(1.0f));
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y) {
+        drawText(batch, text, x, y, 1.0f, 1.0f, 1.0f, 1.0f);
     }
 
     public void dispose() {
-        m_Texture.delete();
+        if(m_Image != null)
+            m_Image.free();
+        m_Image = null;
+
+        // Atlas pages are owned by their TextureAtlas.
+        if(m_Region == null && m_Texture != null)
+            m_Texture.delete();
+
+        m_Texture = null;
     }
 
     public int getWidth(CharSequence text) {
@@ -133,7 +205,7 @@ public class RenderFont {
             if(c == '\r')
                 continue;
 
-            Glyph g = m_Glyphs.get(c);
+            Glyph g = getGlyph(c);
             lineWidth += g.width;
         }
 
@@ -155,7 +227,7 @@ public class RenderFont {
             if (c == '\r')
                 continue;
 
-            Glyph g = m_Glyphs.get(c);
+            Glyph g = getGlyph(c);
             lineHeight = Math.max(lineHeight, g.height);
         }
 
@@ -163,8 +235,68 @@ public class RenderFont {
         return height;
     }
 
-    private Texture createFontTexture(Font font, boolean antiAlias) {
-        int imageWidth = 0, imageHeight = 0;
+    /**
+     * Receives the {@link Glyph} for a char, falling back to '?' for chars our font doesn't have.
+     * @param c the char we want to draw or measure.
+     * @return the Glyph we'll use for that char.
+     */
+    public Glyph getGlyph(char c) {
+        Glyph glyph = c < GLYPH_COUNT ? m_Glyphs[c] : null;
+        return glyph != null ? glyph : m_Glyphs[FALLBACK_CHAR];
+    }
+
+    public int getFontHeight() {
+        return m_FontHeight;
+    }
+
+    public Texture getTexture() {
+        return m_Texture;
+    }
+
+    /**
+     * Picks up our page and position once the {@link TextureAtlas} our glyphs were added to is packed.
+     * @return whether our glyphs are ready to be drawn.
+     */
+    private boolean resolveAtlasRegion() {
+        if(m_Image != null) {
+            Log.RENDER.warn("Can't draw RenderFont [{}] before it has been uploaded!", m_Name);
+            return false;
+        }
+
+        if(m_Region == null || !m_Region.isPacked()) {
+            Log.RENDER.warn("Can't draw a RenderFont before its TextureAtlas has been packed!");
+            return false;
+        }
+
+        m_Texture = m_Region.getTexture();
+        resolveGlyphs(m_Region.getX(), m_Region.getY(), m_Region.getPageWidth(), m_Region.getPageHeight());
+        return true;
+    }
+
+    /**
+     * Calculates the UVs of every glyph once we know where our glyph image ended up.
+     */
+    private void resolveGlyphs(int originX, int originY, int textureWidth, int textureHeight) {
+        final float texWidth = textureWidth, texHeight = textureHeight;
+
+        for(int i = 0; i < GLYPH_COUNT; i++) {
+            Glyph g = m_Glyphs[i];
+            if(g == null)
+                continue;
+
+            m_Glyphs[i] = new Glyph(g.x, g.y, g.width, g.height, g.advance,
+                    (originX + g.x) / texWidth, (originY + g.y) / texHeight,
+                    (originX + g.x + g.width) / texWidth, (originY + g.y + g.height) / texHeight);
+        }
+    }
+
+    private static FontCache.Entry rasterizeEntry(Font font, boolean antiAlias) {
+        Glyph[] glyphs = new Glyph[GLYPH_COUNT];
+        BufferedImage[] charImages = new BufferedImage[GLYPH_COUNT];
+        int[] charX = new int[GLYPH_COUNT], charRow = new int[GLYPH_COUNT];
+
+        int imageWidth = 0, rowWidth = 0, rows = 1;
+        int lineHeight = 0;
 
         for(int i = 32; i < 256; i++) {
             if(i == 127) continue;
@@ -174,46 +306,50 @@ public class RenderFont {
             if(ch == null)
                 continue;
 
-            imageWidth += ch.getWidth();
-            imageHeight = Math.max(imageHeight, ch.getHeight());
+            if(rowWidth + ch.getWidth() > MAX_ROW_WIDTH && rowWidth > 0) {
+                rows++;
+                rowWidth = 0;
+            }
+
+            charImages[i] = ch;
+            charX[i] = rowWidth;
+            charRow[i] = rows - 1;
+
+            rowWidth += ch.getWidth();
+            imageWidth = Math.max(imageWidth, rowWidth);
+            lineHeight = Math.max(lineHeight, ch.getHeight());
         }
 
-        m_FontHeight = imageHeight;
+        int imageHeight = lineHeight * rows;
 
         BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = image.createGraphics();
 
-        int x = 0;
         for(int i = 32; i < 256; i++) {
-            if(i == 127) continue;
-
-            char c = (char) i;
-            BufferedImage charImage = createCharImage(font, c, antiAlias);
+            BufferedImage charImage = charImages[i];
             if(charImage == null)
                 continue;
 
             int charWidth = charImage.getWidth();
             int charHeight = charImage.getHeight();
+            int rowY = charRow[i] * lineHeight;
 
-            Glyph ch = new Glyph(x, image.getHeight() - charHeight, charWidth, charHeight, 0f);
-            g.drawImage(charImage, x, 0, null);
+            // The image gets flipped below, so the glyph's y is measured from the other end.
+            Glyph ch = new Glyph(charX[i], imageHeight - rowY - charHeight, charWidth, charHeight, 0f);
+            g.drawImage(charImage, charX[i], rowY, null);
 
-            x += ch.width;
-            m_Glyphs.put(c, ch);
+            glyphs[i] = ch;
         }
-
-        AffineTransform transform = AffineTransform.getScaleInstance(1f, -1f);
-        transform.translate(0, -image.getHeight());
-        AffineTransformOp operation = new AffineTransformOp(transform, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-
-        image = operation.filter(image, null);
+        g.dispose();
 
         int width = image.getWidth(), height = image.getHeight();
         int[] pixels = new int[width * height];
         image.getRGB(0, 0, width, height, pixels, 0, width);
 
-        ByteBuffer buffer = MemoryUtil.memAlloc(width * height * 4);
-        for(int i = 0; i < height; i++) {
+        // Rows are written bottom up, which flips the image the way our textures expect.
+        Pixmap result = Pixmap.allocate(width, height, 4);
+        ByteBuffer buffer = result.getPixels();
+        for(int i = height - 1; i >= 0; i--) {
             for(int j = 0; j < width; j++) {
                 int pixel = pixels[i * width + j];
 
@@ -225,12 +361,15 @@ public class RenderFont {
         }
         buffer.flip();
 
-        Texture fontTexture = Texture.createTexture(width, height, 4, buffer);
-        MemoryUtil.memFree(buffer);
-        return fontTexture;
+        FontCache.Entry entry = new FontCache.Entry();
+        entry.Name = createName(font, antiAlias);
+        entry.Image = result;
+        entry.Glyphs = glyphs;
+        entry.FontHeight = lineHeight;
+        return entry;
     }
 
-    private BufferedImage createCharImage(Font font, char c, boolean antiAlias) {
+    private static BufferedImage createCharImage(Font font, char c, boolean antiAlias) {
         BufferedImage image  = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
         Graphics2D g = image.createGraphics();
         if(antiAlias)
@@ -259,4 +398,79 @@ public class RenderFont {
         return image;
     }
 
+    /**
+     * Rasterizes a font's glyphs without creating a {@link Texture}. Safe to call from any thread.<br>
+     * Call {@link #upload()} or {@link #addToAtlas(TextureAtlas)} on the OpenGL thread before drawing.
+     * @param path the path of the TrueType font in our resources.
+     * @param size the size of the font in points.
+     * @param antiAlias whether the glyphs should be anti-aliased.
+     * @return the rasterized font.
+     */
+    public static RenderFont rasterize(String path, int size, boolean antiAlias) throws IOException {
+        return new RenderFont(readEntry(path, size, antiAlias));
+    }
+
+    /**
+     * Makes fonts loaded from a path keep their rasterized glyphs in this directory, and map them from there next time.
+     * @param directory where the cache files go, or null to always rasterize.
+     */
+    public static void setCacheDirectory(Path directory) {
+        FontCache.setDirectory(directory);
+    }
+
+    /**
+     * Reads a font's glyphs from the {@link FontCache} if they're there, otherwise rasterizes and caches them.
+     */
+    private static FontCache.Entry readEntry(String path, int size, boolean antiAlias) throws IOException {
+        final long start = System.nanoTime();
+
+        final byte[] fontFile;
+        try(InputStream is = RenderFont.class.getResourceAsStream(path)) {
+            if(is == null)
+                throw new IOException("Failed to load file: " + path);
+
+            fontFile = is.readAllBytes();
+        }
+
+        final Path cache = FontCache.getPath(fontFile, size, antiAlias);
+        if(cache != null) {
+            final FontCache.Entry cached = FontCache.read(cache, GLYPH_COUNT);
+            if(cached != null) {
+                Log.RENDER.info("Mapped RenderFont [{}] from its cache in {}ms", cached.Name,
+                        String.format("%.2f", (System.nanoTime() - start) / 1_000_000.0));
+                return cached;
+            }
+        }
+
+        final FontCache.Entry entry;
+        try {
+            Font font = Font.createFont(TRUETYPE_FONT, new ByteArrayInputStream(fontFile)).deriveFont(PLAIN, size);
+            entry = rasterizeEntry(font, antiAlias);
+        } catch (FontFormatException e) {
+            throw new IOException(e);
+        }
+
+        final double rasterizeMs = (System.nanoTime() - start) / 1_000_000.0;
+        if(cache != null)
+            FontCache.write(cache, entry);
+
+        Log.RENDER.info("Rasterized RenderFont [{}] in {}ms{}", entry.Name, String.format("%.2f", rasterizeMs),
+                cache != null ? ", cached to " + cache : "");
+        return entry;
+    }
+
+    private static FontCache.Entry loadEntry(String path, int size, boolean antiAlias) {
+        try {
+            return readEntry(path, size, antiAlias);
+        } catch (IOException e) {
+            Log.RENDER.error(e.getMessage());
+            System.exit(-1);
+            return null;
+        }
+    }
+
+    private static String createName(Font font, boolean antiAlias) {
+        return "font:" + font.getFontName() + ":" + font.getSize() + (antiAlias ? "" : ":aliased");
+    }
+
 }
@@ -0,0 +1,552 @@
+package git.arcane.core.graphics.rendering.font;
+
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.rendering.RenderCommands;
+import git.arcane.core.graphics.rendering.RenderThread;
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import git.arcane.core.util.Log;
+import org.joml.Vector3f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static java.awt.Font.*;
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL30.GL_R8;
+
+/**
+ * A font whose glyphs are stored as signed distance fields, so one set of glyphs draws crisply at any size.<br>
+ * Glyphs are generated the first time a code point is drawn or measured, so any character the font has works,
+ * not just Latin-1. They live in fixed size cells of a few single channel pages and when every cell is taken,
+ * the glyph that was drawn longest ago gives up its cell.
+ * <br>Draw it with a {@link SpriteBatch} whose fragment shader is <i>/shaders/sdf.frag</i>, which turns the distances back into edges.
+ */
+public class SDFFont {
+
+    public static final int DEFAULT_GLYPH_SIZE = 32;
+    public static final int DEFAULT_PAGE_SIZE = 512;
+    public static final int DEFAULT_MAX_PAGES = 2;
+
+    private static final int FALLBACK_CODE_POINT = '?';
+
+    // Glyphs are looked up in blocks of 256 code points, which are only allocated once one of their code points shows up.
+    private static final int BLOCK_BITS = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+
+    // How far outside and inside an edge the distances reach, in pixels of a cell.
+    private static final int SPREAD = 4;
+
+    // Glyphs are rasterized this many times larger than their cells, then the distances are sampled back down.
+    private static final int SUPERSAMPLE = 2;
+
+    private static final float INFINITY = 1e20f;
+
+    private static class GlyphData {
+        public final int codePoint;
+        public final float advance;
+
+        // The cell we're resident in, or -1. Glyphs without any pixels (like spaces) never take one.
+        public int cell = -1;
+        public boolean empty;
+
+        public Texture page;
+        public float u0, v0, u1, v1;
+
+        private GlyphData(int codePoint, float advance) {
+            this.codePoint = codePoint;
+            this.advance = advance;
+        }
+    }
+
+    private static class FontData {
+        public Font font;
+        public FontMetrics metrics;
+        public String name;
+
+        // Every glyph is drawn into a square cell of this many pixels, including the spread around it.
+        public int glyphSize, ascent, lineHeight, cellSize;
+        public int pageSize, cellsPerRow, cellsPerPage;
+
+        public Texture[] pages;
+        public int pageCount;
+
+        // Which glyph every cell holds, and the cells in least recently drawn order.
+        public GlyphData[] cells;
+        public int[] prev, next;
+        public int head = -1, tail = -1, cellCount;
+    }
+
+    private static class FontStats {
+        public long Generated, Evicted;
+        public long GenerateNanos;
+    }
+
+    private final FontData m_Data;
+    private final FontStats m_Stats;
+    private final GlyphData[][] m_Blocks;
+
+    // Scratch space for generating a glyph, reused for every glyph.
+    private final BufferedImage m_Image;
+    private final Graphics2D m_Graphics;
+    private final float[] m_Outside, m_Inside, m_Line, m_Result, m_Parabolas;
+    private final int[] m_Vertices;
+
+    public SDFFont(Font font) {
+        this(font, DEFAULT_GLYPH_SIZE, DEFAULT_PAGE_SIZE, DEFAULT_MAX_PAGES);
+    }
+
+    /**
+     * Creates the font without touching OpenGL, pages are created once the first glyph is drawn.
+     * @param font the font to generate glyphs from, its size doesn't matter.
+     * @param glyphSize the line height glyphs are generated at in pixels. Larger sizes keep sharper corners.
+     * @param pageSize the width and height of a glyph page.
+     * @param maxPages how many pages we may create before glyphs start evicting each other.
+     */
+    public SDFFont(Font font, int glyphSize, int pageSize, int maxPages) {
+        m_Data = new FontData();
+        m_Stats = new FontStats();
+        m_Blocks = new GlyphData[(Character.MAX_CODE_POINT + 1) >>> BLOCK_BITS][];
+
+        m_Data.font = font.deriveFont(PLAIN, (float) glyphSize * SUPERSAMPLE);
+        m_Data.name = font.getFontName();
+
+        // Measures the line at the supersampled size and rounds it up to whole cell pixels.
+        final BufferedImage probe = new BufferedImage(1, 1, BufferedImage.TYPE_BYTE_GRAY);
+        final Graphics2D g = probe.createGraphics();
+        g.setFont(m_Data.font);
+        m_Data.metrics = g.getFontMetrics();
+        g.dispose();
+
+        m_Data.glyphSize = glyphSize;
+        m_Data.lineHeight = (m_Data.metrics.getHeight() + SUPERSAMPLE - 1) / SUPERSAMPLE;
+        m_Data.ascent = m_Data.metrics.getAscent();
+        m_Data.cellSize = m_Data.lineHeight + SPREAD * 2;
+
+        m_Data.pageSize = pageSize;
+        m_Data.cellsPerRow = pageSize / m_Data.cellSize;
+        m_Data.cellsPerPage = m_Data.cellsPerRow * m_Data.cellsPerRow;
+        if(m_Data.cellsPerPage == 0) {
+            Log.RENDER.error("A {}px SDFFont doesn't fit on a {}px page!", glyphSize, pageSize);
+            throw new IllegalArgumentException("Page too small: " + pageSize);
+        }
+
+        final int maxCells = m_Data.cellsPerPage * Math.max(1, maxPages);
+        m_Data.pages = new Texture[Math.max(1, maxPages)];
+        m_Data.cells = new GlyphData[maxCells];
+        m_Data.prev = new int[maxCells];
+        m_Data.next = new int[maxCells];
+
+        final int imageSize = m_Data.cellSize * SUPERSAMPLE;
+        m_Image = new BufferedImage(imageSize, imageSize, BufferedImage.TYPE_BYTE_GRAY);
+        m_Graphics = m_Image.createGraphics();
+        m_Graphics.setFont(m_Data.font);
+        m_Graphics.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+        m_Graphics.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+
+        m_Outside = new float[imageSize * imageSize];
+        m_Inside = new float[imageSize * imageSize];
+        m_Line = new float[imageSize];
+        m_Result = new float[imageSize];
+        m_Parabolas = new float[imageSize + 1];
+        m_Vertices = new int[imageSize];
+
+        Log.RENDER.info("SDFFont [{}]: {}px cells, {} per page, up to {} pages", m_Data.name, m_Data.cellSize,
+                m_Data.cellsPerPage, m_Data.pages.length);
+    }
+
+    /**
+     * Draws text with the bottom-left corner of its first line at x, y, generating any glyphs we haven't seen yet.
+     * @param size the height of a line in world units.
+     */
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float size, float r, float g, float b) {
+        final float scale = size / m_Data.lineHeight;
+        final float half = m_Data.cellSize * scale * 0.5f;
+        final float spread = SPREAD * scale;
+
+        boolean depthTest = batch.isDepthTest();
+        batch.setDepthTest(false);
+
+        float drawX = x, drawY = y;
+        for(int i = 0; i < text.length(); ) {
+            final int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+
+            if(codePoint == '\n') {
+                drawY -= size;
+                drawX = x;
+                continue;
+            }
+            if(codePoint == '\r')
+                continue;
+
+            final GlyphData glyph = getResidentGlyph(batch, codePoint);
+            if(glyph.cell >= 0) {
+                batch.draw(glyph.page, drawX - spread + half, drawY - spread + half, 0.0f, half, half,
+                        glyph.u0, glyph.v0, glyph.u1, glyph.v1, r, g, b);
+            }
+            drawX += glyph.advance * scale;
+        }
+
+        batch.setDepthTest(depthTest);
+    }
+
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float size, Vector3f color) {
+        drawText(batch, text, x, y, size, color.x, color.y, color.z);
+    }
+
+    public void drawText(SpriteBatch batch, CharSequence text, float x, float y, float size) {
+        drawText(batch, text, x, y, size, 1.0f, 1.0f, 1.0f);
+    }
+
+    /**
+     * @return the width of the widest line of text when drawn at a size, in world units.
+     */
+    public float getWidth(CharSequence text, float size) {
+        float width = 0.0f, lineWidth = 0.0f;
+
+        for(int i = 0; i < text.length(); ) {
+            final int codePoint = Character.codePointAt(text, i);
+            i += Character.charCount(codePoint);
+
+            if(codePoint == '\n') {
+                width = Math.max(width, lineWidth);
+                lineWidth = 0.0f;
+                continue;
+            }
+            if(codePoint == '\r')
+                continue;
+
+            lineWidth += getGlyph(codePoint).advance;
+        }
+
+        return Math.max(width, lineWidth) * size / m_Data.lineHeight;
+    }
+
+    public void dispose() {
+        for(int i = 0; i < m_Data.pageCount; i++)
+            m_Data.pages[i].delete();
+
+        m_Data.pageCount = 0;
+        m_Graphics.dispose();
+    }
+
+    /**
+     * @return the number of glyphs currently holding a cell.
+     */
+    public int getResidentGlyphs() {
+        return m_Data.cellCount;
+    }
+
+    public int getPageCount() {
+        return m_Data.pageCount;
+    }
+
+    public long getGeneratedGlyphs() {
+        return m_Stats.Generated;
+    }
+
+    public long getEvictedGlyphs() {
+        return m_Stats.Evicted;
+    }
+
+    /**
+     * @return the bytes our pages take up on the GPU.
+     */
+    public long getPageBytes() {
+        return (long) m_Data.pageCount * m_Data.pageSize * m_Data.pageSize;
+    }
+
+    public void logStats() {
+        Log.RENDER.info("SDFFont [{}]: {} glyphs resident on {} pages ({}KB), {} generated in {}ms, {} evicted",
+                m_Data.name, m_Data.cellCount, m_Data.pageCount, getPageBytes() / 1024, m_Stats.Generated,
+                String.format("%.2f", m_Stats.GenerateNanos / 1_000_000.0), m_Stats.Evicted);
+    }
+
+    /**
+     * Looks up a glyph's metrics, falling back to '?' for code points our font can't display.
+     */
+    private GlyphData getGlyph(int codePoint) {
+        if(codePoint < 0 || codePoint > Character.MAX_CODE_POINT)
+            codePoint = FALLBACK_CODE_POINT;
+
+        GlyphData[] block = m_Blocks[codePoint >>> BLOCK_BITS];
+        if(block == null)
+            block = m_Blocks[codePoint >>> BLOCK_BITS] = new GlyphData[BLOCK_SIZE];
+
+        GlyphData glyph = block[codePoint & (BLOCK_SIZE - 1)];
+        if(glyph != null)
+            return glyph;
+
+        if(codePoint != FALLBACK_CODE_POINT && !m_Data.font.canDisplay(codePoint)) {
+            glyph = getGlyph(FALLBACK_CODE_POINT);
+        } else {
+            glyph = new GlyphData(codePoint, m_Data.metrics.charWidth(codePoint) / (float) SUPERSAMPLE);
+            glyph.empty = Character.isWhitespace(codePoint) || Character.isISOControl(codePoint);
+        }
+
+        block[codePoint & (BLOCK_SIZE - 1)] = glyph;
+        return glyph;
+    }
+
+    /**
+     * Looks up a glyph and makes sure it holds a cell, generating it if it doesn't.
+     */
+    private GlyphData getResidentGlyph(SpriteBatch batch, int codePoint) {
+        final GlyphData glyph = getGlyph(codePoint);
+        if(glyph.empty)
+            return glyph;
+
+        if(glyph.cell >= 0) {
+            touch(glyph.cell);
+            return glyph;
+        }
+
+        // Whatever the batch holds was drawn with the old contents of the cell we're about to overwrite.
+        batch.flush();
+        makeResident(glyph);
+        return glyph;
+    }
+
+    private void makeResident(GlyphData glyph) {
+        final long start = System.nanoTime();
+
+        final int cell = acquireCell();
+        if(cell < 0)
+            return;
+
+        final Texture page = m_Data.pages[cell / m_Data.cellsPerPage];
+        final int index = cell % m_Data.cellsPerPage;
+        final int x = (index % m_Data.cellsPerRow) * m_Data.cellSize;
+        final int y = (index / m_Data.cellsPerRow) * m_Data.cellSize;
+
+        final ByteBuffer pixels = MemoryUtil.memAlloc(m_Data.cellSize * m_Data.cellSize);
+        generate(glyph.codePoint, pixels);
+        upload(page, x, y, pixels);
+
+        final float pageSize = m_Data.pageSize;
+        glyph.cell = cell;
+        glyph.page = page;
+        glyph.u0 = x / pageSize;
+        glyph.v0 = y / pageSize;
+        glyph.u1 = (x + m_Data.cellSize) / pageSize;
+        glyph.v1 = (y + m_Data.cellSize) / pageSize;
+
+        m_Data.cells[cell] = glyph;
+        pushFront(cell);
+
+        m_Stats.Generated++;
+        m_Stats.GenerateNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Hands out a free cell, creating a page if we may, or takes the cell of the glyph drawn longest ago.
+     */
+    private int acquireCell() {
+        if(m_Data.cellCount < m_Data.pageCount * m_Data.cellsPerPage)
+            return m_Data.cellCount++;
+
+        if(m_Data.pageCount < m_Data.pages.length) {
+            final int page = m_Data.pageCount;
+            if(!RenderThread.invokeAndWait(() -> m_Data.pages[page] = createPage(m_Data.pageSize)))
+                return -1;
+
+            m_Data.pageCount++;
+            return m_Data.cellCount++;
+        }
+
+        final int cell = m_Data.tail;
+        if(cell < 0)
+            return -1;
+
+        unlink(cell);
+        m_Data.cells[cell].cell = -1;
+        m_Data.cells[cell] = null;
+        m_Stats.Evicted++;
+        return cell;
+    }
+
+    /**
+     * Copies a generated cell into its page. While recording for the {@link RenderThread} this happens in order with the draws around it.
+     */
+    private void upload(Texture page, int x, int y, ByteBuffer pixels) {
+        final int cellSize = m_Data.cellSize;
+        final Runnable upload = () -> {
+            page.bind(0);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+            glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, cellSize, cellSize, GL_RED, GL_UNSIGNED_BYTE, pixels);
+            glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+            MemoryUtil.memFree(pixels);
+        };
+
+        final RenderCommands commands = RenderCommands.getRecording();
+        if(commands != null) commands.task(upload);
+        else upload.run();
+    }
+
+    private static Texture createPage(int pageSize) {
+        final Texture page = new Texture();
+        page.setWidth(pageSize);
+        page.setHeight(pageSize);
+        page.setChannels(1);
+        page.bind();
+
+        // Distances have to be interpolated to find the edge between texels, and mipmaps would blur neighbouring cells together.
+        page.setParameter(GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        page.setParameter(GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
+        page.setParameter(GL_TEXTURE_MIN_FILTER, GL_LINEAR);
+        page.setParameter(GL_TEXTURE_MAG_FILTER, GL_LINEAR);
+
+        final ByteBuffer empty = MemoryUtil.memCalloc(pageSize * pageSize);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 1);
+        page.uploadData(GL_R8, pageSize, pageSize, GL_RED, empty);
+        glPixelStorei(GL_UNPACK_ALIGNMENT, 4);
+        MemoryUtil.memFree(empty);
+
+        return page;
+    }
+
+    /**
+     * Rasterizes a glyph large and writes the signed distance to its outline for every cell pixel,
+     * 0.5 on the edge, rising inside the glyph and falling outside. Rows go bottom to top, like our textures.
+     */
+    private void generate(int codePoint, ByteBuffer pixels) {
+        final int size = m_Image.getWidth();
+        final int spread = SPREAD * SUPERSAMPLE;
+
+        m_Graphics.setColor(Color.BLACK);
+        m_Graphics.fillRect(0, 0, size, size);
+        m_Graphics.setColor(Color.WHITE);
+        m_Graphics.drawString(new String(Character.toChars(codePoint)), spread, spread + m_Data.ascent);
+
+        final byte[] image = ((DataBufferByte) m_Image.getRaster().getDataBuffer()).getData();
+        for(int i = 0; i < image.length; i++) {
+            final boolean inside = (image[i] & 0xFF) >= 128;
+            m_Outside[i] = inside ? 0.0f : INFINITY;
+            m_Inside[i] = inside ? INFINITY : 0.0f;
+        }
+
+        distanceTransform(m_Outside, size);
+        distanceTransform(m_Inside, size);
+
+        // Samples the middle of every block of supersampled pixels.
+        final int cellSize = m_Data.cellSize;
+        final float range = 2.0f * spread;
+        for(int row = 0; row < cellSize; row++) {
+            final int sy = (cellSize - 1 - row) * SUPERSAMPLE + SUPERSAMPLE / 2;
+            for(int column = 0; column < cellSize; column++) {
+                final int i = sy * size + column * SUPERSAMPLE + SUPERSAMPLE / 2;
+                final float distance = (float) (Math.sqrt(m_Outside[i]) - Math.sqrt(m_Inside[i]));
+                final float value = Math.max(0.0f, Math.min(1.0f, 0.5f - distance / range));
+                pixels.put((byte) (value * 255.0f + 0.5f));
+            }
+        }
+        pixels.flip();
+    }
+
+    /**
+     * Turns a grid of 0 (feature) and infinity into squared distances to the nearest feature, one column and one row at a time.
+     */
+    private void distanceTransform(float[] grid, int size) {
+        for(int x = 0; x < size; x++) {
+            for(int y = 0; y < size; y++)
+                m_Line[y] = grid[y * size + x];
+            distanceTransform(size);
+            for(int y = 0; y < size; y++)
+                grid[y * size + x] = m_Result[y];
+        }
+
+        for(int y = 0; y < size; y++) {
+            System.arraycopy(grid, y * size, m_Line, 0, size);
+            distanceTransform(size);
+            System.arraycopy(m_Result, 0, grid, y * size, size);
+        }
+    }
+
+    /**
+     * The exact 1D squared distance transform by Felzenszwalb and Huttenlocher, from {@link #m_Line} into {@link #m_Result}.<br>
+     * Walks the lower envelope of the parabolas rooted at every sample.
+     */
+    private void distanceTransform(int size) {
+        final float[] values = m_Line;
+        final int[] v = m_Vertices;
+        final float[] z = m_Parabolas;
+
+        int k = 0;
+        v[0] = 0;
+        z[0] = -INFINITY;
+        z[1] = INFINITY;
+
+        for(int q = 1; q < size; q++) {
+            float s = intersect(values, q, v[k]);
+            while(s <= z[k]) {
+                k--;
+                s = intersect(values, q, v[k]);
+            }
+            k++;
+            v[k] = q;
+            z[k] = s;
+            z[k + 1] = INFINITY;
+        }
+
+        k = 0;
+        for(int q = 0; q < size; q++) {
+            while(z[k + 1] < q)
+                k++;
+            final float d = q - v[k];
+            m_Result[q] = d * d + values[v[k]];
+        }
+    }
+
+    private static float intersect(float[] values, int q, int p) {
+        return ((values[q] + q * q) - (values[p] + p * p)) / (2.0f * q - 2.0f * p);
+    }
+
+    private void touch(int cell) {
+        if(m_Data.head == cell)
+            return;
+
+        unlink(cell);
+        pushFront(cell);
+    }
+
+    private void pushFront(int cell) {
+        m_Data.prev[cell] = -1;
+        m_Data.next[cell] = m_Data.head;
+        if(m_Data.head >= 0)
+            m_Data.prev[m_Data.head] = cell;
+        m_Data.head = cell;
+        if(m_Data.tail < 0)
+            m_Data.tail = cell;
+    }
+
+    private void unlink(int cell) {
+        final int prev = m_Data.prev[cell], next = m_Data.next[cell];
+        if(prev >= 0) m_Data.next[prev] = next;
+        else m_Data.head = next;
+
+        if(next >= 0) m_Data.prev[next] = prev;
+        else m_Data.tail = prev;
+    }
+
+    /**
+     * Loads a TrueType font from our resources. Doesn't touch OpenGL, so it's safe to call from any thread.
+     * @param path the path of the TrueType font in our resources.
+     */
+    public static SDFFont load(String path) throws IOException {
+        try(InputStream is = SDFFont.class.getResourceAsStream(path)) {
+            if(is == null)
+                throw new IOException("Failed to load file: " + path);
+
+            return new SDFFont(Font.createFont(TRUETYPE_FONT, is));
+        } catch (FontFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package git.arcane.core.jobs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counts the jobs of a {@link JobSystem} call that haven't finished yet.<br>
+ * Once it reaches zero, anything that was scheduled to run after it is started.
+ * Wait on it with {@link JobSystem#waitFor(JobCounter)}.
+ */
+public class JobCounter implements ForkJoinPool.ManagedBlocker {
+
+    private final AtomicInteger m_Pending;
+
+    // Only touched while holding our lock.
+    private List<ForkJoinTask<?>> m_Continuations;
+    private ForkJoinPool m_Pool;
+
+    JobCounter(int pending) {
+        m_Pending = new AtomicInteger(pending);
+    }
+
+    /**
+     * @return true if every job we count has finished.
+     */
+    public boolean isDone() {
+        return m_Pending.get() <= 0;
+    }
+
+    public int getPending() {
+        return Math.max(0, m_Pending.get());
+    }
+
+    void decrement() {
+        if(m_Pending.decrementAndGet() != 0)
+            return;
+
+        final List<ForkJoinTask<?>> continuations;
+        synchronized(this) {
+            continuations = m_Continuations;
+            m_Continuations = null;
+            notifyAll();
+        }
+
+        if(continuations != null) {
+            for(ForkJoinTask<?> task : continuations)
+                m_Pool.execute(task);
+        }
+    }
+
+    /**
+     * Runs a task once we reach zero, or right away if we already have.
+     */
+    void then(ForkJoinPool pool, ForkJoinTask<?> task) {
+        synchronized(this) {
+            if(!isDone()) {
+                if(m_Continuations == null)
+                    m_Continuations = new ArrayList<>(2);
+                m_Continuations.add(task);
+                m_Pool = pool;
+                return;
+            }
+        }
+
+        pool.execute(task);
+    }
+
+    /**
+     * Blocks until we reach zero. Used for threads that aren't one of our workers.
+     */
+    synchronized void await() throws InterruptedException {
+        while(!isDone())
+            wait();
+    }
+
+    @Override
+    public boolean block() throws InterruptedException {
+        await();
+        return true;
+    }
+
+    @Override
+    public boolean isReleasable() {
+        return isDone();
+    }
+
+}
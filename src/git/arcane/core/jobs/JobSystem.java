@@ -0,0 +1,253 @@
+package git.arcane.core.jobs;
+
+import git.arcane.core.util.Log;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Spreads per-frame work (AI, animation, physics, culling) over the other cores.<br>
+ * Jobs run on a work-stealing {@link ForkJoinPool}: a {@link #parallelFor} keeps splitting its range in half,
+ * and idle workers steal the halves from busy ones. Every call returns a {@link JobCounter} that other jobs
+ * can depend on and that we {@link #waitFor} on before rendering.
+ */
+public class JobSystem {
+    private static JobSystem ms_Instance = null;
+
+    // How long a waiting thread spins before it blocks. Most per-frame jobs finish well within this.
+    private static final long SPIN_NANOS = 50_000L;
+
+    // A parallelFor without a grain size is split into this many pieces per worker.
+    private static final int PIECES_PER_WORKER = 4;
+
+    /**
+     * A job that works on a range of indices, from start (inclusive) to end (exclusive).
+     */
+    public interface RangeJob {
+        void execute(int start, int end);
+    }
+
+    private static final class Worker extends ForkJoinWorkerThread {
+        public final int index;
+
+        public Worker(ForkJoinPool pool, int index) {
+            super(pool);
+            this.index = index;
+            setName("Job_Worker_" + index);
+        }
+    }
+
+    private static class WorkerStats {
+        public final AtomicLongArray BusyNanos, Jobs;
+        public long WindowStart;
+
+        public WorkerStats(int workers) {
+            BusyNanos = new AtomicLongArray(workers);
+            Jobs = new AtomicLongArray(workers);
+            WindowStart = System.nanoTime();
+        }
+    }
+
+    private final ForkJoinPool m_Pool;
+    private final int m_Workers;
+    private final WorkerStats m_Stats;
+
+    public JobSystem(int workerThreads) {
+        m_Workers = Math.max(1, workerThreads);
+        m_Stats = new WorkerStats(m_Workers);
+
+        final AtomicInteger count = new AtomicInteger();
+        m_Pool = new ForkJoinPool(m_Workers, pool -> new Worker(pool, count.getAndIncrement()),
+                (thread, e) -> Log.CORE.error("[{}] died:\n{}", thread.getName(), e.toString()), false,
+                m_Workers, m_Workers * 2, 1, null, 1L, TimeUnit.HOURS);
+
+        if(ms_Instance == null)
+            ms_Instance = this;
+    }
+
+    /**
+     * Runs a job on one of our workers.
+     * @return the counter that reaches zero once the job is done.
+     */
+    public JobCounter run(Runnable job) {
+        return run(job, null);
+    }
+
+    /**
+     * Runs a job once another call's jobs are done.
+     * @param job the job to run.
+     * @param dependency the counter to wait for, or null to start right away.
+     * @return the counter that reaches zero once the job is done.
+     */
+    public JobCounter run(Runnable job, JobCounter dependency) {
+        return parallelFor(0, 1, 1, (start, end) -> job.run(), dependency);
+    }
+
+    public JobCounter parallelFor(int start, int end, int grain, RangeJob job) {
+        return parallelFor(start, end, grain, job, null);
+    }
+
+    /**
+     * Splits a range of indices over our workers.<br>
+     * The job is called with pieces of the range instead of single indices, so it can keep its own loop tight.
+     * @param start the first index (inclusive).
+     * @param end the last index (exclusive).
+     * @param grain the most indices a single piece holds, or 0 to pick one from the amount of workers.
+     * @param job the job to run on every piece.
+     * @param dependency the counter to wait for before starting, or null to start right away.
+     * @return the counter that reaches zero once the whole range is done.
+     */
+    public JobCounter parallelFor(int start, int end, int grain, RangeJob job, JobCounter dependency) {
+        final JobCounter counter = new JobCounter(1);
+        if(end <= start) {
+            counter.decrement();
+            return counter;
+        }
+
+        if(grain <= 0)
+            grain = Math.max(1, (end - start) / (m_Workers * PIECES_PER_WORKER));
+
+        final RangeTask task = new RangeTask(job, start, end, grain, counter);
+        if(dependency != null) dependency.then(m_Pool, task);
+        else m_Pool.execute(task);
+
+        return counter;
+    }
+
+    /**
+     * Blocks until a counter reaches zero. Safe to call from inside a job, the pool adds a worker while we wait.
+     */
+    public void waitFor(JobCounter counter) {
+        if(counter.isDone())
+            return;
+
+        final long spinEnd = System.nanoTime() + SPIN_NANOS;
+        while(!counter.isDone() && System.nanoTime() - spinEnd < 0L)
+            Thread.onSpinWait();
+
+        try {
+            if(Thread.currentThread() instanceof ForkJoinWorkerThread) ForkJoinPool.managedBlock(counter);
+            else counter.await();
+        } catch (InterruptedException e) {
+            Log.CORE.warn("Interrupted while waiting on jobs!");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public void dispose() {
+        m_Pool.shutdown();
+        try {
+            if(!m_Pool.awaitTermination(1L, TimeUnit.SECONDS))
+                m_Pool.shutdownNow();
+        } catch (InterruptedException e) {
+            m_Pool.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if(ms_Instance == this)
+            ms_Instance = null;
+    }
+
+    public int getWorkerCount() {
+        return m_Workers;
+    }
+
+    /**
+     * @return how much of the time since the last {@link #resetStats()} a worker spent running jobs, from 0 to 1.
+     */
+    public double getUtilization(int worker) {
+        final long elapsed = System.nanoTime() - m_Stats.WindowStart;
+        return elapsed > 0L ? Math.min(1.0, m_Stats.BusyNanos.get(worker) / (double) elapsed) : 0.0;
+    }
+
+    /**
+     * @return the pieces of work a worker ran since the last {@link #resetStats()}.
+     */
+    public long getJobsExecuted(int worker) {
+        return m_Stats.Jobs.get(worker);
+    }
+
+    /**
+     * @return how many pieces of work were stolen from one worker by another.
+     */
+    public long getStealCount() {
+        return m_Pool.getStealCount();
+    }
+
+    public void resetStats() {
+        for(int i = 0; i < m_Workers; i++) {
+            m_Stats.BusyNanos.set(i, 0L);
+            m_Stats.Jobs.set(i, 0L);
+        }
+        m_Stats.WindowStart = System.nanoTime();
+    }
+
+    public void logStats() {
+        final StringBuilder builder = new StringBuilder();
+        for(int i = 0; i < m_Workers; i++) {
+            builder.append("\n  Job_Worker_").append(i).append(": ")
+                    .append(String.format("%.1f", getUtilization(i) * 100.0)).append("% busy, ")
+                    .append(getJobsExecuted(i)).append(" jobs");
+        }
+
+        Log.CORE.info("JobSystem: {} workers, {} steals{}", m_Workers, getStealCount(), builder);
+    }
+
+    public static JobSystem get() {
+        return ms_Instance;
+    }
+
+    /**
+     * One piece of a {@link #parallelFor}. Splits itself in half until it is no bigger than the grain size.
+     */
+    @SuppressWarnings("serial") // Tasks only ever live in our pool, they are never serialized.
+    private final class RangeTask extends RecursiveAction {
+        private final RangeJob m_Job;
+        private final int m_Start, m_End, m_Grain;
+        private final JobCounter m_Counter;
+
+        public RangeTask(RangeJob job, int start, int end, int grain, JobCounter counter) {
+            m_Job = job;
+            m_Start = start;
+            m_End = end;
+            m_Grain = grain;
+            m_Counter = counter;
+        }
+
+        @Override
+        protected void compute() {
+            if(m_End - m_Start > m_Grain) {
+                final int middle = (m_Start + m_End) >>> 1;
+                invokeAll(new RangeTask(m_Job, m_Start, middle, m_Grain, null),
+                        new RangeTask(m_Job, middle, m_End, m_Grain, null));
+            } else {
+                execute();
+            }
+
+            // Only the task a call started with counts, its halves are joined by the time we get here.
+            if(m_Counter != null)
+                m_Counter.decrement();
+        }
+
+        private void execute() {
+            final long start = System.nanoTime();
+            try {
+                m_Job.execute(m_Start, m_End);
+            } catch (Throwable e) {
+                // The counter still has to reach zero, or whoever waits on it would hang.
+                Log.CORE.error("Job [{}, {}) failed on [{}]:\n{}", m_Start, m_End, Thread.currentThread().getName(), e.toString());
+            }
+
+            if(Thread.currentThread() instanceof Worker worker) {
+                final int slot = worker.index % m_Workers;
+                m_Stats.BusyNanos.addAndGet(slot, System.nanoTime() - start);
+                m_Stats.Jobs.incrementAndGet(slot);
+            }
+        }
+    }
+
+}
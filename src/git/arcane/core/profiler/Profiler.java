@@ -0,0 +1,546 @@
+package git.arcane.core.profiler;
+
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.util.Log;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+/**
+ * Measures where our frames go, keeping the last {@link #HISTORY_SIZE} frames around.<br>
+ * CPU time is measured with nested scopes, GPU time with timer queries around render passes.
+ * Timer results are read back {@link #GPU_LATENCY} frames later so we never wait on the GPU.
+ * Everything in here must be called from the thread that runs the frame, except for {@link #count} which a
+ * {@link git.arcane.core.graphics.rendering.RenderThread} may call too. Its counts are kept apart and only added to
+ * a frame once a whole command list has been replayed, see {@link #endReplay()}.
+ */
+public class Profiler {
+
+    public static final int HISTORY_SIZE = 4096;
+    public static final int MAX_SCOPES = 64;
+    public static final int GPU_LATENCY = 4;
+
+    private static final int MAX_DEPTH = 32;
+    private static final int MAX_GPU_PASSES = 16;
+
+    /**
+     * The things we count every frame.
+     */
+    public enum Counter {
+        DRAW_CALLS, VERTICES, TEXTURE_BINDS, STATE_CHANGES, STREAMED_BYTES, FENCE_WAITS
+    }
+
+    private static final int COUNTERS = Counter.values().length;
+
+    private static class ScopeData {
+        public final String[] names = new String[MAX_SCOPES];
+        public final int[] parents = new int[MAX_SCOPES];
+        public final int[] depths = new int[MAX_SCOPES];
+        public final boolean[] gpu = new boolean[MAX_SCOPES];
+        // GPU passes may share a name with a CPU scope, so they get their own lookup.
+        public final Map<String, Integer> cpuIds = new HashMap<>(), gpuIds = new HashMap<>();
+        public int count;
+        public boolean full;
+    }
+
+    private static class FrameData {
+        public long frame, start;
+        public final long[] cpuNanos = new long[MAX_SCOPES];
+        public final long[] counters = new long[COUNTERS];
+
+        public final int[] stack = new int[MAX_DEPTH];
+        public final long[] stackStarts = new long[MAX_DEPTH];
+        public int depth, overflow;
+
+        public long textureBinds, stateChanges;
+    }
+
+    /**
+     * What the render thread counts, GLState included, since that's the thread changing it.
+     */
+    private static class ReplayData {
+        public volatile Thread thread;
+
+        // Only touched by the render thread.
+        public final long[] counters = new long[COUNTERS];
+        public long textureBinds, stateChanges;
+
+        // Replayed lists waiting for the next endFrame() to collect them.
+        public final AtomicLongArray finished = new AtomicLongArray(COUNTERS);
+    }
+
+    private static class GpuData {
+        // One set of queries per frame in flight, each remembering which scope it timed.
+        public final int[][] queries = new int[GPU_LATENCY][MAX_GPU_PASSES];
+        public final int[][] scopes = new int[GPU_LATENCY][MAX_GPU_PASSES];
+        public final long[] frames = new long[GPU_LATENCY];
+        public final int[] counts = new int[GPU_LATENCY];
+        public int active = -1;
+        public boolean created;
+    }
+
+    private static class HistoryData {
+        public final float[] frameMs = new float[HISTORY_SIZE];
+        public final float[] cpuMs = new float[HISTORY_SIZE * MAX_SCOPES];
+        public final float[] gpuMs = new float[HISTORY_SIZE * MAX_SCOPES];
+        public final long[] counters = new long[HISTORY_SIZE * COUNTERS];
+    }
+
+    private static final ScopeData ms_Scopes = new ScopeData();
+    private static final FrameData ms_Frame = new FrameData();
+    private static final GpuData ms_Gpu = new GpuData();
+    private static final ReplayData ms_Replay = new ReplayData();
+    private static final HistoryData ms_History = new HistoryData();
+
+    private static boolean ms_Enabled = true, ms_InFrame = false;
+    private static boolean ms_GpuTiming = true;
+
+    private Profiler() {}
+
+    public static void setEnabled(boolean enabled) {
+        ms_Enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return ms_Enabled;
+    }
+
+    /**
+     * GPU timing needs the OpenGL context on the thread that runs the frame.<br>
+     * With a {@link git.arcane.core.graphics.rendering.RenderThread} it doesn't have it, so GPU scopes are skipped.
+     */
+    public static void setGpuTiming(boolean gpuTiming) {
+        ms_GpuTiming = gpuTiming;
+    }
+
+    /**
+     * Tells us which thread replays the frames from now on, or null once the frame's own thread draws again.<br>
+     * Call it while the calling thread still owns the OpenGL context, before the render thread starts.
+     */
+    public static void setRenderThread(Thread thread) {
+        final ReplayData replay = ms_Replay;
+        Arrays.fill(replay.counters, 0L);
+        replay.textureBinds = GLState.getTextureBinds();
+        replay.stateChanges = GLState.getIssued();
+        for(int i = 0; i < COUNTERS; i++)
+            replay.finished.set(i, 0L);
+
+        replay.thread = thread;
+    }
+
+    /**
+     * Called by the render thread once it replayed and swapped a command list. Hands everything it counted since the
+     * last call to the frame that is running on the update thread, so a list is never split across two frames.
+     */
+    public static void endReplay() {
+        final ReplayData replay = ms_Replay;
+        if(Thread.currentThread() != replay.thread)
+            return;
+
+        final long textureBinds = GLState.getTextureBinds(), stateChanges = GLState.getIssued();
+        replay.counters[Counter.TEXTURE_BINDS.ordinal()] += textureBinds - replay.textureBinds;
+        replay.counters[Counter.STATE_CHANGES.ordinal()] += stateChanges - replay.stateChanges;
+        replay.textureBinds = textureBinds;
+        replay.stateChanges = stateChanges;
+
+        for(int i = 0; i < COUNTERS; i++) {
+            if(replay.counters[i] != 0L)
+                replay.finished.addAndGet(i, replay.counters[i]);
+            replay.counters[i] = 0L;
+        }
+    }
+
+    /**
+     * Starts a new frame. Also collects the GPU timings of the frame that used the same set of queries.
+     */
+    public static void beginFrame() {
+        if(!ms_Enabled)
+            return;
+
+        FrameData frame = ms_Frame;
+        if(ms_GpuTiming) {
+            if(!ms_Gpu.created)
+                createQueries();
+            collectGpuResults((int) (frame.frame % GPU_LATENCY));
+        }
+
+        Arrays.fill(frame.cpuNanos, 0L);
+        Arrays.fill(frame.counters, 0L);
+        frame.depth = 0;
+        frame.overflow = 0;
+        if(ms_Replay.thread == null) {
+            frame.textureBinds = GLState.getTextureBinds();
+            frame.stateChanges = GLState.getIssued();
+        }
+        frame.start = System.nanoTime();
+
+        ms_InFrame = true;
+    }
+
+    /**
+     * Ends the frame and stores everything we measured in the history.
+     */
+    public static void endFrame() {
+        if(!ms_Enabled || !ms_InFrame)
+            return;
+
+        FrameData frame = ms_Frame;
+        if(frame.depth != 0) {
+            Log.CORE.warn("Profiler: {} scope(s) are still open at the end of the frame!", frame.depth);
+            frame.depth = 0;
+        }
+        if(ms_Gpu.active >= 0)
+            endGpu();
+
+        if(ms_Replay.thread == null) {
+            frame.counters[Counter.TEXTURE_BINDS.ordinal()] = GLState.getTextureBinds() - frame.textureBinds;
+            frame.counters[Counter.STATE_CHANGES.ordinal()] = GLState.getIssued() - frame.stateChanges;
+        } else {
+            for(int i = 0; i < COUNTERS; i++)
+                frame.counters[i] += ms_Replay.finished.getAndSet(i, 0L);
+        }
+
+        int row = (int) (frame.frame % HISTORY_SIZE);
+        ms_History.frameMs[row] = (System.nanoTime() - frame.start) / 1_000_000.0f;
+
+        int base = row * MAX_SCOPES;
+        for(int i = 0; i < MAX_SCOPES; i++) {
+            ms_History.cpuMs[base + i] = frame.cpuNanos[i] / 1_000_000.0f;
+            ms_History.gpuMs[base + i] = 0.0f;
+        }
+        System.arraycopy(frame.counters, 0, ms_History.counters, row * COUNTERS, COUNTERS);
+
+        frame.frame++;
+        ms_InFrame = false;
+    }
+
+    /**
+     * Starts timing a CPU scope. Scopes can be nested and must be closed with {@link #end()}.
+     * @param name the name of the scope. The same name always refers to the same scope, wherever it is nested.
+     */
+    public static void begin(String name) {
+        if(!ms_Enabled || !ms_InFrame)
+            return;
+
+        FrameData frame = ms_Frame;
+        if(frame.depth == MAX_DEPTH) {
+            // Still count it so the matching end() doesn't close the wrong scope.
+            frame.overflow++;
+            return;
+        }
+
+        int parent = frame.depth > 0 ? frame.stack[frame.depth - 1] : -1;
+        int id = parent >= 0 || frame.depth == 0 ? scopeId(name, parent, frame.depth, false) : -1;
+
+        frame.stack[frame.depth] = id;
+        frame.stackStarts[frame.depth] = System.nanoTime();
+        frame.depth++;
+    }
+
+    /**
+     * Stops timing the innermost CPU scope.
+     */
+    public static void end() {
+        if(!ms_Enabled || !ms_InFrame)
+            return;
+
+        FrameData frame = ms_Frame;
+        if(frame.overflow > 0) {
+            frame.overflow--;
+            return;
+        }
+
+        if(frame.depth == 0) {
+            Log.CORE.warn("Profiler.end() called without begin()!");
+            return;
+        }
+
+        frame.depth--;
+        int id = frame.stack[frame.depth];
+        if(id >= 0)
+            frame.cpuNanos[id] += System.nanoTime() - frame.stackStarts[frame.depth];
+    }
+
+    /**
+     * Starts timing a render pass on the GPU. Timer queries can't overlap, so passes can't be nested.
+     * @param name the name of the pass.
+     */
+    public static void beginGpu(String name) {
+        if(!ms_Enabled || !ms_InFrame || !ms_GpuTiming)
+            return;
+
+        if(ms_Gpu.active >= 0) {
+            Log.RENDER.warn("Profiler: can't time [{}] on the GPU while another pass is being timed!", name);
+            return;
+        }
+
+        int slot = (int) (ms_Frame.frame % GPU_LATENCY);
+        int index = ms_Gpu.counts[slot];
+        if(index == MAX_GPU_PASSES)
+            return;
+
+        int id = scopeId(name, -1, 0, true);
+        if(id < 0)
+            return;
+
+        ms_Gpu.scopes[slot][index] = id;
+        ms_Gpu.frames[slot] = ms_Frame.frame;
+        ms_Gpu.counts[slot] = index + 1;
+        ms_Gpu.active = index;
+
+        glBeginQuery(GL_TIME_ELAPSED, ms_Gpu.queries[slot][index]);
+    }
+
+    public static void endGpu() {
+        if(!ms_Enabled || ms_Gpu.active < 0)
+            return;
+
+        glEndQuery(GL_TIME_ELAPSED);
+        ms_Gpu.active = -1;
+    }
+
+    /**
+     * Records a draw call. Call this next to every glDraw*.
+     * @param vertices the number of vertices (or indices) we asked GL to draw.
+     */
+    public static void countDraw(int vertices) {
+        ms_Frame.counters[Counter.DRAW_CALLS.ordinal()]++;
+        ms_Frame.counters[Counter.VERTICES.ordinal()] += vertices;
+    }
+
+    /**
+     * Adds to a counter of the current frame. On the render thread it counts towards the list being replayed instead.
+     */
+    public static void count(Counter counter, long amount) {
+        if(Thread.currentThread() == ms_Replay.thread) ms_Replay.counters[counter.ordinal()] += amount;
+        else ms_Frame.counters[counter.ordinal()] += amount;
+    }
+
+    /**
+     * Writes the history to a CSV file, one row per frame from oldest to newest.
+     */
+    public static void dumpCSV(Path path) {
+        try(BufferedWriter writer = Files.newBufferedWriter(path)) {
+            StringBuilder line = new StringBuilder("frame,frame_ms");
+            for(int i = 0; i < ms_Scopes.count; i++)
+                line.append(',').append(ms_Scopes.names[i]).append(ms_Scopes.gpu[i] ? "_gpu_ms" : "_cpu_ms");
+            for(Counter counter : Counter.values())
+                line.append(',').append(counter.name().toLowerCase());
+            writer.write(line.toString());
+            writer.newLine();
+
+            for(long frame = getFirstFrame(); frame < ms_Frame.frame; frame++) {
+                int row = (int) (frame % HISTORY_SIZE);
+                line.setLength(0);
+                line.append(frame).append(',').append(ms_History.frameMs[row]);
+
+                for(int i = 0; i < ms_Scopes.count; i++)
+                    line.append(',').append(getScopeMs(row, i));
+                for(int i = 0; i < COUNTERS; i++)
+                    line.append(',').append(ms_History.counters[row * COUNTERS + i]);
+
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            Log.CORE.error("Failed to write the profile to [{}]:\n{}", path, e.getMessage());
+            return;
+        }
+
+        Log.CORE.info("Wrote {} profiled frames to [{}]", getFrameCount(), path);
+    }
+
+    /**
+     * Writes the history to a JSON file, as the list of scopes followed by one object per frame.
+     */
+    public static void dumpJSON(Path path) {
+        try(BufferedWriter writer = Files.newBufferedWriter(path)) {
+            StringBuilder json = new StringBuilder("{\n  \"scopes\": [");
+            for(int i = 0; i < ms_Scopes.count; i++) {
+                json.append(i == 0 ? "\n" : ",\n");
+                json.append("    {\"name\": \"").append(ms_Scopes.names[i].replace("\"", "\\\""))
+                        .append("\", \"parent\": ").append(ms_Scopes.parents[i])
+                        .append(", \"gpu\": ").append(ms_Scopes.gpu[i]).append('}');
+            }
+            json.append("\n  ],\n  \"frames\": [");
+            writer.write(json.toString());
+
+            for(long frame = getFirstFrame(); frame < ms_Frame.frame; frame++) {
+                int row = (int) (frame % HISTORY_SIZE);
+                json.setLength(0);
+                json.append(frame == getFirstFrame() ? "\n" : ",\n");
+                json.append("    {\"frame\": ").append(frame).append(", \"ms\": ").append(ms_History.frameMs[row]);
+
+                json.append(", \"scopes\": [");
+                for(int i = 0; i < ms_Scopes.count; i++)
+                    json.append(i == 0 ? "" : ", ").append(getScopeMs(row, i));
+
+                json.append("], \"counters\": {");
+                for(Counter counter : Counter.values()) {
+                    json.append(counter.ordinal() == 0 ? "" : ", ");
+                    json.append('"').append(counter.name().toLowerCase()).append("\": ")
+                            .append(ms_History.counters[row * COUNTERS + counter.ordinal()]);
+                }
+                json.append("}}");
+                writer.write(json.toString());
+            }
+
+            writer.write("\n  ]\n}\n");
+        } catch (IOException e) {
+            Log.CORE.error("Failed to write the profile to [{}]:\n{}", path, e.getMessage());
+            return;
+        }
+
+        Log.CORE.info("Wrote {} profiled frames to [{}]", getFrameCount(), path);
+    }
+
+    public static void dispose() {
+        if(!ms_Gpu.created)
+            return;
+
+        if(ms_Gpu.active >= 0)
+            endGpu();
+
+        for(int[] queries : ms_Gpu.queries)
+            glDeleteQueries(queries);
+        ms_Gpu.created = false;
+    }
+
+    /**
+     * @return the number of scopes we've seen so far. Scope ids go from 0 to this.
+     */
+    public static int getScopeCount() {
+        return ms_Scopes.count;
+    }
+
+    public static String getScopeName(int scope) {
+        return ms_Scopes.names[scope];
+    }
+
+    public static int getScopeDepth(int scope) {
+        return ms_Scopes.depths[scope];
+    }
+
+    public static boolean isGpuScope(int scope) {
+        return ms_Scopes.gpu[scope];
+    }
+
+    /**
+     * @return the number of frames in the history.
+     */
+    public static int getFrameCount() {
+        return (int) Math.min(ms_Frame.frame, HISTORY_SIZE);
+    }
+
+    /**
+     * Averages a scope over the most recent frames. GPU scopes skip the frames whose results haven't arrived yet.
+     * @param scope the id of the scope.
+     * @param frames how many frames to average over.
+     * @return the average time of the scope in milliseconds.
+     */
+    public static float getAverageMs(int scope, int frames) {
+        long last = ms_Frame.frame - (ms_Scopes.gpu[scope] ? GPU_LATENCY : 0);
+        long first = Math.max(Math.max(0L, last - frames), getFirstFrame());
+        if(last <= first)
+            return 0.0f;
+
+        float sum = 0.0f;
+        for(long frame = first; frame < last; frame++)
+            sum += getScopeMs((int) (frame % HISTORY_SIZE), scope);
+        return sum / (last - first);
+    }
+
+    /**
+     * @return the average frame time over the most recent frames, in milliseconds.
+     */
+    public static float getAverageFrameMs(int frames) {
+        long last = ms_Frame.frame;
+        long first = Math.max(Math.max(0L, last - frames), getFirstFrame());
+        if(last <= first)
+            return 0.0f;
+
+        float sum = 0.0f;
+        for(long frame = first; frame < last; frame++)
+            sum += ms_History.frameMs[(int) (frame % HISTORY_SIZE)];
+        return sum / (last - first);
+    }
+
+    /**
+     * @return the value of a counter in the last finished frame.
+     */
+    public static long getLastCounter(Counter counter) {
+        if(ms_Frame.frame == 0L)
+            return 0L;
+
+        int row = (int) ((ms_Frame.frame - 1) % HISTORY_SIZE);
+        return ms_History.counters[row * COUNTERS + counter.ordinal()];
+    }
+
+    private static long getFirstFrame() {
+        return Math.max(0L, ms_Frame.frame - HISTORY_SIZE);
+    }
+
+    private static float getScopeMs(int row, int scope) {
+        int index = row * MAX_SCOPES + scope;
+        return ms_Scopes.gpu[scope] ? ms_History.gpuMs[index] : ms_History.cpuMs[index];
+    }
+
+    private static int scopeId(String name, int parent, int depth, boolean gpu) {
+        Map<String, Integer> ids = gpu ? ms_Scopes.gpuIds : ms_Scopes.cpuIds;
+        Integer id = ids.get(name);
+        if(id != null)
+            return id;
+
+        if(ms_Scopes.count == MAX_SCOPES) {
+            if(!ms_Scopes.full)
+                Log.CORE.warn("Profiler: too many scopes, [{}] and any new ones won't be tracked!", name);
+            ms_Scopes.full = true;
+            return -1;
+        }
+
+        int newId = ms_Scopes.count++;
+        ms_Scopes.names[newId] = name;
+        ms_Scopes.parents[newId] = parent;
+        ms_Scopes.depths[newId] = depth;
+        ms_Scopes.gpu[newId] = gpu;
+        ids.put(name, newId);
+        return newId;
+    }
+
+    private static void createQueries() {
+        for(int[] queries : ms_Gpu.queries)
+            glGenQueries(queries);
+        Arrays.fill(ms_Gpu.frames, -1L);
+        ms_Gpu.created = true;
+    }
+
+    private static void collectGpuResults(int slot) {
+        int count = ms_Gpu.counts[slot];
+        long frame = ms_Gpu.frames[slot];
+        ms_Gpu.counts[slot] = 0;
+
+        // Results older than our history have nowhere to go.
+        if(count == 0 || frame < getFirstFrame())
+            return;
+
+        int base = (int) (frame % HISTORY_SIZE) * MAX_SCOPES;
+        for(int i = 0; i < count; i++) {
+            int query = ms_Gpu.queries[slot][i];
+            if(glGetQueryObjecti(query, GL_QUERY_RESULT_AVAILABLE) == GL_FALSE)
+                continue;
+
+            ms_History.gpuMs[base + ms_Gpu.scopes[slot][i]] += glGetQueryObjecti64(query, GL_QUERY_RESULT) / 1_000_000.0f;
+        }
+    }
+
+}
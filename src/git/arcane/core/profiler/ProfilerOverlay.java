@@ -0,0 +1,162 @@
+package git.arcane.core.profiler;
+
+import git.arcane.core.FrameScheduler;
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.cameras.Camera;
+import git.arcane.core.graphics.cameras.OrthoCamera;
+import git.arcane.core.graphics.rendering.SpriteBatch;
+import git.arcane.core.graphics.rendering.font.RenderFont;
+import org.joml.Vector3f;
+
+/**
+ * Draws what the {@link Profiler} measured on top of the screen using a {@link RenderFont}.<br>
+ * The text is averaged over the last {@link #AVERAGE_FRAMES} frames and only rebuilt every
+ * {@link #REFRESH_FRAMES} frames, so it stays readable and drawing it costs next to nothing.
+ */
+public class ProfilerOverlay {
+
+    public static final int AVERAGE_FRAMES = 60;
+    public static final int REFRESH_FRAMES = 15;
+
+    private static final float TEXT_PADDING = 0.25f, LINE_HEIGHT = 2.5f, MARGIN = 1.5f;
+    private static final int SUMMARY_LINES = 2;
+
+    private final RenderFont m_Font;
+    private final OrthoCamera m_Camera;
+
+    private final StringBuilder[] m_Lines;
+    private int m_LineCount, m_FramesUntilRefresh;
+    private boolean m_Visible;
+
+    public ProfilerOverlay(RenderFont font) {
+        m_Font = font;
+
+        m_Camera = new OrthoCamera(16, 9);
+        m_Camera.setZoom(0.2f);
+        m_Camera.update();
+
+        m_Lines = new StringBuilder[SUMMARY_LINES + Profiler.MAX_SCOPES];
+        for(int i = 0; i < m_Lines.length; i++)
+            m_Lines[i] = new StringBuilder(64);
+
+        m_LineCount = 0;
+        m_FramesUntilRefresh = 0;
+        m_Visible = false;
+    }
+
+    /**
+     * Draws the overlay into a batch that has already begun. The batch's camera is restored afterwards.
+     */
+    public void draw(SpriteBatch batch) {
+        if(!m_Visible)
+            return;
+
+        if(--m_FramesUntilRefresh <= 0) {
+            refresh();
+            m_FramesUntilRefresh = REFRESH_FRAMES;
+        }
+
+        final Camera camera = batch.getCamera();
+        batch.setCamera(m_Camera);
+
+        final Vector3f min = m_Camera.getVisibleMin(), max = m_Camera.getVisibleMax();
+        float x = min.x + MARGIN, y = max.y - MARGIN;
+        for(int i = 0; i < m_LineCount; i++) {
+            m_Font.drawText(batch, m_Lines[i], x, y, TEXT_PADDING, 1.0f, 1.0f, 0.0f);
+            y -= LINE_HEIGHT;
+        }
+
+        batch.setCamera(camera);
+    }
+
+    public void resize(int width, int height) {
+        m_Camera.resize(width, height);
+    }
+
+    public void dispose() {
+        m_Camera.dispose();
+    }
+
+    public void toggle() {
+        m_Visible = !m_Visible;
+        m_FramesUntilRefresh = 0;
+    }
+
+    public void setVisible(boolean visible) {
+        m_Visible = visible;
+        m_FramesUntilRefresh = 0;
+    }
+
+    public boolean isVisible() {
+        return m_Visible;
+    }
+
+    private void refresh() {
+        StringBuilder line = m_Lines[0];
+        line.setLength(0);
+
+        final FrameScheduler scheduler = FrameScheduler.get();
+        if(scheduler != null) {
+            line.append("FPS ");
+            appendFixed(line, scheduler.getFPS(), 1);
+            line.append("  UPS ");
+            appendFixed(line, scheduler.getUPS(), 1);
+            line.append("  ");
+        }
+        appendFixed(line, Profiler.getAverageFrameMs(AVERAGE_FRAMES), 2);
+        line.append("ms");
+        if(scheduler != null) {
+            line.append(" +-");
+            appendFixed(line, scheduler.getJitterMs(), 2);
+        }
+
+        line = m_Lines[1];
+        line.setLength(0);
+        line.append("Draws ").append(Profiler.getLastCounter(Profiler.Counter.DRAW_CALLS));
+        line.append("  Verts ").append(Profiler.getLastCounter(Profiler.Counter.VERTICES));
+        line.append("  Binds ").append(Profiler.getLastCounter(Profiler.Counter.TEXTURE_BINDS));
+        line.append("  GL ").append(Profiler.getLastCounter(Profiler.Counter.STATE_CHANGES));
+        line.append("  Stream ").append(Profiler.getLastCounter(Profiler.Counter.STREAMED_BYTES) / 1024).append("KB");
+        line.append("  Waits ").append(Profiler.getLastCounter(Profiler.Counter.FENCE_WAITS));
+        line.append("  VRAM ").append(Texture.getTotalVramBytes() / (1024 * 1024)).append("MB");
+
+        m_LineCount = SUMMARY_LINES;
+        for(int scope = 0; scope < Profiler.getScopeCount(); scope++) {
+            line = m_Lines[m_LineCount++];
+            line.setLength(0);
+
+            for(int i = 0; i < Profiler.getScopeDepth(scope); i++)
+                line.append("  ");
+            line.append(Profiler.getScopeName(scope)).append(Profiler.isGpuScope(scope) ? " (GPU) " : " ");
+            appendFixed(line, Profiler.getAverageMs(scope, AVERAGE_FRAMES), 2);
+            line.append("ms");
+        }
+    }
+
+    /**
+     * Appends a number with a fixed amount of decimals without going through String.format.
+     */
+    private static void appendFixed(StringBuilder builder, double value, int decimals) {
+        if(value < 0.0) {
+            builder.append('-');
+            value = -value;
+        }
+
+        long scale = 1L;
+        for(int i = 0; i < decimals; i++)
+            scale *= 10L;
+
+        long scaled = Math.round(value * scale);
+        builder.append(scaled / scale);
+        if(decimals == 0)
+            return;
+
+        builder.append('.');
+        long fraction = scaled % scale;
+        for(long digit = scale / 10L; digit > 0L; digit /= 10L) {
+            builder.append((char) ('0' + fraction / digit));
+            fraction %= digit;
+        }
+    }
+
+}
@@ -0,0 +1,339 @@
+package git.arcane.core.spatial;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid that tracks the bounds of objects so we can quickly find the ones inside an area.<br>
+ * Objects are referred to by the id handed out when they're added. Moving an object only touches the grid
+ * when it crosses into different cells, and neither queries nor moves allocate once the grid has warmed up.
+ * @param <T> the type of object we track.
+ */
+public class SpatialGrid<T> {
+
+    public static final float DEFAULT_CELL_SIZE = 8.0f;
+
+    /**
+     * Called for every object a query finds.
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+        void visit(T object);
+    }
+
+    private static class Cell {
+        public int[] ids = new int[8];
+        public int count;
+
+        private void add(int id) {
+            if(count == ids.length)
+                ids = Arrays.copyOf(ids, count * 2);
+            ids[count++] = id;
+        }
+
+        private void remove(int id) {
+            for(int i = 0; i < count; i++) {
+                if(ids[i] == id) {
+                    ids[i] = ids[--count];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final float m_CellSize, m_InvCellSize;
+
+    // Open addressing map from a packed (x, y) cell coordinate to its Cell, so lookups never box a key.
+    private long[] m_CellKeys;
+    private Cell[] m_Cells;
+    private int m_CellCount;
+
+    // Per object data, indexed by id.
+    private Object[] m_Objects;
+    private float[] m_Bounds;
+    private int[] m_CellRanges;
+    private int[] m_QueryStamps;
+
+    private int[] m_FreeIds;
+    private int m_FreeCount, m_NextId, m_Size;
+
+    private int m_QueryStamp;
+    private int m_LastQueryCount;
+
+    public SpatialGrid() {
+        this(DEFAULT_CELL_SIZE);
+    }
+
+    /**
+     * Creates an empty grid.
+     * @param cellSize the size of a cell in world units. A few times the size of a typical object works best.
+     */
+    public SpatialGrid(float cellSize) {
+        m_CellSize = cellSize;
+        m_InvCellSize = 1.0f / cellSize;
+
+        m_CellKeys = new long[64];
+        m_Cells = new Cell[64];
+        m_CellCount = 0;
+
+        int capacity = 64;
+        m_Objects = new Object[capacity];
+        m_Bounds = new float[capacity * 4];
+        m_CellRanges = new int[capacity * 4];
+        m_QueryStamps = new int[capacity];
+
+        m_FreeIds = new int[16];
+        m_FreeCount = 0;
+        m_NextId = 0;
+        m_Size = 0;
+    }
+
+    /**
+     * Starts tracking an object.
+     * @return the id we'll refer to the object by.
+     */
+    public int add(T object, float minX, float minY, float maxX, float maxY) {
+        int id = m_FreeCount > 0 ? m_FreeIds[--m_FreeCount] : m_NextId++;
+        ensureCapacity(id + 1);
+
+        m_Objects[id] = object;
+        setBounds(id, minX, minY, maxX, maxY);
+
+        int base = id * 4;
+        m_CellRanges[base]     = cellCoord(minX);
+        m_CellRanges[base + 1] = cellCoord(minY);
+        m_CellRanges[base + 2] = cellCoord(maxX);
+        m_CellRanges[base + 3] = cellCoord(maxY);
+        insertIntoCells(id);
+
+        m_QueryStamps[id] = m_QueryStamp;
+        m_Size++;
+        return id;
+    }
+
+    /**
+     * Stops tracking an object. Its id may be handed out again afterwards.
+     * @param id the id we got when adding the object.
+     */
+    public void remove(int id) {
+        if(id < 0 || id >= m_NextId || m_Objects[id] == null)
+            return;
+
+        removeFromCells(id);
+        m_Objects[id] = null;
+
+        if(m_FreeCount == m_FreeIds.length)
+            m_FreeIds = Arrays.copyOf(m_FreeIds, m_FreeCount * 2);
+        m_FreeIds[m_FreeCount++] = id;
+        m_Size--;
+    }
+
+    /**
+     * Updates the bounds of an object. Cheap when it stays within the same cells.
+     * @param id the id we got when adding the object.
+     */
+    public void update(int id, float minX, float minY, float maxX, float maxY) {
+        if(id < 0 || id >= m_NextId || m_Objects[id] == null)
+            return;
+
+        setBounds(id, minX, minY, maxX, maxY);
+
+        int cMinX = cellCoord(minX), cMinY = cellCoord(minY);
+        int cMaxX = cellCoord(maxX), cMaxY = cellCoord(maxY);
+
+        int base = id * 4;
+        if(m_CellRanges[base] == cMinX && m_CellRanges[base + 1] == cMinY
+                && m_CellRanges[base + 2] == cMaxX && m_CellRanges[base + 3] == cMaxY)
+            return;
+
+        removeFromCells(id);
+        m_CellRanges[base]     = cMinX;
+        m_CellRanges[base + 1] = cMinY;
+        m_CellRanges[base + 2] = cMaxX;
+        m_CellRanges[base + 3] = cMaxY;
+        insertIntoCells(id);
+    }
+
+    /**
+     * Visits every object whose bounds overlap the area, each of them exactly once.
+     * @param visitor called for every object found.
+     * @return the number of objects found.
+     */
+    @SuppressWarnings("unchecked")
+    public int query(float minX, float minY, float maxX, float maxY, Visitor<T> visitor) {
+        int stamp = ++m_QueryStamp;
+        int found = 0;
+
+        int cMinX = cellCoord(minX), cMinY = cellCoord(minY);
+        int cMaxX = cellCoord(maxX), cMaxY = cellCoord(maxY);
+
+        for(int cy = cMinY; cy <= cMaxY; cy++) {
+            for(int cx = cMinX; cx <= cMaxX; cx++) {
+                Cell cell = findCell(cx, cy);
+                if(cell == null)
+                    continue;
+
+                for(int i = 0; i < cell.count; i++) {
+                    int id = cell.ids[i];
+                    if(m_QueryStamps[id] == stamp)
+                        continue;
+                    m_QueryStamps[id] = stamp;
+
+                    int base = id * 4;
+                    if(m_Bounds[base] > maxX || m_Bounds[base + 2] < minX
+                            || m_Bounds[base + 1] > maxY || m_Bounds[base + 3] < minY)
+                        continue;
+
+                    visitor.visit((T) m_Objects[id]);
+                    found++;
+                }
+            }
+        }
+
+        m_LastQueryCount = found;
+        return found;
+    }
+
+    public void clear() {
+        Arrays.fill(m_CellKeys, 0L);
+        Arrays.fill(m_Cells, null);
+        Arrays.fill(m_Objects, null);
+
+        m_CellCount = 0;
+        m_FreeCount = 0;
+        m_NextId = 0;
+        m_Size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int id) {
+        return id < 0 || id >= m_NextId ? null : (T) m_Objects[id];
+    }
+
+    /**
+     * @return the number of objects we track.
+     */
+    public int getSize() {
+        return m_Size;
+    }
+
+    /**
+     * @return the number of objects the last {@link #query} found.
+     */
+    public int getLastQueryCount() {
+        return m_LastQueryCount;
+    }
+
+    public int getCellCount() {
+        return m_CellCount;
+    }
+
+    public float getCellSize() {
+        return m_CellSize;
+    }
+
+    private void setBounds(int id, float minX, float minY, float maxX, float maxY) {
+        int base = id * 4;
+        m_Bounds[base]     = minX;
+        m_Bounds[base + 1] = minY;
+        m_Bounds[base + 2] = maxX;
+        m_Bounds[base + 3] = maxY;
+    }
+
+    private void insertIntoCells(int id) {
+        int base = id * 4;
+        for(int cy = m_CellRanges[base + 1]; cy <= m_CellRanges[base + 3]; cy++) {
+            for(int cx = m_CellRanges[base]; cx <= m_CellRanges[base + 2]; cx++)
+                getOrCreateCell(cx, cy).add(id);
+        }
+    }
+
+    private void removeFromCells(int id) {
+        int base = id * 4;
+        for(int cy = m_CellRanges[base + 1]; cy <= m_CellRanges[base + 3]; cy++) {
+            for(int cx = m_CellRanges[base]; cx <= m_CellRanges[base + 2]; cx++) {
+                Cell cell = findCell(cx, cy);
+                if(cell != null)
+                    cell.remove(id);
+            }
+        }
+    }
+
+    private int cellCoord(float value) {
+        return (int) Math.floor(value * m_InvCellSize);
+    }
+
+    private Cell findCell(int cx, int cy) {
+        long key = packKey(cx, cy);
+        int mask = m_Cells.length - 1;
+
+        for(int slot = hash(key) & mask; m_Cells[slot] != null; slot = (slot + 1) & mask) {
+            if(m_CellKeys[slot] == key)
+                return m_Cells[slot];
+        }
+
+        return null;
+    }
+
+    private Cell getOrCreateCell(int cx, int cy) {
+        long key = packKey(cx, cy);
+        int mask = m_Cells.length - 1;
+
+        int slot = hash(key) & mask;
+        for(; m_Cells[slot] != null; slot = (slot + 1) & mask) {
+            if(m_CellKeys[slot] == key)
+                return m_Cells[slot];
+        }
+
+        Cell cell = new Cell();
+        m_CellKeys[slot] = key;
+        m_Cells[slot] = cell;
+
+        // Keep the table at most half full so probing stays short.
+        if(++m_CellCount * 2 > m_Cells.length)
+            growCells();
+
+        return cell;
+    }
+
+    private void growCells() {
+        long[] oldKeys = m_CellKeys;
+        Cell[] oldCells = m_Cells;
+
+        m_CellKeys = new long[oldKeys.length * 2];
+        m_Cells = new Cell[oldCells.length * 2];
+        int mask = m_Cells.length - 1;
+
+        for(int i = 0; i < oldCells.length; i++) {
+            if(oldCells[i] == null)
+                continue;
+
+            int slot = hash(oldKeys[i]) & mask;
+            while(m_Cells[slot] != null)
+                slot = (slot + 1) & mask;
+
+            m_CellKeys[slot] = oldKeys[i];
+            m_Cells[slot] = oldCells[i];
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if(capacity <= m_Objects.length)
+            return;
+
+        int newCapacity = Math.max(capacity, m_Objects.length * 2);
+        m_Objects = Arrays.copyOf(m_Objects, newCapacity);
+        m_Bounds = Arrays.copyOf(m_Bounds, newCapacity * 4);
+        m_CellRanges = Arrays.copyOf(m_CellRanges, newCapacity * 4);
+        m_QueryStamps = Arrays.copyOf(m_QueryStamps, newCapacity);
+    }
+
+    private static long packKey(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+}
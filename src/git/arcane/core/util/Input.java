@@ -3,24 +3,87 @@ package git.arcane.core.util;
 import git.arcane.core.graphics.Window;
 import org.joml.Vector2f;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.Arrays;
 
 import static org.lwjgl.glfw.GLFW.*;
 
+/**
+ * Keeps the key and mouse button state of a window as bitsets.<br>
+ * The GLFW callbacks only flip bits and append to a fixed ring of raw events, so they never allocate. Every update
+ * {@link #update()} snapshots that into the current frame and keeps the last one as the previous frame, which is what
+ * {@link #isKeyPressed} and {@link #isKeyReleased} compare. Presses and releases are also latched as they happen,
+ * so a tap that starts and ends between two updates still shows up as pressed and released in the next one.
+ * <br>Everything here belongs to the thread that polls the window's events.
+ */
 public class Input {
     private static Input ms_Instance = null;
 
+    public static final int EVENT_KEY = 0, EVENT_MOUSE_BUTTON = 1, EVENT_CURSOR = 2;
+    public static final int DEFAULT_EVENT_CAPACITY = 256;
+
+    // Mouse buttons are kept in the same bitsets, after the keys.
+    private static final int BUTTON_OFFSET = GLFW_KEY_LAST + 1;
+    private static final int BIT_COUNT = BUTTON_OFFSET + GLFW_MOUSE_BUTTON_LAST + 1;
+    private static final int WORDS = (BIT_COUNT + 63) >>> 6;
+
+    private static class StateData {
+        // Written by the callbacks as events arrive.
+        public final long[] live = new long[WORDS];
+        public final long[] pressedLatch = new long[WORDS], releasedLatch = new long[WORDS];
+
+        // Snapshots taken by update(), current and previous swap every frame.
+        public long[] current = new long[WORDS], previous = new long[WORDS];
+        public final long[] pressed = new long[WORDS], released = new long[WORDS];
+    }
+
+    /**
+     * The raw events in the order they arrived, one slot of each array per event.
+     */
+    private static class EventData {
+        public int[] types, codes, actions, mods;
+        public float[] x, y;
+        public int mask;
+
+        // Events since the last update are pending, update() turns them into the frame's events.
+        public long written, frameStart, frameEnd;
+        public int dropped;
+    }
+
     private final long m_WindowHandle;
-    private final Map<Integer, Boolean> m_KeyMap, m_MouseButtonMap;
+    private final StateData m_State;
+    private final EventData m_Events;
+
     private final Vector2f m_MousePos, m_MouseDelta;
+    private float m_LiveX, m_LiveY, m_LiveDeltaX, m_LiveDeltaY;
 
     public Input(Window window) {
-        m_WindowHandle = window.getGLFWwindow();
+        this(window.getGLFWwindow());
+    }
 
-        m_KeyMap = new ConcurrentHashMap<>();
-        m_MouseButtonMap = new ConcurrentHashMap<>();
+    /**
+     * Creates the Input of a GLFW window. Nothing is registered with GLFW until {@link #initialize()}.
+     * @param windowHandle the GLFW handle of the window.
+     */
+    public Input(long windowHandle) {
+        this(windowHandle, DEFAULT_EVENT_CAPACITY);
+    }
+
+    /**
+     * @param eventCapacity how many raw events the current frame and the pending ones hold together, rounded up to a power of two.
+     */
+    public Input(long windowHandle, int eventCapacity) {
+        m_WindowHandle = windowHandle;
+        m_State = new StateData();
+
+        final int capacity = Integer.highestOneBit(Math.max(2, eventCapacity) * 2 - 1);
+        m_Events = new EventData();
+        m_Events.types = new int[capacity];
+        m_Events.codes = new int[capacity];
+        m_Events.actions = new int[capacity];
+        m_Events.mods = new int[capacity];
+        m_Events.x = new float[capacity];
+        m_Events.y = new float[capacity];
+        m_Events.mask = capacity - 1;
 
         m_MousePos = new Vector2f(0.0f, 0.0f);
         m_MouseDelta = new Vector2f(0.0f, 0.0f);
@@ -30,59 +93,238 @@ public class Input {
     }
 
     public synchronized void initialize() {
-        for(int i = GLFW_KEY_SPACE; i < GLFW_KEY_LAST; i++)
-            m_KeyMap.put(i, false);
-
-        for(int i = GLFW_MOUSE_BUTTON_1; i < GLFW_MOUSE_BUTTON_LAST; i++)
-            m_MouseButtonMap.put(i, false);
-
         glfwSetKeyCallback(m_WindowHandle, Input::key_callback);
         glfwSetCursorPosCallback(m_WindowHandle, Input::cursor_pos_callback);
         glfwSetMouseButtonCallback(m_WindowHandle, Input::mouse_button_callback);
     }
 
+    /**
+     * Starts a new input frame: what was current becomes previous and everything that happened since the last call
+     * becomes current. Call it once before every game update.
+     */
+    public void update() {
+        final StateData state = m_State;
+
+        final long[] previous = state.current;
+        state.current = state.previous;
+        state.previous = previous;
+
+        System.arraycopy(state.live, 0, state.current, 0, WORDS);
+        for(int i = 0; i < WORDS; i++) {
+            state.pressed[i] = (state.current[i] & ~state.previous[i]) | state.pressedLatch[i];
+            state.released[i] = (state.previous[i] & ~state.current[i]) | state.releasedLatch[i];
+        }
+        Arrays.fill(state.pressedLatch, 0L);
+        Arrays.fill(state.releasedLatch, 0L);
+
+        m_MousePos.set(m_LiveX, m_LiveY);
+        m_MouseDelta.set(m_LiveDeltaX, m_LiveDeltaY);
+        m_LiveDeltaX = 0.0f;
+        m_LiveDeltaY = 0.0f;
+
+        final EventData events = m_Events;
+        events.frameStart = events.frameEnd;
+        events.frameEnd = events.written;
+        if(events.dropped > 0) {
+            Log.CORE.warn("Dropped {} input events, the {} slots for this frame and the last were full!", events.dropped, events.mask + 1);
+            events.dropped = 0;
+        }
+    }
+
+    /**
+     * @return true while the key is held down, as of the last {@link #update()}.
+     */
     public static boolean isKeyDown(int key) {
-        if(key == GLFW_KEY_UNKNOWN) {
-            Log.CORE.error("The key [{}] is not a valid key!", key);
+        if(!isValidKey(key))
             return false;
-        }
 
-        return get().m_KeyMap.get(key);
+        return isSet(get().m_State.current, key);
+    }
+
+    /**
+     * @return true if the key went down since the previous frame, even if it was already let go again.
+     */
+    public static boolean isKeyPressed(int key) {
+        if(!isValidKey(key))
+            return false;
+
+        return isSet(get().m_State.pressed, key);
+    }
+
+    /**
+     * @return true if the key was let go since the previous frame.
+     */
+    public static boolean isKeyReleased(int key) {
+        if(!isValidKey(key))
+            return false;
+
+        return isSet(get().m_State.released, key);
     }
 
     public static boolean isMouseButtonDown(int button) {
-        return get().m_MouseButtonMap.get(button);
+        if(!isValidButton(button))
+            return false;
+
+        return isSet(get().m_State.current, BUTTON_OFFSET + button);
+    }
+
+    public static boolean isMouseButtonPressed(int button) {
+        if(!isValidButton(button))
+            return false;
+
+        return isSet(get().m_State.pressed, BUTTON_OFFSET + button);
+    }
+
+    public static boolean isMouseButtonReleased(int button) {
+        if(!isValidButton(button))
+            return false;
+
+        return isSet(get().m_State.released, BUTTON_OFFSET + button);
     }
 
     public static Vector2f getMousePos() {
         return get().m_MousePos;
     }
 
+    /**
+     * @return how far the cursor moved since the previous frame.
+     */
     public static Vector2f getMouseDelta() {
         return get().m_MouseDelta;
     }
 
+    /**
+     * @return the number of raw events that arrived between the previous frame and this one.
+     */
+    public static int getEventCount() {
+        final EventData events = get().m_Events;
+        return (int) (events.frameEnd - events.frameStart);
+    }
+
+    /**
+     * @return {@link #EVENT_KEY}, {@link #EVENT_MOUSE_BUTTON} or {@link #EVENT_CURSOR}.
+     */
+    public static int getEventType(int event) {
+        return get().m_Events.types[slot(event)];
+    }
+
+    /**
+     * @return the GLFW key or mouse button of a key or button event.
+     */
+    public static int getEventCode(int event) {
+        return get().m_Events.codes[slot(event)];
+    }
+
+    /**
+     * @return GLFW_PRESS, GLFW_RELEASE or GLFW_REPEAT.
+     */
+    public static int getEventAction(int event) {
+        return get().m_Events.actions[slot(event)];
+    }
+
+    public static int getEventMods(int event) {
+        return get().m_Events.mods[slot(event)];
+    }
+
+    /**
+     * @return where the cursor was when the event happened.
+     */
+    public static float getEventX(int event) {
+        return get().m_Events.x[slot(event)];
+    }
+
+    public static float getEventY(int event) {
+        return get().m_Events.y[slot(event)];
+    }
+
     private static Input get() {
         return ms_Instance;
     }
 
+    private static int slot(int event) {
+        final EventData events = get().m_Events;
+        return (int) (events.frameStart + event) & events.mask;
+    }
+
+    private static boolean isSet(long[] bits, int bit) {
+        return (bits[bit >>> 6] & (1L << bit)) != 0L;
+    }
+
+    private static boolean isValidKey(int key) {
+        if(key < 0 || key > GLFW_KEY_LAST) {
+            Log.CORE.error("The key [{}] is not a valid key!", key);
+            return false;
+        }
+        return true;
+    }
+
+    private static boolean isValidButton(int button) {
+        if(button < 0 || button > GLFW_MOUSE_BUTTON_LAST) {
+            Log.CORE.error("The mouse button [{}] is not a valid button!", button);
+            return false;
+        }
+        return true;
+    }
+
+    private void setBit(int bit, int action) {
+        final int word = bit >>> 6;
+        final long mask = 1L << bit;
+
+        if(action == GLFW_PRESS) {
+            m_State.live[word] |= mask;
+            m_State.pressedLatch[word] |= mask;
+        } else if(action == GLFW_RELEASE) {
+            m_State.live[word] &= ~mask;
+            m_State.releasedLatch[word] |= mask;
+        }
+    }
+
+    private void addEvent(int type, int code, int action, int mods) {
+        final EventData events = m_Events;
+
+        // The current frame's events and the pending ones share the ring, so once it's full the new event is dropped
+        // rather than overwriting what the current frame is still reading. Only update() moves the frame along.
+        if(events.written - events.frameStart > events.mask) {
+            events.dropped++;
+            return;
+        }
+
+        final int slot = (int) events.written & events.mask;
+        events.types[slot] = type;
+        events.codes[slot] = code;
+        events.actions[slot] = action;
+        events.mods[slot] = mods;
+        events.x[slot] = m_LiveX;
+        events.y[slot] = m_LiveY;
+        events.written++;
+    }
+
     private static void key_callback(long window, int key, int scancode, int action, int mods) {
         Input instance = get();
-        instance.m_KeyMap.put(key, action != GLFW_RELEASE);
+        if(key < 0 || key > GLFW_KEY_LAST)
+            return;
+
+        instance.setBit(key, action);
+        instance.addEvent(EVENT_KEY, key, action, mods);
     }
 
     private static void cursor_pos_callback(long window, double x, double y) {
         Input instance = get();
-        Vector2f last_pos = new Vector2f(instance.m_MousePos);
-        Vector2f curr_pos = new Vector2f((float) x, (float) y);
+        instance.m_LiveDeltaX += (float) x - instance.m_LiveX;
+        instance.m_LiveDeltaY += (float) y - instance.m_LiveY;
+        instance.m_LiveX = (float) x;
+        instance.m_LiveY = (float) y;
 
-        instance.m_MousePos.set(curr_pos);
-        instance.m_MouseDelta.set(curr_pos).sub(last_pos);
+        instance.addEvent(EVENT_CURSOR, 0, 0, 0);
     }
 
     private static void mouse_button_callback(long window, int button, int action, int mods) {
         Input instance = get();
-        instance.m_MouseButtonMap.put(button, action != GLFW_RELEASE);
+        if(button < 0 || button > GLFW_MOUSE_BUTTON_LAST)
+            return;
+
+        instance.setBit(BUTTON_OFFSET + button, action);
+        instance.addEvent(EVENT_MOUSE_BUTTON, button, action, mods);
     }
 
 }
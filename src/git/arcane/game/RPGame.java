@@ -1,15 +1,11 @@
 package git.arcane.game;
 
 import git.arcane.core.IGame;
+import git.arcane.core.graphics.GLState;
 import git.arcane.core.util.Log;
 import git.arcane.core.screen.ScreenManager;
 import git.arcane.game.screens.Game;
 
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.glVertexAttribPointer;
-import static org.lwjgl.opengl.GL45.glCreateBuffers;
-import static org.lwjgl.opengl.GL45.glCreateVertexArrays;
-
 /**
  * Basic sample implementation of the {@link IGame} interface.
  * This game will be simple RPG.
@@ -22,7 +18,7 @@ public class RPGame implements IGame {
     @Override
     public void initialize() {
         Log.GAME.info("Initializing!");
-        glEnable(GL_DEPTH_TEST);
+        GLState.setDepthTest(true);
 
         screens = new ScreenManager();
         screens.addScreen("Game", new Game());
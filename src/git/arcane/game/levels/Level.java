@@ -1,7 +1,195 @@
 package git.arcane.game.levels;
 
+import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.cameras.Camera;
+import git.arcane.core.graphics.rendering.Renderer;
+import git.arcane.core.util.Log;
+import git.arcane.game.levels.tiles.Tile;
+import org.joml.Vector3f;
+
+/**
+ * A grid of {@link Tile}s, split into {@link TileChunk}s so only the part of the map the camera sees gets drawn.<br>
+ * Cell (0, 0) sits at the world origin and cells grow towards positive x and y.
+ */
 public class Level {
 
+    public static final float DEFAULT_TILE_SIZE = 1.0f;
+    public static final float DEFAULT_DEPTH = -0.5f;
+
+    private static class LevelStats {
+        public int VisibleChunks, DrawnChunks, Rebuilds;
+    }
+
+    private final int m_Width, m_Height;
+    private final int m_ChunksX, m_ChunksY;
+    private final float m_TileSize, m_Depth;
+
+    private final TileChunk[] m_Chunks;
+    private final Tile[] m_TileTypes;
+    private final LevelStats m_Stats;
+
+    private Texture m_Texture;
+
+    public Level(int width, int height) {
+        this(width, height, DEFAULT_TILE_SIZE, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates an empty Level.
+     * @param width the width of the level, in tiles.
+     * @param height the height of the level, in tiles.
+     * @param tileSize the size of a tile in world units.
+     * @param depth the z every tile is drawn at. Keep it below the sprites drawn on top.
+     */
+    public Level(int width, int height, float tileSize, float depth) {
+        m_Width = width;
+        m_Height = height;
+        m_TileSize = tileSize;
+        m_Depth = depth;
+
+        m_ChunksX = (width + TileChunk.SIZE - 1) / TileChunk.SIZE;
+        m_ChunksY = (height + TileChunk.SIZE - 1) / TileChunk.SIZE;
+
+        m_Chunks = new TileChunk[m_ChunksX * m_ChunksY];
+        for(int y = 0; y < m_ChunksY; y++) {
+            for(int x = 0; x < m_ChunksX; x++)
+                m_Chunks[y * m_ChunksX + x] = new TileChunk(x, y);
+        }
+
+        m_TileTypes = new Tile[Short.MAX_VALUE + 1];
+        m_Stats = new LevelStats();
+    }
+
+    /**
+     * Makes a {@link Tile} usable in this Level. Every Tile must come from the same {@link Texture}.
+     * @param tile the Tile we want to place.
+     */
+    public void registerTile(Tile tile) {
+        if(m_Texture == null) {
+            m_Texture = tile.getTexture();
+        } else if(tile.getTexture() != m_Texture) {
+            Log.GAME.error("Tile [{}] doesn't share the Level's Texture, it won't be drawn correctly!", tile.getId());
+        }
+
+        m_TileTypes[tile.getId()] = tile;
+    }
+
+    /**
+     * Draws every chunk that overlaps what the camera can see, rebuilding the ones that changed.
+     * @param renderer the renderer we draw the chunks with.
+     * @param camera the camera whose visible area we draw.
+     */
+    public void render(Renderer renderer, Camera camera) {
+        m_Stats.VisibleChunks = 0;
+        m_Stats.DrawnChunks = 0;
+        m_Stats.Rebuilds = 0;
+
+        if(m_Texture == null)
+            return;
+
+        final Vector3f min = camera.getVisibleMin(), max = camera.getVisibleMax();
+        final float chunkSize = m_TileSize * TileChunk.SIZE;
+
+        int firstX = Math.max(0, (int) Math.floor(min.x / chunkSize));
+        int firstY = Math.max(0, (int) Math.floor(min.y / chunkSize));
+        int lastX = Math.min(m_ChunksX - 1, (int) Math.floor(max.x / chunkSize));
+        int lastY = Math.min(m_ChunksY - 1, (int) Math.floor(max.y / chunkSize));
+
+        for(int y = firstY; y <= lastY; y++) {
+            for(int x = firstX; x <= lastX; x++) {
+                TileChunk chunk = m_Chunks[y * m_ChunksX + x];
+                m_Stats.VisibleChunks++;
+
+                if(chunk.isDirty())
+                    m_Stats.Rebuilds++;
+
+                if(!chunk.rebuildIfDirty(this))
+                    continue;
+
+                renderer.renderMesh(chunk.getMesh(), m_Texture);
+                m_Stats.DrawnChunks++;
+            }
+        }
+    }
+
+    /**
+     * Frees every chunk's Mesh and disposes the {@link Tile}s registered to this Level.
+     */
+    public void dispose() {
+        for(TileChunk chunk : m_Chunks)
+            chunk.dispose();
+
+        for(Tile tile : m_TileTypes) {
+            if(tile != null)
+                tile.dispose();
+        }
+    }
+
+    public void setTile(int x, int y, int id) {
+        if(!inBounds(x, y))
+            return;
+
+        chunkAt(x, y).setTile(x % TileChunk.SIZE, y % TileChunk.SIZE, (short) id);
+    }
+
+    public short getTile(int x, int y) {
+        if(!inBounds(x, y))
+            return Tile.EMPTY;
+
+        return chunkAt(x, y).getTile(x % TileChunk.SIZE, y % TileChunk.SIZE);
+    }
+
+    public Tile getTileType(short id) {
+        return id < 0 ? null : m_TileTypes[id];
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < m_Width && y < m_Height;
+    }
+
+    public int getWidth() {
+        return m_Width;
+    }
+
+    public int getHeight() {
+        return m_Height;
+    }
+
+    public float getTileSize() {
+        return m_TileSize;
+    }
+
+    public float getDepth() {
+        return m_Depth;
+    }
+
+    public int getChunkCount() {
+        return m_Chunks.length;
+    }
+
+    /**
+     * @return the amount of chunks that overlapped the camera during the last render.
+     */
+    public int getVisibleChunks() {
+        return m_Stats.VisibleChunks;
+    }
+
+    /**
+     * @return the amount of chunks that were actually drawn (had tiles) during the last render.
+     */
+    public int getDrawnChunks() {
+        return m_Stats.DrawnChunks;
+    }
+
+    /**
+     * @return the amount of chunk Meshes rebuilt during the last render.
+     */
+    public int getRebuilds() {
+        return m_Stats.Rebuilds;
+    }
 
+    private TileChunk chunkAt(int x, int y) {
+        return m_Chunks[(y / TileChunk.SIZE) * m_ChunksX + (x / TileChunk.SIZE)];
+    }
 
 }
@@ -0,0 +1,172 @@
+package git.arcane.game.levels;
+
+import git.arcane.core.graphics.Mesh;
+import git.arcane.core.graphics.rendering.SpriteRegion;
+import git.arcane.game.levels.tiles.Tile;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size square of cells from a {@link Level}, drawn from one static {@link Mesh}.<br>
+ * The Mesh is only rebuilt when one of the chunk's cells changes.
+ */
+public class TileChunk {
+
+    public static final int SIZE = 32;
+
+    // x, y, z, r, g, b, u, v -- Same layout as every other Mesh.
+    private static final int VERTEX_FLOATS = 8;
+
+    private final int m_ChunkX, m_ChunkY;
+    private final short[] m_Tiles;
+
+    private Mesh m_Mesh;
+    private int m_TileCount;
+    private boolean m_Dirty;
+
+    public TileChunk(int chunkX, int chunkY) {
+        m_ChunkX = chunkX;
+        m_ChunkY = chunkY;
+
+        m_Tiles = new short[SIZE * SIZE];
+        m_TileCount = 0;
+        m_Dirty = true;
+    }
+
+    /**
+     * Rebuilds the Mesh if a cell changed since the last time we were drawn.
+     * @param level the level we belong to, used to look up our Tiles.
+     * @return whether the chunk has a Mesh worth drawing.
+     */
+    public boolean rebuildIfDirty(Level level) {
+        if(m_Dirty) {
+            rebuild(level);
+            m_Dirty = false;
+        }
+
+        return m_Mesh != null;
+    }
+
+    public void dispose() {
+        if(m_Mesh != null)
+            m_Mesh.dispose();
+        m_Mesh = null;
+    }
+
+    public short getTile(int localX, int localY) {
+        return m_Tiles[localY * SIZE + localX];
+    }
+
+    public void setTile(int localX, int localY, short id) {
+        int index = localY * SIZE + localX;
+        if(m_Tiles[index] == id)
+            return;
+
+        if(m_Tiles[index] == Tile.EMPTY) m_TileCount++;
+        else if(id == Tile.EMPTY) m_TileCount--;
+
+        m_Tiles[index] = id;
+        m_Dirty = true;
+    }
+
+    public boolean isDirty() {
+        return m_Dirty;
+    }
+
+    public int getChunkX() {
+        return m_ChunkX;
+    }
+
+    public int getChunkY() {
+        return m_ChunkY;
+    }
+
+    public int getTileCount() {
+        return m_TileCount;
+    }
+
+    public Mesh getMesh() {
+        return m_Mesh;
+    }
+
+    private void rebuild(Level level) {
+        if(m_TileCount == 0) {
+            dispose();
+            return;
+        }
+
+        final float tileSize = level.getTileSize();
+        final float half = tileSize * 0.5f;
+        final float z = level.getDepth();
+
+        float[] vertices = new float[m_TileCount * 4 * VERTEX_FLOATS];
+        int[] indices = new int[m_TileCount * 6];
+
+        int v = 0, i = 0, quad = 0;
+        for(int y = 0; y < SIZE; y++) {
+            for(int x = 0; x < SIZE; x++) {
+                short id = m_Tiles[y * SIZE + x];
+                if(id == Tile.EMPTY)
+                    continue;
+
+                Tile tile = level.getTileType(id);
+                if(tile == null)
+                    continue;
+
+                SpriteRegion region = tile.getRegion();
+                float centerX = ((m_ChunkX * SIZE) + x) * tileSize + half;
+                float centerY = ((m_ChunkY * SIZE) + y) * tileSize + half;
+
+                float left = centerX - half, right = centerX + half;
+                float bottom = centerY - half, top = centerY + half;
+
+                v = putVertex(vertices, v, left,  bottom, z, region.getU0(), region.getV0()); // Bottom Left
+                v = putVertex(vertices, v, left,  top,    z, region.getU0(), region.getV1()); // Top Left
+                v = putVertex(vertices, v, right, top,    z, region.getU1(), region.getV1()); // Top Right
+                v = putVertex(vertices, v, right, bottom, z, region.getU1(), region.getV0()); // Bottom Right
+
+                int base = quad * 4;
+                indices[i++] = base;
+                indices[i++] = base + 1;
+                indices[i++] = base + 2;
+                indices[i++] = base + 3;
+                indices[i++] = base;
+                indices[i++] = base + 2;
+                quad++;
+            }
+        }
+
+        // Cells with unknown Tiles were skipped, so we may have used less than we allocated.
+        if(quad < m_TileCount) {
+            vertices = Arrays.copyOf(vertices, quad * 4 * VERTEX_FLOATS);
+            indices = Arrays.copyOf(indices, quad * 6);
+        }
+
+        if(quad == 0) {
+            dispose();
+            return;
+        }
+
+        if(m_Mesh == null) {
+            m_Mesh = new Mesh(vertices, indices);
+            return;
+        }
+
+        m_Mesh.setVertices(vertices);
+        m_Mesh.setIndices(indices);
+        m_Mesh.create();
+    }
+
+    private static int putVertex(float[] vertices, int offset, float x, float y, float z, float u, float v) {
+        vertices[offset]     = x;
+        vertices[offset + 1] = y;
+        vertices[offset + 2] = z;
+        vertices[offset + 3] = 1.0f;
+        vertices[offset + 4] = 1.0f;
+        vertices[offset + 5] = 1.0f;
+        vertices[offset + 6] = u;
+        vertices[offset + 7] = v;
+        return offset + VERTEX_FLOATS;
+    }
+
+}
@@ -1,16 +1,53 @@
 package git.arcane.game.levels.tiles;
 
 import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.rendering.RegionCache;
+import git.arcane.core.graphics.rendering.SpriteRegion;
 
+/**
+ * A kind of tile a {@link git.arcane.game.levels.Level} can be made of.<br>
+ * Levels only store the id of a Tile per cell, the Tile itself holds what the cell looks like.
+ */
 public class Tile {
 
+    /**
+     * The id of a cell with nothing in it. Empty cells aren't drawn.
+     */
+    public static final short EMPTY = 0;
+
     protected static class TileData {
-        public Texture texture;
+        public short id;
+        public SpriteRegion region;
+    }
+
+    protected final TileData m_Data;
 
+    public Tile(int id, SpriteRegion region) {
+        if(id <= EMPTY || id > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Tile ids must be between 1 and " + Short.MAX_VALUE + "!");
+
+        m_Data = new TileData();
+        m_Data.id = (short) id;
+        m_Data.region = region;
     }
 
-    public Tile() {
+    /**
+     * Hands our region back to the {@link RegionCache}.
+     */
+    public void dispose() {
+        RegionCache.release(m_Data.region);
+    }
+
+    public short getId() {
+        return m_Data.id;
+    }
+
+    public SpriteRegion getRegion() {
+        return m_Data.region;
+    }
 
+    public Texture getTexture() {
+        return m_Data.region.getTexture();
     }
 
 }
@@ -1,86 +1,235 @@
 package git.arcane.game.screens;
 
+import git.arcane.core.assets.AssetHandle;
+import git.arcane.core.assets.AssetManager;
+import git.arcane.core.graphics.BakedTexture;
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.Pixmap;
+import git.arcane.core.graphics.rendering.RegionCache;
+import git.arcane.core.graphics.rendering.RenderThread;
 import git.arcane.core.graphics.rendering.Renderer;
+import git.arcane.core.graphics.ShaderRegistry;
 import git.arcane.core.graphics.Shaders;
-import git.arcane.core.graphics.Texture;
+import git.arcane.core.graphics.TextureAtlas;
 import git.arcane.core.graphics.cameras.OrthoCamera;
 import git.arcane.core.graphics.rendering.Sprite;
+import git.arcane.core.graphics.rendering.SpriteBatch;
 import git.arcane.core.graphics.rendering.SpriteSheet;
 import git.arcane.core.graphics.rendering.font.RenderFont;
+import git.arcane.core.graphics.rendering.font.SDFFont;
+import git.arcane.core.profiler.Profiler;
+import git.arcane.core.profiler.ProfilerOverlay;
 import git.arcane.core.screen.Screen;
-import org.joml.Vector3f;
+import git.arcane.core.spatial.SpatialGrid;
+import git.arcane.core.util.Input;
+import git.arcane.core.util.Log;
+import git.arcane.game.levels.Level;
+import git.arcane.game.levels.tiles.Tile;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F3;
+import static org.lwjgl.glfw.GLFW.GLFW_KEY_F4;
 
 /**
  * A simple implementation of a {@link Screen} that is meant to represent the Main Game.
  */
 public class Game implements Screen {
 
-    private Map<String, Texture> textures;
+    private TextureAtlas atlas;
     private Renderer render;
+    private SpriteBatch batch, textBatch;
+    private Shaders textShaders;
 
     private OrthoCamera camera;
     private SpriteSheet tileSheet;
     private Sprite sprite, sprite2;
+    private SpatialGrid<Sprite> sprites;
     private RenderFont font;
+    private SDFFont sdfFont;
+    private Level level;
+    private ProfilerOverlay profilerOverlay;
+
+    private AssetHandle<Pixmap> tilesImage, dirtImage;
+    private AssetHandle<RenderFont> fontHandle;
+    private AssetHandle<SDFFont> sdfFontHandle;
+    private boolean loaded;
 
     @Override
     public void show() {
-        final Shaders shaders = new Shaders("/shaders/scene.vert", "/shaders/scene.frag");
-        final Texture tiles = Texture.loadTexture("/textures/tiles.png");
-        final Texture dirt = Texture.loadTexture("/textures/dirt.png");
+        // Decoding happens in the background, the scene is built once everything has arrived.
+        final AssetManager assets = AssetManager.get();
+        tilesImage = loadImage(assets, "tiles");
+        dirtImage = loadImage(assets, "dirt");
+        fontHandle = assets.rasterizeFont("/fonts/vcr.ttf", 16, true);
+        sdfFontHandle = assets.loadSDFFont("/fonts/vcr.ttf");
+        loaded = false;
+
+        // The camera owns a uniform buffer and everything below draws through it, so it's kept like they are.
+        if(camera == null) {
+            camera = new OrthoCamera(16, 9);
+            camera.setMoveSpeed(0.5f);
+        }
+
+        // Programs are shared through the registry, showing the Game again doesn't compile anything.
+        final ShaderRegistry shaders = ShaderRegistry.get();
+        if(render == null) {
+            final Shaders scene = shaders.acquire("/shaders/scene.vert", "/shaders/scene.frag");
+            render = new Renderer(scene, camera);
+            batch = new SpriteBatch(scene, camera);
+        }
+
+        if(textBatch == null) {
+            textShaders = shaders.acquire("/shaders/scene.vert", "/shaders/sdf.frag");
+            textBatch = new SpriteBatch(textShaders, camera);
+        }
+
+        camera.setZoom(0.2f);
+    }
 
-        font = new RenderFont("/fonts/vcr.ttf", 16);
+    /**
+     * Maps the baked version of a texture when the bakeTextures task has made one, and only decodes the PNG otherwise.
+     */
+    private static AssetHandle<Pixmap> loadImage(AssetManager assets, String name) {
+        final Path baked = Path.of("baked", name + BakedTexture.EXTENSION);
+        if(Files.isRegularFile(baked))
+            return assets.loadBakedPixmap(baked);
 
-        camera = new OrthoCamera(16, 9);
-        camera.setMoveSpeed(0.5f);
+        return assets.loadPixmap("/textures/" + name + ".png", 4);
+    }
 
-        if(textures == null)
-            textures = new HashMap<>();
+    private void buildScene() {
+        if(tilesImage.isFailed() || dirtImage.isFailed() || fontHandle.isFailed() || sdfFontHandle.isFailed()) {
+            Log.GAME.error("Failed to load the Game's assets!");
+            System.exit(-1);
+        }
 
-        if(render == null)
-            render = new Renderer(shaders, camera);
+        // Everything we draw shares one atlas page, so the whole scene batches into a single draw call.
+        atlas = new TextureAtlas();
+        final TextureAtlas.Region tiles = atlas.add("tiles", tilesImage.get());
+        atlas.add("dirt", dirtImage.get());
 
-        textures.putIfAbsent("tiles", tiles);
-        textures.putIfAbsent("dirt", dirt);
+        font = fontHandle.get();
+        font.addToAtlas(atlas);
+        atlas.pack();
+        profilerOverlay = new ProfilerOverlay(font);
+        sdfFont = sdfFontHandle.get();
 
-        tileSheet = new SpriteSheet(textures.get("tiles"));
+        tileSheet = new SpriteSheet(tiles);
         sprite = tileSheet.getSprite(0, 0, 16, 16);
         sprite2 = tileSheet.getSprite(16, 0, 16, 16);
 
         sprite.setPosition(sprite.getPosition().x - 1.0f, sprite.getPosition().y);
         sprite2.setPosition(sprite2.getPosition().x + 1.0f, sprite2.getPosition().y);
 
-        camera.setZoom(0.2f);
+        sprites = new SpatialGrid<>();
+        sprite.setSpatialGrid(sprites);
+        sprite2.setSpatialGrid(sprites);
+
+        buildLevel();
+
+        loaded = true;
+    }
+
+    private void buildLevel() {
+        // Tiles are the same size as our sprites, which span 2 world units.
+        level = new Level(1024, 1024, 2.0f, Level.DEFAULT_DEPTH);
+
+        final int tileTypes = 4;
+        for(int i = 0; i < tileTypes; i++)
+            level.registerTile(new Tile(i + 1, tileSheet.getRegion(i * 16, 16, 16, 16)));
+
+        final Random random = new Random(1337L);
+        for(int y = 0; y < level.getHeight(); y++) {
+            for(int x = 0; x < level.getWidth(); x++)
+                level.setTile(x, y, 1 + random.nextInt(tileTypes));
+        }
     }
 
     @Override
     public void hide() {
+        if(!loaded)
+            return;
+
+        level.dispose();
+
         sprite.dispose();
         sprite2.dispose();
-
-        for(Texture texture : textures.values())
-            texture.delete();
+        RegionCache.logStats();
+        GLState.logStats();
+
+        profilerOverlay.dispose();
+        font.dispose();
+        sdfFont.logStats();
+        sdfFont.dispose();
+        atlas.dispose();
+        loaded = false;
     }
 
     @Override
     public void dispose() {
+        batch.dispose();
+        textBatch.dispose();
+        textShaders.dispose();
         render.dispose();
+        camera.dispose();
     }
 
     @Override
     public void update(double dt) {
+        // Building the scene uploads the atlas, which has to happen wherever the OpenGL context lives.
+        if(!loaded && AssetManager.get().isFinished() && !RenderThread.invokeAndWait(this::buildScene)) {
+            // Trying again every tick would only leak another atlas each time.
+            Log.GAME.error("Failed to build the Game's scene!");
+            System.exit(-1);
+        }
+
         render.update();
+        handleProfilerKeys();
     }
 
     @Override
     public void render(double alpha) {
-        sprite.draw(render);
-        sprite2.draw(render);
+        if(!loaded)
+            return;
+
+        Profiler.beginGpu("Level");
+        level.render(render, camera);
+        Profiler.endGpu();
+
+        Profiler.beginGpu("Sprites");
+        batch.begin();
+        batch.drawVisible(sprites);
+
+        profilerOverlay.draw(batch);
+        batch.end();
+        Profiler.endGpu();
+
+        // Both sizes come from the same glyphs.
+        Profiler.beginGpu("Text");
+        textBatch.begin();
+        sdfFont.drawText(textBatch, "Hello, World! 123", 0, 0, 1.0f);
+        sdfFont.drawText(textBatch, "Hello, World! 123", 0, -1.0f, 0.5f, 1.0f, 1.0f, 0.0f);
+        textBatch.end();
+        Profiler.endGpu();
+    }
+
+    /**
+     * F3 toggles the profiler overlay, F4 writes the profiled frames to disk.
+     */
+    private void handleProfilerKeys() {
+        if(!loaded)
+            return;
+
+        if(Input.isKeyPressed(GLFW_KEY_F3))
+            profilerOverlay.toggle();
 
-        font.drawText(render, "Hello, World! 123", 0, 0, 0.25f);
+        if(Input.isKeyPressed(GLFW_KEY_F4)) {
+            Profiler.dumpCSV(Path.of("profile.csv"));
+            Profiler.dumpJSON(Path.of("profile.json"));
+        }
     }
 
 }
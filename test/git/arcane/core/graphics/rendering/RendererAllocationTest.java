@@ -0,0 +1,161 @@
+package git.arcane.core.graphics.rendering;
+
+import git.arcane.core.GameSettings;
+import git.arcane.core.graphics.GLState;
+import git.arcane.core.graphics.Mesh;
+import git.arcane.core.graphics.Shaders;
+import git.arcane.core.graphics.Window;
+import git.arcane.core.graphics.cameras.OrthoCamera;
+import org.joml.Vector2f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.lwjgl.glfw.GLFW.glfwInit;
+import static org.lwjgl.glfw.GLFW.glfwTerminate;
+
+/**
+ * Proves the steady state draw path allocates nothing on the heap.<br>
+ * Every test warms its path up first, so caches are filled and the code is compiled, then counts the bytes the
+ * thread allocates over many more calls. Needs an OpenGL context, created headlessly through OSMesa. Machines
+ * that can't create one skip these tests.
+ */
+class RendererAllocationTest {
+
+    private static final int WARMUP = 20_000, MEASURED = 100_000;
+
+    private static Window ms_Window;
+
+    private Shaders m_Shaders;
+    private OrthoCamera m_Camera;
+    private Renderer m_Renderer;
+    private Mesh m_Mesh;
+    private int m_Frame;
+
+    @BeforeAll
+    static void createContext() {
+        final GameSettings settings = new GameSettings();
+        settings.Headless = true;
+        settings.HeadlessMode = GameSettings.HeadlessBackend.OSMESA;
+
+        Window.configurePlatform(settings);
+        assumeTrue(glfwInit(), "GLFW can't be initialized on this machine");
+
+        try {
+            ms_Window = new Window(settings);
+        } catch (RuntimeException e) {
+            glfwTerminate();
+            assumeTrue(false, "No OpenGL context on this machine: " + e.getMessage());
+        }
+    }
+
+    @AfterAll
+    static void destroyContext() {
+        if(ms_Window == null)
+            return;
+
+        ms_Window.dispose();
+        ms_Window = null;
+        glfwTerminate();
+    }
+
+    @BeforeEach
+    void createRenderer() {
+        GLState.invalidate();
+
+        m_Shaders = new Shaders("/shaders/scene.vert", "/shaders/scene.frag");
+        m_Camera = new OrthoCamera(16, 9);
+        m_Renderer = new Renderer(m_Shaders, m_Camera);
+        m_Mesh = Mesh.CreateMesh();
+    }
+
+    @AfterEach
+    void disposeRenderer() {
+        m_Mesh.dispose();
+        m_Camera.dispose();
+        m_Renderer.dispose();
+    }
+
+    @Test
+    void uniformHandleSettersDoNotAllocate() {
+        final int sampler = m_Shaders.createUniform("u_Sampler");
+        final int textured = m_Shaders.createUniform("u_Textured");
+        m_Shaders.bind();
+
+        assertNoAllocation(() -> {
+            m_Shaders.setUniform1i(sampler, 0);
+            m_Shaders.setUniformBool(textured, true);
+            m_Shaders.setUniformBool(textured, false);
+        });
+    }
+
+    @Test
+    void stateSettersDoNotAllocate() {
+        assertNoAllocation(() -> {
+            GLState.setVertexAttrib(Renderer.OFFSET_ATTRIB, 1.0f, 2.0f, 0.0f, 0.0f);
+            GLState.setVertexAttrib(Renderer.SCALE_ATTRIB, 1.0f, 1.0f, 1.0f, 0.0f);
+            GLState.setDepthTest(true);
+            GLState.setBlend(true);
+            m_Camera.bind();
+        });
+    }
+
+    @Test
+    void renderMeshDoesNotAllocate() {
+        final Vector3f position = new Vector3f(1.0f, 2.0f, 0.0f);
+        final Vector2f scale = new Vector2f(0.5f, 0.5f);
+
+        assertNoAllocation(() -> {
+            m_Renderer.renderMesh(m_Mesh);
+            m_Renderer.renderMesh(position, scale, m_Mesh);
+
+            // Moving the camera uploads its uniform buffer again, which must not allocate either.
+            m_Camera.setZoom((m_Frame++ & 1) == 0 ? 1.0f : 0.5f);
+            m_Camera.update();
+        });
+    }
+
+    @Test
+    void recordedRenderMeshDoesNotAllocate() {
+        final Vector3f position = new Vector3f(1.0f, 2.0f, 0.0f);
+        final Vector2f scale = new Vector2f(0.5f, 0.5f);
+        final RenderCommands commands = new RenderCommands();
+
+        RenderCommands.beginRecording(commands);
+        try {
+            // A list keeps its memory between frames, so once it has grown recording allocates nothing.
+            assertNoAllocation(() -> {
+                for(int i = 0; i < 16; i++)
+                    m_Renderer.renderMesh(position, scale, m_Mesh);
+                commands.reset();
+            });
+        } finally {
+            RenderCommands.endRecording();
+            commands.dispose();
+        }
+    }
+
+    private static void assertNoAllocation(Runnable path) {
+        final com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "This JVM can't count allocated bytes");
+        threads.setThreadAllocatedMemoryEnabled(true);
+
+        for(int i = 0; i < WARMUP; i++)
+            path.run();
+
+        final long before = threads.getCurrentThreadAllocatedBytes();
+        for(int i = 0; i < MEASURED; i++)
+            path.run();
+        final long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(0L, allocated, "The draw path allocated " + allocated + " bytes over " + MEASURED + " calls");
+    }
+
+}